@@ -0,0 +1,86 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * <h1>Benchmark Application</h1> Config server wired the same way as an
+ * application embedding it, backed by an in-memory H2 database. Every context
+ * gets its own database so that benchmark trials do not see each other's data.
+ *
+ * @author melanga
+ *
+ */
+
+@SpringBootApplication(scanBasePackages = "io.github.melangad.spring.config.server")
+@EnableJpaRepositories("io.github.melangad.spring.config.server.repository")
+@EntityScan({ "io.github.melangad.spring.config.server.entity" })
+public class BenchmarkApplication {
+
+	/**
+	 * Start a config server without a web server
+	 *
+	 * @param properties are additional properties in key=value form
+	 * @return started application context
+	 */
+	public static ConfigurableApplicationContext start(final String... properties) {
+		return start(WebApplicationType.NONE, properties);
+	}
+
+	/**
+	 * Start a config server with a web server on a random port. Reactive servers
+	 * run on Reactor Netty although Tomcat is on the classpath as well
+	 *
+	 * @param webApplicationType is the web stack to start
+	 * @param properties         are additional properties in key=value form
+	 * @return started application context
+	 */
+	public static ConfigurableApplicationContext start(final WebApplicationType webApplicationType,
+			final String... properties) {
+		final List<String> all = new ArrayList<>(Arrays.asList(
+				"spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+				"spring.jpa.hibernate.ddl-auto=create-drop",
+				"spring.jpa.open-in-view=false",
+				"spring.jpa.properties.hibernate.jdbc.batch_size=500",
+				"spring.jpa.properties.hibernate.order_inserts=true",
+				"spring.main.banner-mode=off",
+				"logging.level.root=WARN",
+				"config.server.propagation.mode=none"));
+		if (WebApplicationType.NONE != webApplicationType) {
+			all.add("server.port=0");
+		}
+		all.addAll(Arrays.asList(properties));
+
+		final SpringApplicationBuilder builder = new SpringApplicationBuilder(BenchmarkApplication.class)
+				.web(webApplicationType);
+		if (WebApplicationType.REACTIVE == webApplicationType) {
+			builder.sources(NettyServer.class);
+		}
+
+		return builder.properties(all.toArray(new String[0])).run();
+	}
+
+	/**
+	 * Registered as a source of reactive contexts only, so it is not annotated
+	 * and not picked up by component scanning
+	 */
+	static class NettyServer {
+
+		@Bean
+		public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+			return new NettyReactiveWebServerFactory();
+		}
+	}
+
+}
@@ -0,0 +1,36 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <h1>Benchmark Runner</h1> Runs the benchmarks with the standard JMH command
+ * line options. Unless another result file or format is given, results are
+ * written as JSON to <code>jmh-result.json</code> so they can be compared
+ * between versions.
+ *
+ * @author melanga
+ *
+ */
+public class BenchmarkRunner {
+
+	private static final String DEFAULT_RESULT = "jmh-result.json";
+
+	public static void main(final String[] args) throws Exception {
+		final CommandLineOptions options = new CommandLineOptions(args);
+		final ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+
+		if (!options.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (!options.getResult().hasValue()) {
+			builder.result(DEFAULT_RESULT);
+		}
+
+		new Runner(builder.build()).run();
+	}
+
+}
@@ -0,0 +1,91 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.github.melangad.spring.config.server.ConfigService;
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+
+/**
+ * <h1>Config Contention Benchmark</h1> Concurrent patches of different keys of
+ * the same label, written one at a time or coalesced into shared versions.
+ *
+ * @author melanga
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ConfigContentionBenchmark {
+
+	@Param({ "1000" })
+	private int keys;
+
+	@Param({ "0ms", "5ms" })
+	private String coalesceWindow;
+
+	private ConfigurableApplicationContext context;
+
+	private ConfigService configService;
+
+	private final AtomicInteger writers = new AtomicInteger();
+
+	@State(Scope.Thread)
+	public static class Writer {
+
+		private int index;
+
+		private int patchCount = 0;
+
+		@Setup(Level.Trial)
+		public void setUp(final ConfigContentionBenchmark benchmark) {
+			this.index = benchmark.writers.getAndIncrement();
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.context = BenchmarkApplication.start("config.server.write.coalesce-window=" + this.coalesceWindow,
+				"config.server.history.checkpoint-interval=1000000");
+		this.configService = this.context.getBean(ConfigService.class);
+
+		this.configService.createConfig(ConfigFixtures.LABEL, ConfigFixtures.configs(this.keys));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+	}
+
+	/**
+	 * Patch a key owned by the calling thread
+	 */
+	@Benchmark
+	public ConfigDetailDAO patch(final Writer writer) throws Exception {
+		return this.configService.patchConfig(ConfigFixtures.LABEL, Collections.singletonList(
+				ConfigFixtures.config(ConfigFixtures.key(writer.index % this.keys), "patched-" + writer.patchCount++)));
+	}
+
+}
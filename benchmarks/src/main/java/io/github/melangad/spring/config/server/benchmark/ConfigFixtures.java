@@ -0,0 +1,45 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+
+/**
+ * Generated configurations shared by the benchmarks. Keys are shuffled with a
+ * fixed seed so every run sorts the same input.
+ *
+ * @author melanga
+ *
+ */
+final class ConfigFixtures {
+
+	static final String LABEL = "BENCHMARK-APP";
+
+	private ConfigFixtures() {
+	}
+
+	static List<ConfigMetaDAO> configs(final int keys) {
+		final List<ConfigMetaDAO> configs = new ArrayList<>(keys);
+		for (int i = 0; i < keys; i++) {
+			configs.add(config(key(i), "value-" + i));
+		}
+		Collections.shuffle(configs, new Random(keys));
+		return configs;
+	}
+
+	static ConfigMetaDAO config(final String key, final String value) {
+		final ConfigMetaDAO config = new ConfigMetaDAO();
+		config.setKey(key);
+		config.setValue(value);
+		config.setDescription("Description of " + key);
+		return config;
+	}
+
+	static String key(final int index) {
+		return String.format("service.module-%03d.property-%06d", index % 100, index);
+	}
+
+}
@@ -0,0 +1,88 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.github.melangad.spring.config.server.ConfigPushService;
+
+/**
+ * <h1>Config Push Benchmark</h1> Fan-out of a version change to all
+ * subscribers of a label, measured until every subscriber received the event.
+ * Subscribers accept events immediately, so the result is the cost of the push
+ * service itself rather than of client connections.
+ *
+ * @author melanga
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigPushBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int subscribers;
+
+	private ConfigurableApplicationContext context;
+
+	private ConfigPushService configPushService;
+
+	private volatile CountDownLatch received;
+
+	private int version = 0;
+
+	private class CountingEmitter extends SseEmitter {
+
+		@Override
+		public void send(final SseEventBuilder builder) throws IOException {
+			ConfigPushBenchmark.this.received.countDown();
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		this.context = BenchmarkApplication.start();
+		this.configPushService = this.context.getBean(ConfigPushService.class);
+
+		for (int i = 0; i < this.subscribers; i++) {
+			this.configPushService.addEmitter(ConfigFixtures.LABEL, new CountingEmitter());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public void broadcast() throws InterruptedException {
+		this.received = new CountDownLatch(this.subscribers);
+		this.configPushService.doNotify(ConfigFixtures.LABEL, ++this.version, new Date());
+
+		if (!this.received.await(1, TimeUnit.MINUTES)) {
+			throw new IllegalStateException("Broadcast did not reach all subscribers");
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.github.melangad.spring.config.server.ConfigPushChannel;
+
+/**
+ * <h1>Config Push Footprint Benchmark</h1> Memory held by the server for each
+ * connected push subscriber, comparing the Spring MVC <code>SseEmitter</code>
+ * endpoint on Tomcat with the reactive endpoint on Reactor Netty. Subscribers
+ * are real HTTP connections opened from the same JVM, so the heap and direct
+ * memory used by a bare TCP connection, measured up front, is subtracted.
+ * <p>
+ * Reported as <code>bytesPerSubscriber</code> and
+ * <code>subscribersPerGb</code>. The score is the time taken to connect all
+ * subscribers. Each subscriber needs two file descriptors, so raise
+ * <code>ulimit -n</code> for larger subscriber counts.
+ *
+ * @author melanga
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class ConfigPushFootprintBenchmark {
+
+	private static final long GIGABYTE = 1L << 30;
+
+	@Param({ "servlet", "reactive" })
+	private String stack;
+
+	@Param({ "2000" })
+	private int subscribers;
+
+	private ConfigurableApplicationContext context;
+
+	private Collection<ConfigPushChannel> channels;
+
+	private int port;
+
+	private long bareConnectionBytes;
+
+	private int version = 0;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+
+		public long bytesPerSubscriber;
+
+		public long subscribersPerGb;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.bytesPerSubscriber = 0;
+			this.subscribersPerGb = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.bareConnectionBytes = this.measureBareConnections();
+
+		this.context = BenchmarkApplication.start(
+				"reactive".equals(this.stack) ? WebApplicationType.REACTIVE : WebApplicationType.SERVLET,
+				"config.server.push.emitter-timeout=10m");
+		this.port = Integer.parseInt(this.context.getEnvironment().getProperty("local.server.port"));
+		this.channels = this.context.getBeansOfType(ConfigPushChannel.class).values();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public void subscribe(final Footprint footprint) throws Exception {
+		final long before = usedMemory();
+		final List<SocketChannel> connections = new ArrayList<>(this.subscribers);
+
+		try {
+			for (int i = 0; i < this.subscribers; i++) {
+				connections.add(this.connect());
+			}
+			this.awaitSubscribers(this.subscribers);
+
+			final long bytes = Math.max(1,
+					(usedMemory() - before) / this.subscribers - this.bareConnectionBytes);
+			footprint.bytesPerSubscriber = bytes;
+			footprint.subscribersPerGb = GIGABYTE / bytes;
+		} finally {
+			closeAll(connections);
+			this.awaitSubscribers(0);
+		}
+	}
+
+	private SocketChannel connect() throws IOException {
+		final SocketChannel connection = SocketChannel
+				.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port));
+		final ByteBuffer request = ByteBuffer.wrap(("GET /config/notification/" + ConfigFixtures.LABEL
+				+ " HTTP/1.1\r\nHost: localhost\r\nAccept: text/event-stream\r\n\r\n")
+						.getBytes(StandardCharsets.US_ASCII));
+		while (request.hasRemaining()) {
+			connection.write(request);
+		}
+		return connection;
+	}
+
+	/**
+	 * Wait for the subscriber count to settle. Emitters only notice a closed
+	 * connection when an event is sent, so events are pushed while waiting
+	 */
+	private void awaitSubscribers(final int expected) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+
+		while (this.subscriberCount() != expected) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException(
+						"Expected " + expected + " subscribers but found " + this.subscriberCount());
+			}
+			if (expected < this.subscriberCount()) {
+				final int next = ++this.version;
+				this.channels.forEach(
+						channel -> channel.doNotify(ConfigFixtures.LABEL, ConfigFixtures.LABEL, next, new Date()));
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	private int subscriberCount() {
+		return this.channels.stream().mapToInt(channel -> channel.getSubscriberCounts()
+				.getOrDefault(ConfigFixtures.LABEL, 0)).sum();
+	}
+
+	/**
+	 * Memory used by both ends of a TCP connection without any server on top
+	 */
+	private long measureBareConnections() throws IOException, InterruptedException {
+		final List<SocketChannel> connections = new ArrayList<>(this.subscribers * 2);
+
+		try (ServerSocketChannel server = ServerSocketChannel.open()) {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+
+			final long before = usedMemory();
+			for (int i = 0; i < this.subscribers; i++) {
+				connections.add(SocketChannel.open(server.getLocalAddress()));
+				connections.add(server.accept());
+			}
+			return Math.max(0, (usedMemory() - before) / this.subscribers);
+		} finally {
+			closeAll(connections);
+		}
+	}
+
+	private static long usedMemory() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+
+		long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if ("direct".equals(pool.getName())) {
+				used += pool.getMemoryUsed();
+			}
+		}
+		return used + nettyDirectMemory();
+	}
+
+	/**
+	 * Netty allocates direct buffers outside of the JDK buffer pool
+	 */
+	private static long nettyDirectMemory() {
+		try {
+			final Object used = Class.forName("io.netty.util.internal.PlatformDependent")
+					.getMethod("usedDirectMemory").invoke(null);
+			return Math.max(0, (Long) used);
+		} catch (ReflectiveOperationException e) {
+			return 0;
+		}
+	}
+
+	private static void closeAll(final List<SocketChannel> connections) {
+		connections.forEach(connection -> {
+			try {
+				connection.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+		});
+		connections.clear();
+	}
+
+}
@@ -0,0 +1,93 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.github.melangad.spring.config.server.ConfigService;
+import io.github.melangad.spring.config.server.InvalidConfigException;
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.entity.Config;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import io.github.melangad.spring.config.server.storage.ConfigValueStore;
+
+/**
+ * <h1>Config Read Benchmark</h1> Reads of a label with the config cache
+ * disabled, so every read fetches the label from the database, decodes and
+ * sorts its entries and encodes the response body.
+ *
+ * @author melanga
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigReadBenchmark {
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int keys;
+
+	@Param({ "blob", "entry" })
+	private String storageMode;
+
+	private ConfigurableApplicationContext context;
+
+	private ConfigService configService;
+
+	private ConfigValueStore configValueStore;
+
+	private Config config;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		this.context = BenchmarkApplication.start("config.server.storage.mode=" + this.storageMode,
+				"config.server.cache.enabled=false");
+		this.configService = this.context.getBean(ConfigService.class);
+		this.configValueStore = this.context.getBean(ConfigValueStore.class);
+
+		this.configService.createConfig(ConfigFixtures.LABEL, ConfigFixtures.configs(this.keys));
+		this.config = this.context.getBean(ConfigRepository.class).findByLabel(ConfigFixtures.LABEL).get(0);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+	}
+
+	/**
+	 * Fetch, decode, sort and encode a label as on a cache miss
+	 */
+	@Benchmark
+	public Optional<CachedConfig> load() {
+		return this.configService.getCachedConfig(ConfigFixtures.LABEL);
+	}
+
+	/**
+	 * Decode the stored entries of an already fetched label
+	 */
+	@Benchmark
+	public List<ConfigMetaDAO> decode() throws InvalidConfigException {
+		return this.configValueStore.read(this.config);
+	}
+
+}
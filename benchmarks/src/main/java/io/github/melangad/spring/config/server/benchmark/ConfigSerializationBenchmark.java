@@ -0,0 +1,69 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+
+/**
+ * <h1>Config Serialization Benchmark</h1> Jackson encoding and decoding of
+ * configuration entry lists, as used for stored values and response bodies.
+ *
+ * @author melanga
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigSerializationBenchmark {
+
+	private static final TypeReference<List<ConfigMetaDAO>> CONFIG_LIST = new TypeReference<List<ConfigMetaDAO>>() {
+	};
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int keys;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private List<ConfigMetaDAO> configs;
+
+	private byte[] json;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		this.configs = ConfigFixtures.configs(this.keys);
+		this.json = this.mapper.writeValueAsBytes(this.configs);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return this.mapper.writeValueAsBytes(this.configs);
+	}
+
+	@Benchmark
+	public List<ConfigMetaDAO> deserialize() throws IOException {
+		return this.mapper.readValue(this.json, CONFIG_LIST);
+	}
+
+}
@@ -0,0 +1,107 @@
+package io.github.melangad.spring.config.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.github.melangad.spring.config.server.ConfigService;
+import io.github.melangad.spring.config.server.DuplicateKeysException;
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+
+/**
+ * <h1>Config Write Benchmark</h1> Patches of a few keys of a label, which
+ * merge the patch into the stored entries and record a history delta, and the
+ * duplicate key check every write starts with.
+ *
+ * @author melanga
+ *
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigWriteBenchmark {
+
+	private static final int PATCH_SIZE = 10;
+
+	@Param({ "10", "1000", "10000", "100000" })
+	private int keys;
+
+	@Param({ "blob", "entry" })
+	private String storageMode;
+
+	private ConfigurableApplicationContext context;
+
+	private ConfigService configService;
+
+	private List<ConfigMetaDAO> duplicateConfigs;
+
+	private int patchCount = 0;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		// Deltas only, so that the history of long runs stays small
+		this.context = BenchmarkApplication.start("config.server.storage.mode=" + this.storageMode,
+				"config.server.history.checkpoint-interval=1000000");
+		this.configService = this.context.getBean(ConfigService.class);
+
+		final List<ConfigMetaDAO> configs = ConfigFixtures.configs(this.keys);
+		this.configService.createConfig(ConfigFixtures.LABEL, configs);
+
+		this.duplicateConfigs = new ArrayList<>(configs);
+		this.duplicateConfigs.add(configs.get(0));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.context.close();
+	}
+
+	/**
+	 * Patch existing keys of a label
+	 */
+	@Benchmark
+	public ConfigDetailDAO patch() throws Exception {
+		final int patch = this.patchCount++;
+		final List<ConfigMetaDAO> configs = new ArrayList<>(PATCH_SIZE);
+		for (int i = 0; i < PATCH_SIZE; i++) {
+			final int index = (patch * PATCH_SIZE + i) % this.keys;
+			configs.add(ConfigFixtures.config(ConfigFixtures.key(index), "patched-" + patch));
+		}
+		return this.configService.patchConfig(ConfigFixtures.LABEL, configs);
+	}
+
+	/**
+	 * Reject a full set of entries with a single duplicate key. The check runs
+	 * before the database is touched
+	 */
+	@Benchmark
+	public Exception duplicates() throws Exception {
+		try {
+			this.configService.patchConfig(ConfigFixtures.LABEL, this.duplicateConfigs);
+		} catch (DuplicateKeysException e) {
+			return e;
+		}
+		throw new IllegalStateException("Duplicate key not detected");
+	}
+
+}
@@ -1,9 +1,21 @@
 package io.github.melangad.spring.config.server;
 
+import java.util.List;
+
 import io.github.melangad.spring.config.server.model.ClientFeedback;
 
 public interface ClientFeedbackHandler {
 	
 	public void onClientFeedback(ClientFeedback clientFeedback);
 
+	/**
+	 * Handle a batch of client feedback in the order it was received. Override
+	 * to process feedback in bulk.
+	 * 
+	 * @param clientFeedbacks are the received feedback
+	 */
+	public default void onClientFeedbacks(List<ClientFeedback> clientFeedbacks) {
+		clientFeedbacks.forEach(this::onClientFeedback);
+	}
+
 }
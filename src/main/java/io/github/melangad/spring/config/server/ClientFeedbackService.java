@@ -0,0 +1,179 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import io.github.melangad.spring.config.server.cache.LabelIndex;
+import io.github.melangad.spring.config.server.dispatch.BatchDispatcher;
+import io.github.melangad.spring.config.server.model.ClientFeedback;
+import io.github.melangad.spring.config.server.model.ConfigFleetDAO;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Client Feedback Service</h1> Takes client feedback off the request
+ * thread through a bounded queue. Queued feedback is applied in batches to an
+ * in-memory index of the latest version reported by each client of a label,
+ * and handed to all {@link ClientFeedbackHandler} beans. Feedback on unknown
+ * labels is rejected. Clients which have not reported within the expiry are
+ * left out and removed from the index, together with labels left without
+ * clients.
+ * 
+ * @author melanga
+ *
+ */
+
+@Service
+@Slf4j
+public class ClientFeedbackService {
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@Autowired
+	private LabelIndex labelIndex;
+
+	@Autowired(required = false)
+	private List<ClientFeedbackHandler> clientFeedbackHandlers = Collections.emptyList();
+
+	private BatchDispatcher<ClientFeedback> dispatcher;
+
+	private final ConcurrentMap<String, ConcurrentMap<String, ClientState>> clientIndex = new ConcurrentHashMap<>();
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	private final LongAdder handlerFailureCount = new LongAdder();
+
+	private long lastSweepMilli = System.currentTimeMillis();
+
+	@PostConstruct
+	public void init() {
+		final ConfigServerProperties.Feedback feedback = this.properties.getFeedback();
+		this.dispatcher = new BatchDispatcher<>("config-feedback-dispatch", feedback.getQueueSize(),
+				feedback.getBatchSize(), feedback.getOverflowPolicy(), this::apply);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		this.dispatcher.shutdown(this.properties.getFeedback().getShutdownTimeout().toMillis());
+	}
+
+	/**
+	 * Queue client feedback
+	 * 
+	 * @param clientFeedback is the reported client state
+	 * @return false if the feedback is invalid or could not be queued
+	 * @throws InvalidLabelException if the label does not exist
+	 */
+	public boolean accept(final ClientFeedback clientFeedback) throws InvalidLabelException {
+		if (null == clientFeedback || null == clientFeedback.getLabel() || null == clientFeedback.getClientId()) {
+			this.rejectedCount.increment();
+			return false;
+		}
+		if (!this.labelIndex.contains(clientFeedback.getLabel())) {
+			this.rejectedCount.increment();
+			throw new InvalidLabelException();
+		}
+
+		return this.dispatcher.dispatch(clientFeedback);
+	}
+
+	/**
+	 * Count the clients of a label per reported version
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @return number of clients per version, without expired clients
+	 */
+	public ConfigFleetDAO getFleet(final String label) {
+		final ConfigFleetDAO fleet = new ConfigFleetDAO();
+		fleet.setLabel(label);
+
+		final Map<String, ClientState> clients = this.clientIndex.get(label);
+		if (null == clients) {
+			return fleet;
+		}
+
+		final long expiredBefore = System.currentTimeMillis() - this.properties.getFeedback().getExpiry().toMillis();
+		clients.values().forEach(c -> {
+			if (c.receivedMilli >= expiredBefore) {
+				fleet.getVersionCounts().merge(c.clientVersion, 1L, Long::sum);
+				fleet.setClientCount(fleet.getClientCount() + 1);
+			}
+		});
+
+		return fleet;
+	}
+
+	public int getQueueDepth() {
+		return this.dispatcher.getQueueDepth();
+	}
+
+	public long getProcessedCount() {
+		return this.dispatcher.getDispatchedCount();
+	}
+
+	public long getDroppedCount() {
+		return this.dispatcher.getDroppedCount();
+	}
+
+	public long getRejectedCount() {
+		return this.rejectedCount.sum();
+	}
+
+	public long getHandlerFailureCount() {
+		return this.handlerFailureCount.sum();
+	}
+
+	public int getClientCount() {
+		return this.clientIndex.values().stream().mapToInt(Map::size).sum();
+	}
+
+	private void apply(final List<ClientFeedback> clientFeedbacks) {
+		final long now = System.currentTimeMillis();
+
+		clientFeedbacks.forEach(f -> this.clientIndex.computeIfAbsent(f.getLabel(), l -> new ConcurrentHashMap<>())
+				.put(f.getClientId(), new ClientState(f.getClientVersion(), now)));
+
+		for (ClientFeedbackHandler handler : this.clientFeedbackHandlers) {
+			try {
+				handler.onClientFeedbacks(clientFeedbacks);
+			} catch (RuntimeException e) {
+				this.handlerFailureCount.increment();
+				log.error("Client feedback handler " + handler.getClass().getName() + " failed", e);
+			}
+		}
+
+		// Runs on the dispatch thread only
+		final long expiry = this.properties.getFeedback().getExpiry().toMillis();
+		if (now - this.lastSweepMilli > expiry / 2) {
+			this.lastSweepMilli = now;
+			this.clientIndex.forEach((label, clients) -> {
+				clients.values().removeIf(c -> c.receivedMilli < now - expiry);
+				// Feedback is applied on this thread only, so an empty map stays empty
+				this.clientIndex.remove(label, Collections.emptyMap());
+			});
+		}
+	}
+
+	private static final class ClientState {
+
+		private final int clientVersion;
+
+		private final long receivedMilli;
+
+		private ClientState(final int clientVersion, final long receivedMilli) {
+			this.clientVersion = clientVersion;
+			this.receivedMilli = receivedMilli;
+		}
+	}
+
+}
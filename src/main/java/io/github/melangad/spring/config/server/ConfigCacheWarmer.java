@@ -0,0 +1,217 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.entity.Config;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Cache Warmer</h1> Loads all labels into the config cache once the
+ * application is ready, so that the first wave of client requests after a
+ * restart does not hit the database at once. Labels are read page by page on
+ * one thread while earlier pages are parsed and serialized in parallel. At most
+ * as many labels as the cache holds are loaded.
+ *
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.warmup", name = "enabled", havingValue = "true")
+@Slf4j
+public class ConfigCacheWarmer {
+
+	// Rough object sizes of a 64 bit JVM with compressed references
+	private static final int ENTRY_OVERHEAD_BYTES = 32;
+
+	private static final int STRING_OVERHEAD_BYTES = 40;
+
+	@Autowired
+	private ConfigRepository configRepository;
+
+	@Autowired
+	private ConfigService configService;
+
+	@Autowired
+	private ConfigCache configCache;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private final AtomicInteger labelCount = new AtomicInteger();
+
+	private final AtomicInteger failedPageCount = new AtomicInteger();
+
+	private final AtomicLong serializedBytes = new AtomicLong();
+
+	private final AtomicLong estimatedHeapBytes = new AtomicLong();
+
+	private volatile long durationMillis = 0;
+
+	private volatile boolean complete = false;
+
+	private volatile Thread warmupThread;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		final Thread thread = new Thread(this::warmUp, "config-warmup");
+		thread.setDaemon(true);
+		this.warmupThread = thread;
+		thread.start();
+	}
+
+	@PreDestroy
+	public void destroy() {
+		final Thread thread = this.warmupThread;
+		if (null != thread) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Load all labels into the config cache. Labels failing to load are left to
+	 * load on demand
+	 */
+	public void warmUp() {
+		if (!this.configCache.isEnabled()) {
+			log.info("Config cache is disabled, skipping warm up");
+			this.complete = true;
+			return;
+		}
+
+		final ConfigServerProperties.Warmup warmup = this.properties.getWarmup();
+		final int threads = Math.max(1, warmup.getThreads());
+		final int limit = this.properties.getCache().getMaxSize();
+		final long start = System.nanoTime();
+
+		final AtomicInteger count = new AtomicInteger();
+		final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "config-warmup-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		// Bounds the fetched pages waiting to be parsed
+		final Semaphore pendingPages = new Semaphore(threads * 2);
+
+		try {
+			int submitted = 0;
+			Page<Config> page = null;
+			do {
+				page = this.configRepository
+						.findAll(PageRequest.of(null == page ? 0 : page.getNumber() + 1, warmup.getPageSize(),
+								Sort.by("id")));
+
+				List<Config> configs = page.getContent();
+				if (submitted + configs.size() > limit) {
+					configs = configs.subList(0, limit - submitted);
+					log.warn("Config cache holds " + limit + " labels, the remaining labels load on demand");
+				}
+				submitted += configs.size();
+
+				final List<Config> pageConfigs = configs;
+				pendingPages.acquire();
+				executor.execute(() -> {
+					try {
+						this.onLoaded(this.configService.preloadConfigs(pageConfigs));
+					} catch (RuntimeException e) {
+						this.failedPageCount.incrementAndGet();
+						log.error("Unable to warm up labels", e);
+					} finally {
+						pendingPages.release();
+					}
+				});
+			} while (page.hasNext() && submitted < limit);
+
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			return;
+		} catch (RuntimeException e) {
+			executor.shutdownNow();
+			log.error("Config cache warm up stopped", e);
+		}
+
+		this.durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		this.complete = true;
+
+		log.info("Warmed up " + this.labelCount.get() + " labels in " + this.durationMillis + " ms, "
+				+ this.serializedBytes.get() + " bytes serialized, about " + this.estimatedHeapBytes.get()
+				+ " bytes in memory");
+	}
+
+	public boolean isComplete() {
+		return this.complete;
+	}
+
+	public int getLabelCount() {
+		return this.labelCount.get();
+	}
+
+	public int getFailedPageCount() {
+		return this.failedPageCount.get();
+	}
+
+	public long getDurationMillis() {
+		return this.durationMillis;
+	}
+
+	public long getSerializedBytes() {
+		return this.serializedBytes.get();
+	}
+
+	/**
+	 * Estimated heap used by the parsed entries and serialized bodies of the
+	 * warmed labels, without the compressed bodies built on demand
+	 *
+	 * @return estimated bytes
+	 */
+	public long getEstimatedHeapBytes() {
+		return this.estimatedHeapBytes.get();
+	}
+
+	private void onLoaded(final Collection<CachedConfig> configs) {
+		configs.forEach(config -> {
+			this.labelCount.incrementAndGet();
+			this.serializedBytes.addAndGet(config.getJsonBody().length);
+			this.estimatedHeapBytes.addAndGet(estimateHeapBytes(config));
+		});
+	}
+
+	private static long estimateHeapBytes(final CachedConfig config) {
+		long bytes = config.getJsonBody().length;
+		for (ConfigMetaDAO meta : config.getConfigDetail().getConfigData()) {
+			bytes += ENTRY_OVERHEAD_BYTES + stringBytes(meta.getKey()) + stringBytes(meta.getValue())
+					+ stringBytes(meta.getDescription());
+		}
+		return bytes;
+	}
+
+	private static long stringBytes(final String value) {
+		return null == value ? 0 : STRING_OVERHEAD_BYTES + 2L * value.length();
+	}
+
+}
@@ -0,0 +1,9 @@
+package io.github.melangad.spring.config.server;
+
+import io.github.melangad.spring.config.server.model.ConfigChange;
+
+public interface ConfigChangeListener {
+
+	public void onConfigChange(ConfigChange configChange);
+
+}
@@ -0,0 +1,129 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.cache.LabelHierarchy;
+import io.github.melangad.spring.config.server.cache.LabelIndex;
+import io.github.melangad.spring.config.server.model.ConfigChange;
+import io.github.melangad.spring.config.server.snapshot.ConfigSnapshotService;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Change Notifier</h1> Applies configuration version changes to the
+ * local cache, long polling watchers and push subscribers, including the push
+ * subscribers of labels inheriting from the changed label. Changes committed on
+ * this node are also handed to the configured {@link ConfigChangePropagator}
+ * and changes received from other nodes are applied once per version.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@Slf4j
+public class ConfigChangeNotifier implements ConfigChangeListener {
+
+	@Autowired
+	private ConfigCache configCache;
+
+	@Autowired
+	private LabelIndex labelIndex;
+
+	@Autowired
+	private LabelHierarchy labelHierarchy;
+
+	@Autowired
+	private ConfigWatchService configWatchService;
+
+	@Autowired
+	private List<ConfigPushChannel> configPushChannels;
+
+	@Autowired(required = false)
+	private ConfigChangePropagator configChangePropagator;
+
+	@Autowired(required = false)
+	private ConfigSnapshotService configSnapshotService;
+
+	private final ConcurrentMap<String, Integer> knownVersionMap = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		if (null != this.configChangePropagator) {
+			this.configChangePropagator.subscribe(this);
+		}
+	}
+
+	/**
+	 * Apply a change committed on this node and publish it to the other nodes
+	 * 
+	 * @param configChange is the committed change
+	 */
+	public void onLocalChange(final ConfigChange configChange) {
+		this.onConfigChange(configChange);
+
+		if (null != this.configChangePropagator) {
+			this.configChangePropagator.publish(configChange);
+		}
+	}
+
+	/**
+	 * Apply a change unless the same or a newer version has been applied already
+	 */
+	@Override
+	public void onConfigChange(final ConfigChange configChange) {
+		final String label = configChange.getLabel();
+		final int version = configChange.getConfigVersion();
+
+		if (!this.advanceVersion(label, version)) {
+			return;
+		}
+
+		// Stale entries must go even if notifying fails, since the version will
+		// not be applied again
+		this.configCache.evict(label);
+		this.labelIndex.add(label);
+
+		try {
+			this.labelHierarchy.update(label, configChange.getParentLabel());
+			if (null != this.configSnapshotService) {
+				this.configSnapshotService.onConfigChange(label, version);
+			}
+			this.configWatchService.release(label, version, configChange.getUpdateTime());
+			this.configPushChannels
+					.forEach(channel -> channel.doNotify(label, label, version, configChange.getUpdateTime()));
+
+			// Labels inheriting from the label resolve differently now
+			for (String dependent : this.labelHierarchy.getDescendants(label)) {
+				this.configCache.evictResolved(dependent);
+				this.configPushChannels.forEach(
+						channel -> channel.doNotify(dependent, label, version, configChange.getUpdateTime()));
+			}
+		} catch (RuntimeException e) {
+			log.error("Unable to apply change of label " + label + " to version " + version, e);
+		}
+	}
+
+	private boolean advanceVersion(final String label, final int version) {
+		while (true) {
+			final Integer known = this.knownVersionMap.putIfAbsent(label, version);
+			if (null == known) {
+				return true;
+			}
+			if (known >= version) {
+				return false;
+			}
+			if (this.knownVersionMap.replace(label, known, version)) {
+				return true;
+			}
+		}
+	}
+
+}
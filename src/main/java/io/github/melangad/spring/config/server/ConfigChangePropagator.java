@@ -0,0 +1,29 @@
+package io.github.melangad.spring.config.server;
+
+import io.github.melangad.spring.config.server.model.ConfigChange;
+
+/**
+ * Propagates configuration version changes between server nodes sharing the
+ * same database. Create a bean implementing this interface to plug in a custom
+ * transport.
+ * 
+ * @author melanga
+ *
+ */
+public interface ConfigChangePropagator {
+
+	/**
+	 * Publish a change committed on this node to the other nodes
+	 * 
+	 * @param configChange is the committed change
+	 */
+	public void publish(ConfigChange configChange);
+
+	/**
+	 * Register a listener for changes committed on other nodes
+	 * 
+	 * @param listener is the change listener
+	 */
+	public void subscribe(ConfigChangeListener listener);
+
+}
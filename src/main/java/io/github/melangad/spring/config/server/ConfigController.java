@@ -1,147 +1,164 @@
 package io.github.melangad.spring.config.server;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+
+import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import io.github.melangad.spring.config.server.model.ClientFeedback;
-import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
 import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
-import io.github.melangad.spring.config.server.model.ErrorDAO;
 
 @RestController
 @RequestMapping("/config")
 @CrossOrigin("*")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ConfigController {
 
 	@Autowired
-	private ConfigService configService;
+	private ConfigRequestHandler configRequestHandler;
 
 	@Autowired
 	ConfigPushService configPushService;
+
+	@Autowired
+	private ConfigWatchService configWatchService;
 	
 	@GetMapping("/")
-	public ResponseEntity<?> getLabelList() {
-		List<String> labelList = new ArrayList<String>();
-
-		labelList.addAll(this.configService.getLabelList());
-		labelList = labelList.stream().map(String::toUpperCase).collect(Collectors.toList());
-		Collections.sort(labelList);
-		
+	public ResponseEntity<?> getLabelList(@RequestParam(required = false) String prefix,
+			@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size) {
+		return this.configRequestHandler.getLabelList(prefix, page, size);
+	}
 
-		return ResponseEntity.ok(labelList);
+	@GetMapping("/_versions")
+	public ResponseEntity<?> getLabelVersions(@RequestParam(required = false) String prefix,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "100") int size) {
+		return this.configRequestHandler.getLabelVersions(prefix, page, size);
 	}
 
 	@GetMapping("/{label}")
-	public ResponseEntity<?> getConfig(@PathVariable String label) {
-		ResponseEntity<?> response = ResponseEntity.notFound().build();
+	public ResponseEntity<?> getConfig(@PathVariable String label, @RequestHeader HttpHeaders headers,
+			@RequestParam(required = false) Integer sinceVersion, @RequestParam(required = false) String prefix,
+			@RequestParam(required = false) List<String> keys) {
+		return this.configRequestHandler.getConfig(label, headers, sinceVersion, prefix, keys);
+	}
+
+	@GetMapping("/{label}/resolved")
+	public ResponseEntity<?> getResolvedConfig(@PathVariable String label, @RequestHeader HttpHeaders headers,
+			@RequestParam(required = false) String prefix, @RequestParam(required = false) List<String> keys) {
+		return this.configRequestHandler.getResolvedConfig(label, headers, prefix, keys);
+	}
 
-		Optional<ConfigDetailDAO> data = this.configService.getConfig(label);
+	@GetMapping("/{label}/watch")
+	public DeferredResult<ResponseEntity<?>> watchConfig(@PathVariable String label, @RequestParam int version) {
+		Optional<ResponseEntity<?>> answer = this.configRequestHandler.checkWatch(label, version);
 
-		if (data.isPresent()) {
-			response = ResponseEntity.ok(data.get());
-		} else {
-			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		if (answer.isPresent()) {
+			DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+			result.setResult(answer.get());
+			return result;
 		}
 
-		return response;
+		return this.configWatchService.watch(label, version);
 	}
 
-	@PostMapping("/{label}")
-	public ResponseEntity<?> createConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs) {
-		ResponseEntity<?> response = ResponseEntity.badRequest().build();
+	@GetMapping("/{label}/versions")
+	public ResponseEntity<?> getConfigVersions(@PathVariable String label,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+		return this.configRequestHandler.getConfigVersions(label, page, size);
+	}
 
-		try {
-			Optional<ConfigDetailDAO> data = this.configService.createConfig(label, configs);
-			if (data.isPresent()) {
-				response = ResponseEntity.ok(data.get());
-			}
-		} catch (LabelAlreadyExisitException e) {
-			response = ResponseEntity.badRequest().body(new ErrorDAO("Label Already Exisit"));
-		} catch (InvalidConfigException e) {
-			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Config Provided"));
-		} catch (DuplicateKeysException de) {
-			response = ResponseEntity.badRequest().body(new ErrorDAO("Duplicate Keys: " + de.getMessage()));
-		}
+	@GetMapping("/{label}/versions/{version}")
+	public ResponseEntity<?> getConfigVersion(@PathVariable String label, @PathVariable int version) {
+		return this.configRequestHandler.getConfigVersion(label, version);
+	}
 
-		return response;
+	@PostMapping("/_batch")
+	public ResponseEntity<?> getConfigs(@RequestBody List<String> labels) {
+		return this.configRequestHandler.getConfigs(labels);
 	}
 
-	@PatchMapping("/{label}")
-	public ResponseEntity<?> patchConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs) {
-		ResponseEntity<?> response = ResponseEntity.notFound().build();
+	@PostMapping("/{label}")
+	public ResponseEntity<?> createConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs) {
+		return this.configRequestHandler.createConfig(label, configs);
+	}
 
-		try {
-			ConfigDetailDAO data = this.configService.patchConfig(label, configs);
-			if (null != data) {
-				response = ResponseEntity.ok(data);
-			}
-		} catch (InvalidLabelException e) {
-			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
-		} catch (InvalidConfigException e) {
-			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Config Provided"));
-		} catch (DuplicateKeysException de) {
-			response = ResponseEntity.badRequest().body(new ErrorDAO("Duplicate Keys: " + de.getMessage()));
-		}
+	@PostMapping("/{label}/_import")
+	public ResponseEntity<?> importConfig(@PathVariable String label,
+			@RequestParam(defaultValue = "create") String mode, InputStream body) {
+		return this.configRequestHandler.importConfig(label, mode, body);
+	}
 
-		return response;
+	@PatchMapping("/{label}")
+	public ResponseEntity<?> patchConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.configRequestHandler.patchConfig(label, configs, ifMatch);
 	}
 
 	@PutMapping("/{label}")
-	public ResponseEntity<?> updateConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs) {
-		ResponseEntity<?> response = ResponseEntity.notFound().build();
-
-		try {
-			ConfigDetailDAO data = this.configService.updateConfig(label, configs);
-			if (null != data) {
-				response = ResponseEntity.ok(data);
-			}
-		} catch (InvalidLabelException e) {
-			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
-		} catch (InvalidConfigException e) {
-			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Config Provided"));
-		} catch (DuplicateKeysException de) {
-			response = ResponseEntity.badRequest().body(new ErrorDAO("Duplicate Keys: " + de.getMessage()));
-		}
-
-		return response;
+	public ResponseEntity<?> updateConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.configRequestHandler.updateConfig(label, configs, ifMatch);
 	}
 
 	@PostMapping("/feedback")
 	public ResponseEntity<?> getFeedback(@RequestBody ClientFeedback clientFeedback) {
+		return this.configRequestHandler.processFeedback(clientFeedback);
+	}
+
+	@PutMapping("/{label}/parent")
+	public ResponseEntity<?> updateParent(@PathVariable String label, @RequestParam String parent,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.configRequestHandler.setParent(label, parent, ifMatch);
+	}
 
-		this.configService.processClientFeedback(clientFeedback);
+	@DeleteMapping("/{label}/parent")
+	public ResponseEntity<?> removeParent(@PathVariable String label,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.configRequestHandler.setParent(label, null, ifMatch);
+	}
 
-		return ResponseEntity.ok().build();
+	@GetMapping("/{label}/fleet")
+	public ResponseEntity<?> getConfigFleet(@PathVariable String label) {
+		return this.configRequestHandler.getConfigFleet(label);
 	}
 
 	@GetMapping("/notification/{label}")
-	public ResponseEntity<SseEmitter> doNotify(@PathVariable String label) throws InterruptedException, IOException {
-		final SseEmitter emitter = new SseEmitter();
-
-		configPushService.addEmitter(label, emitter);
-		emitter.onCompletion(() -> {
-			configPushService.removeEmitter(label, emitter);
-			System.out.println("Removing Emitter");
+	public ResponseEntity<SseEmitter> doNotify(@PathVariable String label, HttpServletRequest request)
+			throws InterruptedException, IOException {
+		final SseEmitter emitter = configPushService.createEmitter();
+
+		// Completing the async request closes the connection of a client which
+		// stopped reading, failing the send blocked on it
+		configPushService.addEmitter(label, emitter, () -> {
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().complete();
+			}
 		});
+		emitter.onCompletion(() -> configPushService.removeEmitter(label, emitter));
 		emitter.onTimeout(() -> configPushService.removeEmitter(label, emitter));
+		emitter.onError(e -> configPushService.removeEmitter(label, emitter));
 		return new ResponseEntity<>(emitter, HttpStatus.OK);
 	}
 
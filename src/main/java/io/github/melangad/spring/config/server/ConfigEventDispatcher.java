@@ -0,0 +1,117 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.dispatch.BatchDispatcher;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.metrics.Stage;
+import io.github.melangad.spring.config.server.model.ConfigEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Event Dispatcher</h1> Delivers config events to all
+ * {@link ConfigEventHandler} beans on a dedicated thread, so that writes do
+ * not wait for the handlers. Events are delivered in order and in batches. A
+ * failing handler does not stop delivery to the other handlers.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@Slf4j
+public class ConfigEventDispatcher {
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@Autowired
+	private ConfigServerMetrics metrics;
+
+	@Autowired(required = false)
+	private List<ConfigEventHandler> configEventHandlers = Collections.emptyList();
+
+	private BatchDispatcher<ConfigEvent> dispatcher;
+
+	private final LongAdder handlerFailureCount = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		if (this.configEventHandlers.isEmpty()) {
+			return;
+		}
+
+		final ConfigServerProperties.Event event = this.properties.getEvent();
+		this.dispatcher = new BatchDispatcher<>("config-event-dispatch", event.getQueueSize(), event.getBatchSize(),
+				event.getOverflowPolicy(), this::deliver);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (null != this.dispatcher) {
+			this.dispatcher.shutdown(this.properties.getEvent().getShutdownTimeout().toMillis());
+		}
+	}
+
+	/**
+	 * Queue an event for delivery to all handlers
+	 * 
+	 * @param configEvent is the event
+	 */
+	public void dispatch(final ConfigEvent configEvent) {
+		if (null != this.dispatcher && !this.dispatcher.dispatch(configEvent)) {
+			log.warn("Event queue full, dropped event of label " + configEvent.getLabel());
+		}
+	}
+
+	public int getHandlerCount() {
+		return this.configEventHandlers.size();
+	}
+
+	public int getQueueDepth() {
+		return null == this.dispatcher ? 0 : this.dispatcher.getQueueDepth();
+	}
+
+	public long getDispatchedCount() {
+		return null == this.dispatcher ? 0 : this.dispatcher.getDispatchedCount();
+	}
+
+	public long getDroppedCount() {
+		return null == this.dispatcher ? 0 : this.dispatcher.getDroppedCount();
+	}
+
+	public long getHandlerFailureCount() {
+		return this.handlerFailureCount.sum();
+	}
+
+	public double getLastHandlerLatencyMillis() {
+		return null == this.dispatcher ? 0 : this.dispatcher.getLastConsumeMillis();
+	}
+
+	public double getAverageHandlerLatencyMillis() {
+		return null == this.dispatcher ? 0 : this.dispatcher.getAverageConsumeMillis();
+	}
+
+	private void deliver(final List<ConfigEvent> configEvents) {
+		for (ConfigEventHandler handler : this.configEventHandlers) {
+			final long start = System.nanoTime();
+			try {
+				handler.onEvents(configEvents);
+			} catch (RuntimeException e) {
+				this.handlerFailureCount.increment();
+				log.error("Config event handler " + handler.getClass().getName() + " failed", e);
+			} finally {
+				this.metrics.record(Stage.EVENT_DISPATCH, start);
+			}
+		}
+	}
+
+}
@@ -1,9 +1,21 @@
 package io.github.melangad.spring.config.server;
 
+import java.util.List;
+
 import io.github.melangad.spring.config.server.model.ConfigEvent;
 
 public interface ConfigEventHandler {
 	
 	public void onEvent(ConfigEvent configEvent);
 
+	/**
+	 * Handle a batch of events in the order they happened. Override to process
+	 * events in bulk.
+	 * 
+	 * @param configEvents are the events
+	 */
+	public default void onEvents(List<ConfigEvent> configEvents) {
+		configEvents.forEach(this::onEvent);
+	}
+
 }
@@ -0,0 +1,229 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.entity.ConfigHistory;
+import io.github.melangad.spring.config.server.entity.ConfigHistoryType;
+import io.github.melangad.spring.config.server.model.ConfigHistoryDelta;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.repository.ConfigHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config History Service</h1> Builds and reads configuration history. Most
+ * history rows only hold the key level delta which turns the next version back
+ * into the recorded version. Every checkpoint interval a full snapshot is
+ * recorded instead, so any version can be rebuilt by replaying a bounded number
+ * of deltas backwards from the nearest snapshot above it or from the current
+ * version.
+ * 
+ * @author melanga
+ *
+ */
+
+@Service
+@Slf4j
+public class ConfigHistoryService {
+
+	@Autowired
+	private ConfigHistoryRepository configHistoryRepository;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	/**
+	 * Check whether the history of a version has to be recorded as a full
+	 * snapshot
+	 * 
+	 * @param version is the version being recorded
+	 * @return true if a snapshot has to be recorded
+	 */
+	public boolean isCheckpoint(final int version) {
+		final int interval = this.properties.getHistory().getCheckpointInterval();
+		return interval <= 1 || version % interval == 0;
+	}
+
+	/**
+	 * Create a snapshot history record
+	 * 
+	 * @param label      is a unique identifier for config set
+	 * @param version    is the recorded version
+	 * @param updateTime is the update time of the recorded version
+	 * @param json       is the full JSON value of the recorded version
+	 * @return history record
+	 */
+	public ConfigHistory createSnapshot(final String label, final int version, final Date updateTime,
+			final String json) {
+		return this.convertToConfigHistory(label, version, updateTime, ConfigHistoryType.SNAPSHOT, json);
+	}
+
+	/**
+	 * Create a delta history record for a patch
+	 * 
+	 * @param label      is a unique identifier for config set
+	 * @param version    is the recorded version, before the patch
+	 * @param updateTime is the update time of the recorded version
+	 * @param replaced   is the recorded version of the patched entries which
+	 *                   existed before the patch
+	 * @param patch      is the patch
+	 * @return history record
+	 * @throws InvalidConfigException if the delta can not be serialized
+	 */
+	public ConfigHistory createPatchDelta(final String label, final int version, final Date updateTime,
+			final List<ConfigMetaDAO> replaced, final List<ConfigMetaDAO> patch) throws InvalidConfigException {
+		final Set<String> replacedKeys = replaced.stream().map(ConfigMetaDAO::getKey).collect(Collectors.toSet());
+
+		final ConfigHistoryDelta delta = new ConfigHistoryDelta();
+		delta.getUpserts().addAll(replaced);
+		patch.stream().map(ConfigMetaDAO::getKey).filter(key -> !replacedKeys.contains(key))
+				.forEach(delta.getRemovals()::add);
+
+		return this.convertToConfigHistory(label, version, updateTime, ConfigHistoryType.DELTA, this.toJson(delta));
+	}
+
+	/**
+	 * Create a delta history record for a full replace
+	 * 
+	 * @param label      is a unique identifier for config set
+	 * @param version    is the recorded version, before the replace
+	 * @param updateTime is the update time of the recorded version
+	 * @param previous   is the configuration of the recorded version
+	 * @param next       is the configuration replacing it
+	 * @return history record
+	 * @throws InvalidConfigException if the delta can not be serialized
+	 */
+	public ConfigHistory createReplaceDelta(final String label, final int version, final Date updateTime,
+			final List<ConfigMetaDAO> previous, final List<ConfigMetaDAO> next) throws InvalidConfigException {
+		final Map<String, ConfigMetaDAO> nextMap = new HashMap<>();
+		next.forEach(c -> nextMap.put(c.getKey(), c));
+
+		final ConfigHistoryDelta delta = new ConfigHistoryDelta();
+		final Map<String, ConfigMetaDAO> previousMap = new HashMap<>();
+		previous.forEach(c -> {
+			previousMap.put(c.getKey(), c);
+			final ConfigMetaDAO updated = nextMap.get(c.getKey());
+			if (null == updated || !Objects.equals(updated.getValue(), c.getValue())
+					|| !Objects.equals(updated.getDescription(), c.getDescription())) {
+				delta.getUpserts().add(c);
+			}
+		});
+		next.stream().map(ConfigMetaDAO::getKey).filter(key -> !previousMap.containsKey(key))
+				.forEach(delta.getRemovals()::add);
+
+		return this.convertToConfigHistory(label, version, updateTime, ConfigHistoryType.DELTA, this.toJson(delta));
+	}
+
+	/**
+	 * Rebuild the configuration of a past version
+	 * 
+	 * @param label          is a unique identifier for config set
+	 * @param version        is the version to rebuild
+	 * @param currentVersion is the current version of the label
+	 * @param current        supplies the current configuration of the label
+	 * @return configuration entries of the version, empty if the history of the
+	 *         version is not available
+	 */
+	public Optional<List<ConfigMetaDAO>> reconstruct(final String label, final int version, final int currentVersion,
+			final Supplier<List<ConfigMetaDAO>> current) {
+		if (version == currentVersion) {
+			return Optional.of(current.get());
+		}
+		if (version < 1 || version > currentVersion) {
+			return Optional.empty();
+		}
+
+		try {
+			final Optional<ConfigHistory> exact = this.configHistoryRepository
+					.findByLabelAndConfigVersion(label, version).stream().findFirst();
+			if (exact.isPresent() && exact.get().isSnapshot()) {
+				return Optional.of(this.readSnapshot(exact.get()));
+			}
+
+			// Replay deltas backwards from the nearest snapshot above the version or from
+			// the current version
+			final Optional<ConfigHistory> anchor = this.configHistoryRepository
+					.findSnapshotsFromVersion(label, version, ConfigHistoryType.SNAPSHOT, PageRequest.of(0, 1))
+					.stream().findFirst();
+			final int anchorVersion = anchor.isPresent() ? anchor.get().getConfigVersion() : currentVersion;
+			final List<ConfigMetaDAO> base = anchor.isPresent() ? this.readSnapshot(anchor.get()) : current.get();
+
+			final List<ConfigHistory> deltas = this.configHistoryRepository
+					.findByLabelAndConfigVersionBetweenOrderByConfigVersionDesc(label, version, anchorVersion - 1);
+			if (deltas.size() != anchorVersion - version) {
+				log.warn("Incomplete history for label " + label + " version " + version);
+				return Optional.empty();
+			}
+
+			final Map<String, ConfigMetaDAO> configMap = new LinkedHashMap<>();
+			base.forEach(c -> configMap.put(c.getKey(), c));
+			for (ConfigHistory delta : deltas) {
+				this.applyDelta(configMap, delta);
+			}
+
+			return Optional.of(new ArrayList<>(configMap.values()));
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private void applyDelta(final Map<String, ConfigMetaDAO> configMap, final ConfigHistory history)
+			throws JsonProcessingException {
+		if (history.isSnapshot()) {
+			configMap.clear();
+			this.readSnapshot(history).forEach(c -> configMap.put(c.getKey(), c));
+			return;
+		}
+
+		final ConfigHistoryDelta delta = this.mapper.readValue(history.getValue(), ConfigHistoryDelta.class);
+		delta.getRemovals().forEach(configMap::remove);
+		delta.getUpserts().forEach(c -> configMap.put(c.getKey(), c));
+	}
+
+	private List<ConfigMetaDAO> readSnapshot(final ConfigHistory history) throws JsonProcessingException {
+		return this.mapper.readValue(history.getValue(), new TypeReference<List<ConfigMetaDAO>>() {
+		});
+	}
+
+	private String toJson(final ConfigHistoryDelta delta) throws InvalidConfigException {
+		try {
+			return this.mapper.writeValueAsString(delta);
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			throw new InvalidConfigException();
+		}
+	}
+
+	private ConfigHistory convertToConfigHistory(final String label, final int version, final Date updateTime,
+			final ConfigHistoryType historyType, final String value) {
+		ConfigHistory history = new ConfigHistory();
+		history.setLabel(label);
+		history.setConfigVersion(version);
+		history.setValue(value);
+		history.setHistoryType(historyType);
+		history.setUpdateTime(updateTime);
+
+		return history;
+	}
+
+}
@@ -0,0 +1,132 @@
+package io.github.melangad.spring.config.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.model.ConfigImportDAO;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.storage.ConfigValueWriter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Import Reader</h1> Reads a JSON array of configuration entries
+ * token by token and hands every valid entry to a {@link ConfigValueWriter}.
+ * Only the current entry and the keys seen so far are held in memory. Once an
+ * invalid entry is found nothing more is written, but reading goes on to
+ * report further errors up to the given limit.
+ * 
+ * @author melanga
+ *
+ */
+
+@Slf4j
+class ConfigImportReader {
+
+	private static final int PROGRESS_INTERVAL = 10000;
+
+	private final ObjectMapper mapper;
+
+	private final int maxErrors;
+
+	ConfigImportReader(final ObjectMapper mapper, final int maxErrors) {
+		this.mapper = mapper;
+		this.maxErrors = Math.max(1, maxErrors);
+	}
+
+	/**
+	 * Read all entries from the input
+	 * 
+	 * @param label  is a unique identifier for config set
+	 * @param input  is a JSON array of configuration entries
+	 * @param writer receives valid entries while no error has been found
+	 * @return number of entries read and errors found
+	 * @throws IOException            if the input can not be read
+	 * @throws InvalidConfigException if an entry can not be stored
+	 */
+	ConfigImportDAO read(final String label, final InputStream input, final ConfigValueWriter writer)
+			throws IOException, InvalidConfigException {
+		final ConfigImportDAO result = new ConfigImportDAO();
+		result.setLabel(label);
+
+		final Set<String> keys = new HashSet<>();
+
+		try (JsonParser parser = this.mapper.getFactory().createParser(input)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				this.addError(result, "Expected a JSON array");
+				return result;
+			}
+
+			long index = 0;
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (null == token) {
+					this.addError(result, "Unexpected end of input");
+					break;
+				}
+
+				final ConfigMetaDAO meta = this.toConfigMetaDAO(result, index, this.mapper.readTree(parser));
+				if (null != meta && !keys.add(meta.getKey())) {
+					this.addError(result, "Duplicate key " + meta.getKey() + " at entry " + index);
+				} else if (null != meta && result.getErrorCount() == 0) {
+					writer.write(meta);
+					result.setEntryCount(result.getEntryCount() + 1);
+				}
+
+				if (result.getErrorCount() >= this.maxErrors) {
+					break;
+				}
+
+				if (++index % PROGRESS_INTERVAL == 0) {
+					log.info("Read " + index + " entries of label " + label);
+				}
+			}
+		} catch (JsonProcessingException e) {
+			this.addError(result, null == e.getLocation() ? "Malformed JSON"
+					: "Malformed JSON at line " + e.getLocation().getLineNr() + ", column "
+							+ e.getLocation().getColumnNr());
+		}
+
+		return result;
+	}
+
+	private ConfigMetaDAO toConfigMetaDAO(final ConfigImportDAO result, final long index, final JsonNode node) {
+		if (!node.isObject()) {
+			this.addError(result, "Expected an object at entry " + index);
+			return null;
+		}
+
+		final JsonNode key = node.get("key");
+		if (null == key || !key.isTextual() || key.asText().isEmpty()) {
+			this.addError(result, "Missing key at entry " + index);
+			return null;
+		}
+
+		final JsonNode value = node.get("value");
+		final JsonNode description = node.get("description");
+		if ((null != value && value.isContainerNode()) || (null != description && description.isContainerNode())) {
+			this.addError(result, "Invalid value of key " + key.asText() + " at entry " + index);
+			return null;
+		}
+
+		final ConfigMetaDAO meta = new ConfigMetaDAO();
+		meta.setKey(key.asText());
+		meta.setValue(null == value || value.isNull() ? null : value.asText());
+		meta.setDescription(null == description || description.isNull() ? null : description.asText());
+
+		return meta;
+	}
+
+	private void addError(final ConfigImportDAO result, final String error) {
+		result.setErrorCount(result.getErrorCount() + 1);
+		result.getErrors().add(error);
+	}
+
+}
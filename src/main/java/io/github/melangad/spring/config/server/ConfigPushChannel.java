@@ -0,0 +1,37 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Delivers configuration version changes to the push subscribers connected
+ * through one web stack. Every change is handed to all channels.
+ * 
+ * @author melanga
+ *
+ */
+public interface ConfigPushChannel {
+
+	/**
+	 * Notify all subscribers of a label with regard to configuration update of
+	 * the label or of one of its ancestors
+	 * 
+	 * @param label         is a label
+	 * @param changedLabel  is the label which changed
+	 * @param configVersion is the new configuration version of the changed label
+	 * @param updateTime    is the update time of the new configuration version
+	 */
+	public void doNotify(String label, String changedLabel, int configVersion, Date updateTime);
+
+	/**
+	 * Number of connected subscribers for each label
+	 * 
+	 * @return number of connected subscribers by label
+	 */
+	public Map<String, Integer> getSubscriberCounts();
+
+	public long getBroadcastCount();
+
+	public long getDroppedCount();
+
+}
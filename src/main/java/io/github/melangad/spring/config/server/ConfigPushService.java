@@ -1,91 +1,325 @@
 package io.github.melangad.spring.config.server;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
-import org.springframework.scheduling.annotation.Async;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.metrics.Stage;
 import io.github.melangad.spring.config.server.model.ConfigPushEvent;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * <h1>Config Push Service</h1> Push message service for configuration management.
  * Push messages are based on Server Sent Event and Config Push Service manage
- * all Server Sent Event emitters relate to specific label
+ * all Server Sent Event emitters relate to specific label. Events are sent on a
+ * bounded executor and emitters which fail or do not accept an event within the
+ * send timeout are dropped. The connection of a client not accepting an event
+ * in time is aborted, so that the blocked send fails instead of holding a send
+ * thread.
  * 
  * @author melanga
  *
  */
 
 @Service
-public class ConfigPushService {
+@Slf4j
+public class ConfigPushService implements ConfigPushChannel {
+
+	private static final String EVENT_NAME = "CONFIG-UPDATE-EVENT";
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@Autowired
+	private ConfigServerMetrics metrics;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final Map<String, Map<SseEmitter, Runnable>> clientMap = new ConcurrentHashMap<String, Map<SseEmitter, Runnable>>();
+
+	private ThreadPoolExecutor sendExecutor;
+
+	private ScheduledExecutorService timeoutScheduler;
+
+	private final LongAdder broadcastCount = new LongAdder();
+
+	private final LongAdder broadcastTimeNanos = new LongAdder();
 
-	private Map<String, List<SseEmitter>> clientMap = new ConcurrentHashMap<String, List<SseEmitter>>();
+	private final LongAdder droppedCount = new LongAdder();
+
+	private volatile long lastBroadcastNanos = 0;
+
+	@PostConstruct
+	public void init() {
+		final ConfigServerProperties.Push push = this.properties.getPush();
+
+		this.sendExecutor = new ThreadPoolExecutor(push.getSendThreads(), push.getSendThreads(), 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(push.getSendQueueSize()), threadFactory("config-push-"));
+		this.sendExecutor.allowCoreThreadTimeOut(true);
+		this.timeoutScheduler = Executors.newSingleThreadScheduledExecutor(threadFactory("config-push-timeout-"));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		this.sendExecutor.shutdownNow();
+		this.timeoutScheduler.shutdownNow();
+	}
+
+	/**
+	 * Create a Server Sent Emitter using the configured emitter timeout
+	 * 
+	 * @return Server Sent Emitter
+	 */
+	public SseEmitter createEmitter() {
+		if (null == this.properties.getPush().getEmitterTimeout()) {
+			return new SseEmitter();
+		}
+		return new SseEmitter(this.properties.getPush().getEmitterTimeout().toMillis());
+	}
 
-	
 	/**
 	 * Register a client which listen to Server Sent Emitter under given label
 	 * @param label is a label
 	 * @param emitter is a Server Sent Emitter client connection
 	 */
 	public void addEmitter(final String label, final SseEmitter emitter) {
-		List<SseEmitter> list = new CopyOnWriteArrayList<SseEmitter>();
-
-		if (null != this.clientMap.get(label)) {
-			list = this.clientMap.get(label);
-		} else {
-			this.clientMap.put(label, list);
-		}
+		this.addEmitter(label, emitter, () -> {
+		});
+	}
 
-		list.add(emitter);
+	/**
+	 * Register a client which listen to Server Sent Emitter under given label
+	 * @param label is a label
+	 * @param emitter is a Server Sent Emitter client connection
+	 * @param abort closes the client connection without waiting for a blocked send
+	 */
+	public void addEmitter(final String label, final SseEmitter emitter, final Runnable abort) {
+		this.clientMap.compute(label, (key, clients) -> {
+			final Map<SseEmitter, Runnable> target = null == clients ? this.newClients(label) : clients;
+			target.put(emitter, abort);
+			return target;
+		});
 	}
 
 	/**
 	 * De-register a client from the Push nootification service
 	 * @param label is a label
 	 * @param emitter is a Server Sent Emitter client connection
+	 * @return true if the client was registered
 	 */
-	public void removeEmitter(final String label, final SseEmitter emitter) {
-		if (!this.clientMap.get(label).isEmpty()) {
-			List<SseEmitter> list = this.clientMap.get(label);
-			list.remove(emitter);
-		}
+	public boolean removeEmitter(final String label, final SseEmitter emitter) {
+		return null != this.removeClient(label, emitter);
 	}
 
 	/**
 	 * Notify all registered clients under given label with regard to configuration update
 	 * @param label is a label
+	 * @param configVersion is the new configuration version
+	 * @param updateTime is the update time of the new configuration version
+	 */
+	public void doNotify(final String label, final int configVersion, final Date updateTime) {
+		this.doNotify(label, label, configVersion, updateTime);
+	}
+
+	/**
+	 * Notify all registered clients under given label with regard to
+	 * configuration update of the label or of one of its ancestors
+	 * @param label is a label
+	 * @param changedLabel is the label which changed
+	 * @param configVersion is the new configuration version of the changed label
+	 * @param updateTime is the update time of the new configuration version
+	 */
+	@Override
+	public void doNotify(final String label, final String changedLabel, final int configVersion,
+			final Date updateTime) {
+		final Map<SseEmitter, Runnable> clients = this.clientMap.get(label);
+		if (null == clients || clients.isEmpty()) {
+			return;
+		}
+
+		final ConfigPushEvent configEvent = new ConfigPushEvent();
+		configEvent.setLabel(changedLabel);
+		configEvent.setConfigVersion(configVersion);
+		configEvent.setUpdateTime(updateTime);
+
+		final String data;
+		try {
+			data = this.mapper.writeValueAsString(configEvent);
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			return;
+		}
+
+		final String id = changedLabel + "-" + configVersion;
+		final List<SseEmitter> targets = new ArrayList<SseEmitter>(clients.keySet());
+		final AtomicInteger pending = new AtomicInteger(targets.size());
+		final long start = System.nanoTime();
+
+		targets.forEach(emitter -> {
+			try {
+				this.sendExecutor.execute(() -> {
+					try {
+						this.send(label, emitter, id, data);
+					} finally {
+						this.onSendComplete(pending, start);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				this.drop(label, emitter);
+				this.onSendComplete(pending, start);
+			}
+		});
+	}
+
+	/**
+	 * Number of connected clients for a label
+	 * 
+	 * @param label is a label
+	 * @return number of connected clients
 	 */
-	@Async
-	public void doNotify(final String label) {
-		String id = UUID.randomUUID().toString();
-		ConfigPushEvent configEvent = new ConfigPushEvent();
-		configEvent.setConfigVersion(3);
-
-		SseEventBuilder event = SseEmitter.event().id(id).data(configEvent).name("CONFIG-UPDATE-EVENT")
-				.reconnectTime(5000);
-
-		List<SseEmitter> list = this.clientMap.get(label);
-		if (null != list) {
-			List<SseEmitter> stalelList = new CopyOnWriteArrayList<SseEmitter>();
-			list.stream().forEach(emitter -> {
-				try {
-					emitter.send(event);
-				} catch (IOException e) {
-					stalelList.add(emitter);
-				}
-			});
-
-			stalelList.stream().forEach(e -> {
-				list.remove(e);
-			});
+	public int getSubscriberCount(final String label) {
+		final Map<SseEmitter, Runnable> clients = this.clientMap.get(label);
+		return null == clients ? 0 : clients.size();
+	}
+
+	/**
+	 * Number of connected clients for each label
+	 * 
+	 * @return number of connected clients by label
+	 */
+	@Override
+	public Map<String, Integer> getSubscriberCounts() {
+		final Map<String, Integer> counts = new HashMap<String, Integer>();
+		this.clientMap.forEach((label, clients) -> counts.put(label, clients.size()));
+		return counts;
+	}
+
+	@Override
+	public long getBroadcastCount() {
+		return this.broadcastCount.sum();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return this.droppedCount.sum();
+	}
+
+	/**
+	 * Time taken by the last broadcast to reach all clients
+	 * 
+	 * @return broadcast latency in milliseconds
+	 */
+	public double getLastBroadcastLatencyMillis() {
+		return this.lastBroadcastNanos / 1_000_000.0;
+	}
+
+	/**
+	 * Average time taken by a broadcast to reach all clients
+	 * 
+	 * @return broadcast latency in milliseconds
+	 */
+	public double getAverageBroadcastLatencyMillis() {
+		final long count = this.broadcastCount.sum();
+		return count == 0 ? 0 : this.broadcastTimeNanos.sum() / 1_000_000.0 / count;
+	}
+
+	private void send(final String label, final SseEmitter emitter, final String id, final String data) {
+		// Slow clients are dropped from the label so that later broadcasts do not
+		// wait on them. The emitter itself cannot be completed here as it is still
+		// locked by the blocked send, so the connection is aborted underneath it.
+		final ScheduledFuture<?> timeout = this.timeoutScheduler.schedule(() -> this.abort(label, emitter),
+				this.properties.getPush().getSendTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		final long start = System.nanoTime();
+		try {
+			emitter.send(SseEmitter.event().id(id).name(EVENT_NAME).data(data, MediaType.APPLICATION_JSON)
+					.reconnectTime(this.properties.getPush().getReconnectTime().toMillis()));
+		} catch (IOException | IllegalStateException e) {
+			this.drop(label, emitter);
+		} finally {
+			timeout.cancel(false);
+			this.metrics.record(Stage.SSE_SEND, start);
+		}
+	}
+
+	private void drop(final String label, final SseEmitter emitter) {
+		if (this.removeEmitter(label, emitter)) {
+			this.droppedCount.increment();
+		}
+	}
+
+	private void abort(final String label, final SseEmitter emitter) {
+		final Runnable abort = this.removeClient(label, emitter);
+		if (null == abort) {
+			return;
+		}
+
+		this.droppedCount.increment();
+		try {
+			abort.run();
+		} catch (RuntimeException e) {
+			log.debug("Unable to abort push client of label " + label + ": " + e.getMessage());
+		}
+	}
+
+	private Map<SseEmitter, Runnable> newClients(final String label) {
+		this.metrics.registerLabelGauge("config.server.push.subscribers", label, this,
+				s -> s.getSubscriberCount(label));
+		return new ConcurrentHashMap<SseEmitter, Runnable>();
+	}
+
+	private Runnable removeClient(final String label, final SseEmitter emitter) {
+		final AtomicReference<Runnable> removed = new AtomicReference<Runnable>();
+		this.clientMap.computeIfPresent(label, (key, clients) -> {
+			removed.set(clients.remove(emitter));
+			return clients.isEmpty() ? null : clients;
+		});
+		return removed.get();
+	}
+
+	private void onSendComplete(final AtomicInteger pending, final long start) {
+		if (pending.decrementAndGet() == 0) {
+			final long elapsed = System.nanoTime() - start;
+			this.lastBroadcastNanos = elapsed;
+			this.broadcastTimeNanos.add(elapsed);
+			this.broadcastCount.increment();
+			this.metrics.record(Stage.SSE_BROADCAST, start);
 		}
 	}
 
+	private static ThreadFactory threadFactory(final String prefix) {
+		final AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
 }
@@ -0,0 +1,586 @@
+package io.github.melangad.spring.config.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.model.ClientFeedback;
+import io.github.melangad.spring.config.server.model.ConfigDeltaDAO;
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.model.ConfigFleetDAO;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.model.ConfigPushEvent;
+import io.github.melangad.spring.config.server.model.ConfigVersionPageDAO;
+import io.github.melangad.spring.config.server.model.ErrorDAO;
+import io.github.melangad.spring.config.server.model.ResolvedConfigDAO;
+import io.github.melangad.spring.config.server.repository.ConfigVersionView;
+
+/**
+ * <h1>Config Request Handler</h1> Answers config API requests independent of
+ * the web stack, so that the Spring MVC and the reactive controllers serve the
+ * same responses. All calls may block on the database.
+ *
+ * @author melanga
+ *
+ */
+
+@Component
+public class ConfigRequestHandler {
+
+	private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+	@Autowired
+	private ConfigService configService;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@Autowired
+	private ConfigServerMetrics metrics;
+
+	/**
+	 * List labels, all of them or a page of labels starting with a prefix
+	 */
+	public ResponseEntity<?> getLabelList(final String prefix, final Integer page, final Integer size) {
+		List<String> labelList;
+
+		if (null == prefix && null == page && null == size) {
+			labelList = this.configService.getLabelList();
+		} else {
+			labelList = this.configService.getLabelList(prefix, null == page ? 0 : Math.max(0, page),
+					null == size ? Integer.MAX_VALUE : Math.max(1, size));
+		}
+
+		// The label index is already sorted by the upper case label
+		labelList = labelList.stream().map(String::toUpperCase).collect(Collectors.toList());
+
+		return ResponseEntity.ok(labelList);
+	}
+
+	/**
+	 * List labels with their current versions
+	 */
+	public ResponseEntity<?> getLabelVersions(final String prefix, final int page, final int size) {
+		return ResponseEntity.ok(
+				this.configService.getLabelVersions(prefix, Math.max(0, page), Math.min(Math.max(1, size), 1000)));
+	}
+
+	/**
+	 * Answer with the configuration of a label, the changes since a version, or
+	 * Not Modified when the client is up to date
+	 */
+	public ResponseEntity<?> getConfig(final String label, final HttpHeaders headers, final Integer sinceVersion,
+			final String prefix, final List<String> keys) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		if (null != sinceVersion) {
+			return this.getConfigDelta(label, sinceVersion);
+		}
+
+		if (!headers.getIfNoneMatch().isEmpty() || headers.getIfModifiedSince() != -1) {
+			Optional<ConfigVersionView> version = this.configService.getConfigVersion(label);
+			if (version.isPresent()) {
+				String eTag = this.configETag(version.get().getConfigVersion());
+				long lastModified = this.lastModified(version.get().getUpdateTime());
+				String matched = this.notModifiedETag(headers, this.representationETags(eTag, prefix, keys),
+						lastModified);
+				if (null != matched) {
+					return this.toNotModifiedResponse(matched, lastModified);
+				}
+			}
+		}
+
+		Optional<CachedConfig> data = this.configService.getCachedConfig(label);
+
+		if (data.isPresent() && (null != prefix || null != keys)) {
+			response = this.toFilteredResponse(data.get(),
+					this.filteredETag(this.configETag(data.get().getVersion()), prefix, keys), prefix, keys);
+		} else if (data.isPresent()) {
+			response = this.toConfigResponse(data.get(), headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+		} else {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Answer with the configuration of a label merged with its ancestors
+	 */
+	public ResponseEntity<?> getResolvedConfig(final String label, final HttpHeaders headers, final String prefix,
+			final List<String> keys) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		Optional<CachedConfig> data = this.configService.getResolvedConfig(label);
+
+		if (data.isPresent()) {
+			String eTag = this.resolvedETag((ResolvedConfigDAO) data.get().getConfigDetail());
+			long lastModified = this.lastModified(data.get().getUpdateTime());
+			String matched = this.notModifiedETag(headers, this.representationETags(eTag, prefix, keys),
+					lastModified);
+			if (null != matched) {
+				return this.toNotModifiedResponse(matched, lastModified);
+			}
+			if (null != prefix || null != keys) {
+				response = this.toFilteredResponse(data.get(), this.filteredETag(eTag, prefix, keys), prefix, keys);
+			} else {
+				response = this.toConfigResponse(data.get(), eTag, headers.getFirst(HttpHeaders.ACCEPT_ENCODING));
+			}
+		} else {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		}
+
+		return response;
+	}
+
+	private ResponseEntity<?> getConfigDelta(final String label, final int sinceVersion) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		try {
+			Optional<ConfigDeltaDAO> data = this.configService.getConfigDelta(label, sinceVersion);
+			if (data.isPresent()) {
+				this.metrics.countResponse("delta");
+				response = ResponseEntity.ok(data.get());
+			} else {
+				response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+			}
+		} catch (InvalidVersionException e) {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Version Not Found"));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Answer a watch request right away when the label does not exist or has
+	 * moved past the version known by the client
+	 * 
+	 * @param label   is a label
+	 * @param version is the version known by the client
+	 * @return the answer or empty when the watch has to wait for a change
+	 */
+	public Optional<ResponseEntity<?>> checkWatch(final String label, final int version) {
+		Optional<ConfigVersionView> current = this.configService.getConfigVersion(label);
+
+		if (!current.isPresent()) {
+			return Optional.of(ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found")));
+		}
+		if (current.get().getConfigVersion() > version) {
+			ConfigPushEvent event = new ConfigPushEvent();
+			event.setConfigVersion(current.get().getConfigVersion());
+			event.setUpdateTime(current.get().getUpdateTime());
+			return Optional.of(ResponseEntity.ok(event));
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Answer with a page of past versions of a label
+	 */
+	public ResponseEntity<?> getConfigVersions(final String label, final int page, final int size) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		Optional<ConfigVersionPageDAO> data = this.configService.getConfigVersions(label, Math.max(0, page),
+				Math.min(Math.max(1, size), 100));
+
+		if (data.isPresent()) {
+			response = ResponseEntity.ok(data.get());
+		} else {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Answer with a past version of a label
+	 */
+	public ResponseEntity<?> getConfigVersion(final String label, final int version) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		try {
+			Optional<ConfigDetailDAO> data = this.configService.getConfig(label, version);
+			if (data.isPresent()) {
+				// Versions never change once written
+				this.metrics.countResponse("version");
+				response = ResponseEntity.ok().eTag(this.configETag(version))
+						.cacheControl(CacheControl.maxAge(1, TimeUnit.DAYS)).body(data.get());
+			} else {
+				response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+			}
+		} catch (InvalidVersionException e) {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Version Not Found"));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Answer with the configurations of several labels
+	 */
+	public ResponseEntity<?> getConfigs(final List<String> labels) {
+		return ResponseEntity.ok(this.configService.getConfigs(labels));
+	}
+
+	/**
+	 * Create a label
+	 */
+	public ResponseEntity<?> createConfig(final String label, final List<ConfigMetaDAO> configs) {
+		ResponseEntity<?> response = ResponseEntity.badRequest().build();
+
+		try {
+			Optional<ConfigDetailDAO> data = this.configService.createConfig(label, configs);
+			if (data.isPresent()) {
+				response = ResponseEntity.ok(data.get());
+			}
+		} catch (LabelAlreadyExisitException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Label Already Exisit"));
+		} catch (InvalidConfigException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Config Provided"));
+		} catch (DuplicateKeysException de) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Duplicate Keys: " + de.getMessage()));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Create or replace a label from a streamed JSON array of entries
+	 */
+	public ResponseEntity<?> importConfig(final String label, final String mode, final InputStream body) {
+		ResponseEntity<?> response = ResponseEntity.badRequest().build();
+
+		if (!"create".equals(mode) && !"replace".equals(mode)) {
+			return ResponseEntity.badRequest().body(new ErrorDAO("Invalid Import Mode"));
+		}
+
+		try {
+			response = ResponseEntity.ok(this.configService.importConfig(label, body, "replace".equals(mode)));
+		} catch (LabelAlreadyExisitException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Label Already Exisit"));
+		} catch (InvalidLabelException e) {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		} catch (InvalidConfigException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Config Provided"));
+		} catch (InvalidImportException e) {
+			response = ResponseEntity.badRequest().body(e.getImportResult());
+		} catch (IOException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Unable to read request body"));
+		} catch (OptimisticLockingFailureException e) {
+			response = ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorDAO("Concurrent Update Conflict"));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Patch a label, optionally only if it is still at the version of the If-Match
+	 * header
+	 */
+	public ResponseEntity<?> patchConfig(final String label, final List<ConfigMetaDAO> configs,
+			final String ifMatch) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		try {
+			ConfigDetailDAO data = this.configService.patchConfig(label, configs, this.expectedVersion(ifMatch));
+			if (null != data) {
+				response = ResponseEntity.ok().eTag(this.configETag(data.getVersion())).body(data);
+			}
+		} catch (InvalidLabelException e) {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		} catch (InvalidConfigException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Config Provided"));
+		} catch (VersionMismatchException e) {
+			response = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(new ErrorDAO("Version Mismatch"));
+		} catch (ConfigConflictException e) {
+			response = ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorDAO("Concurrent Update Conflict"));
+		} catch (WriteTimeoutException e) {
+			response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ErrorDAO("Write Not Confirmed"));
+		} catch (DuplicateKeysException de) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Duplicate Keys: " + de.getMessage()));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Replace a label, optionally only if it is still at the version of the
+	 * If-Match header
+	 */
+	public ResponseEntity<?> updateConfig(final String label, final List<ConfigMetaDAO> configs,
+			final String ifMatch) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		try {
+			ConfigDetailDAO data = this.configService.updateConfig(label, configs, this.expectedVersion(ifMatch));
+			if (null != data) {
+				response = ResponseEntity.ok().eTag(this.configETag(data.getVersion())).body(data);
+			}
+		} catch (InvalidLabelException e) {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		} catch (InvalidConfigException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Config Provided"));
+		} catch (VersionMismatchException e) {
+			response = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(new ErrorDAO("Version Mismatch"));
+		} catch (ConfigConflictException e) {
+			response = ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorDAO("Concurrent Update Conflict"));
+		} catch (DuplicateKeysException de) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Duplicate Keys: " + de.getMessage()));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Accept feedback of a client
+	 */
+	public ResponseEntity<?> processFeedback(final ClientFeedback clientFeedback) {
+
+		try {
+			if (!this.configService.processClientFeedback(clientFeedback)) {
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.body(new ErrorDAO("Feedback Not Accepted"));
+			}
+		} catch (InvalidLabelException e) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		}
+
+		return ResponseEntity.ok().build();
+	}
+
+	/**
+	 * Set or remove the parent of a label
+	 */
+	public ResponseEntity<?> setParent(final String label, final String parent, final String ifMatch) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		try {
+			ConfigDetailDAO data = this.configService.updateParent(label, parent, this.expectedVersion(ifMatch));
+			if (null != data) {
+				response = ResponseEntity.ok().eTag(this.configETag(data.getVersion())).body(data);
+			}
+		} catch (InvalidLabelException e) {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		} catch (InvalidParentException e) {
+			response = ResponseEntity.badRequest().body(new ErrorDAO("Invalid Parent Label"));
+		} catch (InvalidConfigException e) {
+			response = ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body(new ErrorDAO("Unable to read stored config"));
+		} catch (VersionMismatchException e) {
+			response = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(new ErrorDAO("Version Mismatch"));
+		} catch (ConfigConflictException e) {
+			response = ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorDAO("Concurrent Update Conflict"));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Answer with the versions reported by the clients of a label
+	 */
+	public ResponseEntity<?> getConfigFleet(final String label) {
+		ResponseEntity<?> response = ResponseEntity.notFound().build();
+
+		Optional<ConfigFleetDAO> data = this.configService.getConfigFleet(label);
+
+		if (data.isPresent()) {
+			response = ResponseEntity.ok(data.get());
+		} else {
+			response = ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ErrorDAO("Label Not Found"));
+		}
+
+		return response;
+	}
+
+	/**
+	 * Answer with the entries matching the prefix or keys only. The entries are
+	 * looked up in the cached configuration without copying all of them
+	 */
+	private ResponseEntity<ConfigDetailDAO> toFilteredResponse(final CachedConfig config, final String eTag,
+			final String prefix, final List<String> keys) {
+		final ConfigDetailDAO detail = config.getConfigDetail();
+		final ConfigDetailDAO filtered;
+		if (detail instanceof ResolvedConfigDAO) {
+			final ResolvedConfigDAO resolved = new ResolvedConfigDAO();
+			resolved.setLayers(((ResolvedConfigDAO) detail).getLayers());
+			filtered = resolved;
+		} else {
+			filtered = new ConfigDetailDAO();
+		}
+		filtered.setVersion(detail.getVersion());
+		filtered.setConfigData(config.find(prefix, keys));
+
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(eTag);
+		long lastModified = this.lastModified(config.getUpdateTime());
+		if (lastModified != -1) {
+			builder.lastModified(lastModified);
+		}
+
+		this.metrics.countResponse("filtered");
+		return builder.body(filtered);
+	}
+
+	private ResponseEntity<byte[]> toConfigResponse(final CachedConfig config, final String acceptEncoding) {
+		return this.toConfigResponse(config, this.configETag(config.getVersion()), acceptEncoding);
+	}
+
+	private ResponseEntity<byte[]> toConfigResponse(final CachedConfig config, final String eTag,
+			final String acceptEncoding) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+		long lastModified = this.lastModified(config.getUpdateTime());
+		if (lastModified != -1) {
+			builder.lastModified(lastModified);
+		}
+
+		if (this.properties.getResponse().isCompression()
+				&& config.getJsonBody().length >= this.properties.getResponse().getCompressionMinSize()
+				&& this.acceptsGzip(acceptEncoding)) {
+			this.metrics.countResponse("gzip");
+			return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").eTag(this.gzipETag(eTag))
+					.body(config.getGzipBody());
+		}
+
+		this.metrics.countResponse("full");
+		return builder.eTag(eTag).body(config.getJsonBody());
+	}
+
+	private ResponseEntity<?> toNotModifiedResponse(final String eTag, final long lastModified) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag);
+		if (lastModified != -1) {
+			builder.lastModified(lastModified);
+		}
+		this.metrics.countResponse("not_modified");
+		return builder.build();
+	}
+
+	private String configETag(final int version) {
+		return "\"" + version + "\"";
+	}
+
+	/**
+	 * The gzip encoded body differs from the plain one byte by byte, so it needs
+	 * a strong tag of its own
+	 */
+	private String gzipETag(final String eTag) {
+		return eTag.substring(0, eTag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+	}
+
+	/**
+	 * Entries matching a prefix or keys are a different representation for each
+	 * filter, tagged by the version and a hash of the filter
+	 */
+	private String filteredETag(final String eTag, final String prefix, final List<String> keys) {
+		return eTag.substring(0, eTag.length() - 1) + "-" + Integer.toHexString(Objects.hash(prefix, keys)) + "\"";
+	}
+
+	/**
+	 * Tags a request may have received for the current version. Whether the full
+	 * configuration is compressed depends on its size, so both of its tags are
+	 * accepted
+	 */
+	private List<String> representationETags(final String eTag, final String prefix, final List<String> keys) {
+		if (null != prefix || null != keys) {
+			return Collections.singletonList(this.filteredETag(eTag, prefix, keys));
+		}
+		return Arrays.asList(eTag, this.gzipETag(eTag));
+	}
+
+	/**
+	 * The version of a label determines its parent, so the versions of all
+	 * layers identify a resolved configuration
+	 */
+	private String resolvedETag(final ResolvedConfigDAO resolved) {
+		return resolved.getLayers().stream().map(layer -> String.valueOf(layer.getVersion()))
+				.collect(Collectors.joining(".", "\"", "\""));
+	}
+
+	/**
+	 * Version required by an If-Match header. Tags which are not a config version
+	 * can never match
+	 */
+	private Integer expectedVersion(final String ifMatch) {
+		if (null == ifMatch || "*".equals(ifMatch.trim())) {
+			return null;
+		}
+
+		String tag = ifMatch.trim();
+		tag = tag.startsWith("W/") ? tag.substring(2) : tag;
+		tag = tag.startsWith("\"") && tag.endsWith("\"") && tag.length() > 1 ? tag.substring(1, tag.length() - 1) : tag;
+		tag = tag.endsWith(GZIP_ETAG_SUFFIX) ? tag.substring(0, tag.length() - GZIP_ETAG_SUFFIX.length()) : tag;
+
+		try {
+			return Integer.valueOf(tag);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private long lastModified(final Date updateTime) {
+		return null == updateTime ? -1 : updateTime.getTime() / 1000 * 1000;
+	}
+
+	/**
+	 * Tag to answer Not Modified with, or null when the client has to receive
+	 * the configuration
+	 */
+	private String notModifiedETag(final HttpHeaders headers, final List<String> eTags, final long lastModified) {
+		List<String> ifNoneMatch = headers.getIfNoneMatch();
+		if (!ifNoneMatch.isEmpty()) {
+			for (String tag : ifNoneMatch) {
+				String strongTag = tag.startsWith("W/") ? tag.substring(2) : tag;
+				if ("*".equals(tag)) {
+					return eTags.get(0);
+				} else if (eTags.contains(strongTag)) {
+					return strongTag;
+				}
+			}
+			return null;
+		}
+
+		long ifModifiedSince = headers.getIfModifiedSince();
+		return lastModified != -1 && ifModifiedSince != -1 && lastModified <= ifModifiedSince ? eTags.get(0) : null;
+	}
+
+	private boolean acceptsGzip(final String acceptEncoding) {
+		if (null == acceptEncoding) {
+			return false;
+		}
+
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			String name = parts[0].trim();
+			if ("gzip".equalsIgnoreCase(name) || "*".equals(name)) {
+				for (int i = 1; i < parts.length; i++) {
+					if (parts[i].trim().matches("q\\s*=\\s*0(\\.0{0,3})?")) {
+						return false;
+					}
+				}
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+}
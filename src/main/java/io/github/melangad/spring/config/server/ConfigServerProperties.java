@@ -0,0 +1,429 @@
+package io.github.melangad.spring.config.server;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.dispatch.OverflowPolicy;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * <h1>Config Server Properties</h1> Tuning properties for the config server.
+ * All properties are bound under the <code>config.server</code> prefix.
+ *
+ * @author melanga
+ *
+ */
+
+@Component
+@ConfigurationProperties(prefix = "config.server")
+@Getter
+@Setter
+public class ConfigServerProperties {
+
+	private final Cache cache = new Cache();
+
+	private final Response response = new Response();
+
+	private final Watch watch = new Watch();
+
+	private final Push push = new Push();
+
+	private final Propagation propagation = new Propagation();
+
+	private final Storage storage = new Storage();
+
+	private final History history = new History();
+
+	private final Write write = new Write();
+
+	private final Event event = new Event();
+
+	private final Feedback feedback = new Feedback();
+
+	private final Metrics metrics = new Metrics();
+
+	private final Layer layer = new Layer();
+
+	private final Warmup warmup = new Warmup();
+
+	private final Snapshot snapshot = new Snapshot();
+
+	private final Reactive reactive = new Reactive();
+
+	@Getter
+	@Setter
+	public static class Cache {
+
+		/**
+		 * Serve reads from the in-memory config cache
+		 */
+		private boolean enabled = true;
+
+		/**
+		 * Maximum number of labels kept in the cache
+		 */
+		private int maxSize = 1000;
+
+		/**
+		 * Time after which a cached label is reloaded from the database
+		 */
+		private Duration ttl = Duration.ofMinutes(10);
+
+		/**
+		 * Maximum number of computed version deltas kept in the cache
+		 */
+		private int deltaMaxSize = 1000;
+
+		/**
+		 * Maximum number of past versions kept in the cache
+		 */
+		private int versionMaxSize = 500;
+
+		/**
+		 * Maximum number of resolved layered configurations kept in the cache
+		 */
+		private int resolvedMaxSize = 1000;
+	}
+
+	@Getter
+	@Setter
+	public static class Response {
+
+		/**
+		 * Serve gzip compressed config bodies to clients accepting gzip
+		 */
+		private boolean compression = true;
+
+		/**
+		 * Minimum JSON body size in bytes before compression is applied
+		 */
+		private int compressionMinSize = 1024;
+	}
+
+	@Getter
+	@Setter
+	public static class Watch {
+
+		/**
+		 * Time a long polling watch request is parked before answering Not
+		 * Modified
+		 */
+		private Duration timeout = Duration.ofSeconds(30);
+	}
+
+	@Getter
+	@Setter
+	public static class Push {
+
+		/**
+		 * Server Sent Event connection timeout. Uses the servlet container default
+		 * when not set
+		 */
+		private Duration emitterTimeout;
+
+		/**
+		 * Number of threads sending Server Sent Events
+		 */
+		private int sendThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+		/**
+		 * Maximum number of pending event sends. Clients which can not be queued
+		 * are dropped
+		 */
+		private int sendQueueSize = 50000;
+
+		/**
+		 * Time a client has to accept an event before it is dropped
+		 */
+		private Duration sendTimeout = Duration.ofSeconds(5);
+
+		/**
+		 * Reconnect time advertised to clients
+		 */
+		private Duration reconnectTime = Duration.ofSeconds(5);
+	}
+
+	@Getter
+	@Setter
+	public static class Propagation {
+
+		/**
+		 * Change propagation between nodes. One of polling, local or none
+		 */
+		private String mode = "polling";
+
+		/**
+		 * Interval between version polls when using the polling mode
+		 */
+		private Duration pollInterval = Duration.ofSeconds(2);
+	}
+
+	@Getter
+	@Setter
+	public static class Storage {
+
+		/**
+		 * Storage of configuration entries. Either blob for a single JSON value
+		 * per label or entry for a row per key
+		 */
+		private String mode = "blob";
+
+		/**
+		 * Move labels stored as a JSON value to entry rows on startup when using
+		 * the entry mode
+		 */
+		private boolean migrateOnStartup = false;
+
+		/**
+		 * Number of entry rows written per batch by streaming imports
+		 */
+		private int importBatchSize = 500;
+
+		/**
+		 * Number of validation errors after which a streaming import stops
+		 * reading
+		 */
+		private int importMaxErrors = 100;
+	}
+
+	@Getter
+	@Setter
+	public static class History {
+
+		/**
+		 * Record a full snapshot instead of a delta for every version divisible by
+		 * this interval. One or less records snapshots only
+		 */
+		private int checkpointInterval = 20;
+	}
+
+	@Getter
+	@Setter
+	public static class Write {
+
+		/**
+		 * Number of attempts of a write which fails on a concurrent update of the
+		 * same label by another node
+		 */
+		private int maxAttempts = 3;
+
+		/**
+		 * Wait before retrying a failed write, multiplied by the attempt number
+		 */
+		private Duration retryBackOff = Duration.ofMillis(20);
+
+		/**
+		 * Number of locks serializing writes on this node. Labels sharing a lock
+		 * are written one at a time
+		 */
+		private int lockStripes = 64;
+
+		/**
+		 * Patches of the same label arriving within this window are written as a
+		 * single version. Zero disables coalescing
+		 */
+		private Duration coalesceWindow = Duration.ZERO;
+
+		/**
+		 * Number of threads writing coalesced patches
+		 */
+		private int coalesceThreads = 4;
+
+		/**
+		 * Maximum wait of a request for the write of its coalesced patch
+		 */
+		private Duration coalesceTimeout = Duration.ofSeconds(10);
+	}
+
+	@Getter
+	@Setter
+	public static class Event {
+
+		/**
+		 * Maximum number of events waiting for the event handlers
+		 */
+		private int queueSize = 10000;
+
+		/**
+		 * Maximum number of events handed to a handler at once
+		 */
+		private int batchSize = 100;
+
+		/**
+		 * What to do with new events when the queue is full
+		 */
+		private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+		/**
+		 * Time given to deliver queued events on shutdown
+		 */
+		private Duration shutdownTimeout = Duration.ofSeconds(5);
+	}
+
+	@Getter
+	@Setter
+	public static class Feedback {
+
+		/**
+		 * Maximum number of client feedback waiting to be processed
+		 */
+		private int queueSize = 100000;
+
+		/**
+		 * Maximum number of client feedback processed at once
+		 */
+		private int batchSize = 1000;
+
+		/**
+		 * What to do with new feedback when the queue is full
+		 */
+		private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+		/**
+		 * Time after which a client which stopped reporting is no longer counted
+		 */
+		private Duration expiry = Duration.ofMinutes(10);
+
+		/**
+		 * Time given to process queued feedback on shutdown
+		 */
+		private Duration shutdownTimeout = Duration.ofSeconds(5);
+
+		private final Store store = new Store();
+
+		@Getter
+		@Setter
+		public static class Store {
+
+			/**
+			 * Keep the latest feedback of every client in the CLIENT_FEEDBACK table
+			 */
+			private boolean enabled = false;
+
+			/**
+			 * Interval between writes of collected feedback
+			 */
+			private Duration flushInterval = Duration.ofSeconds(5);
+
+			/**
+			 * Number of rows read and written per statement batch
+			 */
+			private int batchSize = 500;
+
+			/**
+			 * Time after which rows of clients which stopped reporting are removed
+			 */
+			private Duration retention = Duration.ofDays(7);
+
+			/**
+			 * Interval between removals of expired rows
+			 */
+			private Duration pruneInterval = Duration.ofHours(1);
+		}
+	}
+
+	@Getter
+	@Setter
+	public static class Metrics {
+
+		/**
+		 * Labels with their own label tag on per label meters. When empty, the
+		 * first labels seen are tagged up to the maximum
+		 */
+		private Set<String> taggedLabels = new HashSet<>();
+
+		/**
+		 * Maximum number of labels with their own label tag when no labels are
+		 * configured. Other labels are tagged as other
+		 */
+		private int maxTaggedLabels = 50;
+	}
+
+	@Getter
+	@Setter
+	public static class Layer {
+
+		/**
+		 * Maximum number of labels in an inheritance chain, including the label
+		 * itself
+		 */
+		private int maxDepth = 8;
+	}
+
+	@Getter
+	@Setter
+	public static class Warmup {
+
+		/**
+		 * Load all labels into the config cache on startup. The server reports out
+		 * of service until the cache is warm
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Number of labels read from the database per query
+		 */
+		private int pageSize = 200;
+
+		/**
+		 * Number of threads parsing and serializing labels
+		 */
+		private int threads = Runtime.getRuntime().availableProcessors();
+	}
+
+	@Getter
+	@Setter
+	public static class Snapshot {
+
+		/**
+		 * Keep the latest version of every label in a local file and serve reads
+		 * from it while the database is unavailable
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Location of the snapshot file
+		 */
+		private String path = "config-snapshot.bin";
+
+		/**
+		 * Interval between comparisons of the snapshot versions with the database
+		 */
+		private Duration reconcileInterval = Duration.ofMinutes(5);
+	}
+
+	@Getter
+	@Setter
+	public static class Reactive {
+
+		/**
+		 * Maximum number of threads running blocking database calls of the
+		 * reactive endpoints
+		 */
+		private int blockingThreads = 10 * Runtime.getRuntime().availableProcessors();
+
+		/**
+		 * Maximum number of blocking calls waiting for a thread. Requests beyond
+		 * are answered with Service Unavailable
+		 */
+		private int blockingQueueSize = 100000;
+
+		/**
+		 * Interval between heartbeat comments sent to push subscribers
+		 */
+		private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+		/**
+		 * Number of events kept for a push subscriber which does not keep up. The
+		 * oldest events are dropped beyond
+		 */
+		private int subscriberBufferSize = 16;
+	}
+
+}
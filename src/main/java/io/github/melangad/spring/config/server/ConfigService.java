@@ -1,37 +1,79 @@
 package io.github.melangad.spring.config.server;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.cache.LabelHierarchy;
+import io.github.melangad.spring.config.server.cache.LabelIndex;
 import io.github.melangad.spring.config.server.entity.Config;
 import io.github.melangad.spring.config.server.entity.ConfigHistory;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.metrics.Stage;
 import io.github.melangad.spring.config.server.model.ClientFeedback;
+import io.github.melangad.spring.config.server.model.ConfigBatchDAO;
+import io.github.melangad.spring.config.server.model.ConfigChange;
+import io.github.melangad.spring.config.server.model.ConfigDeltaDAO;
 import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
 import io.github.melangad.spring.config.server.model.ConfigEvent;
 import io.github.melangad.spring.config.server.model.ConfigEventType;
+import io.github.melangad.spring.config.server.model.ConfigFleetDAO;
+import io.github.melangad.spring.config.server.model.ConfigImportDAO;
 import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.model.ConfigVersionDAO;
+import io.github.melangad.spring.config.server.model.ConfigVersionPageDAO;
+import io.github.melangad.spring.config.server.model.LabelVersionDAO;
+import io.github.melangad.spring.config.server.model.LabelVersionPageDAO;
+import io.github.melangad.spring.config.server.model.ResolvedConfigDAO;
 import io.github.melangad.spring.config.server.repository.ConfigHistoryRepository;
 import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import io.github.melangad.spring.config.server.repository.ConfigVersionView;
+import io.github.melangad.spring.config.server.snapshot.ConfigSnapshotService;
+import io.github.melangad.spring.config.server.storage.ConfigValueStore;
+import io.github.melangad.spring.config.server.storage.ConfigValueWriter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -55,45 +97,319 @@ public class ConfigService {
 	@Autowired
 	private ConfigHistoryRepository configHistoryRepository;
 
-	@Autowired(required = false)
-	private ConfigEventHandler configEventHandler;
+	@Autowired
+	private ConfigHistoryService configHistoryService;
+
+	@Autowired
+	private ConfigCache configCache;
+
+	@Autowired
+	private LabelIndex labelIndex;
+
+	@Autowired
+	private ConfigChangeNotifier configChangeNotifier;
+
+	@Autowired
+	private ConfigValueStore configValueStore;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@Autowired
+	private ConfigWriteExecutor configWriteExecutor;
+
+	@Autowired
+	private ConfigServerMetrics metrics;
+
+	@Autowired
+	private LabelHierarchy labelHierarchy;
+
+	@Autowired
+	private ConfigEventDispatcher configEventDispatcher;
+
+	@Autowired
+	private ClientFeedbackService clientFeedbackService;
 
 	@Autowired(required = false)
-	private ClientFeedbackHandler clientFeedbackHandler;
+	private ConfigSnapshotService configSnapshotService;
+
+	private ScheduledExecutorService coalesceScheduler;
+
+	private PatchCoalescer patchCoalescer;
 
 	private Comparator<ConfigMetaDAO> compareByKey = (ConfigMetaDAO o1, ConfigMetaDAO o2) -> o1.getKey()
 			.compareTo(o2.getKey());
 
+	@PostConstruct
+	public void init() {
+		final AtomicInteger count = new AtomicInteger();
+		this.coalesceScheduler = Executors.newScheduledThreadPool(
+				Math.max(1, this.properties.getWrite().getCoalesceThreads()), runnable -> {
+					Thread thread = new Thread(runnable, "config-patch-coalesce-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		this.patchCoalescer = new PatchCoalescer(this.coalesceScheduler,
+				(label, configs) -> this.write(label, () -> this.doPatchConfig(label, configs, null)));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		this.coalesceScheduler.shutdownNow();
+	}
+
 	public List<String> getLabelList() {
-		List<String> configList = new ArrayList<String>();
+		return this.labelIndex.find(null, 0, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Get a page of labels starting with the given prefix, ignoring case. Served
+	 * from the sorted label index
+	 * 
+	 * @param prefix is the label prefix, all labels when null or empty
+	 * @param page   is the zero based page number
+	 * @param size   is the page size
+	 * @return sorted labels
+	 */
+	public List<String> getLabelList(final String prefix, final int page, final int size) {
+		return this.labelIndex.find(prefix, (int) Math.min(Integer.MAX_VALUE, (long) page * size), size);
+	}
 
-		configRepository.findAll().forEach(c -> {
-			configList.add(c.getLabel());
+	/**
+	 * Get a page of label versions starting with the given prefix without
+	 * loading their configuration
+	 * 
+	 * @param prefix is the case sensitive label prefix
+	 * @param page   is the zero based page number
+	 * @param size   is the page size
+	 * @return page of label versions ordered by label
+	 */
+	public LabelVersionPageDAO getLabelVersions(final String prefix, final int page, final int size) {
+		final Page<ConfigVersionView> versions = this.configRepository
+				.findVersionsByLabelStartingWithOrderByLabel(null == prefix ? "" : prefix, PageRequest.of(page, size));
+
+		final LabelVersionPageDAO labelPage = new LabelVersionPageDAO();
+		labelPage.setPage(versions.getNumber());
+		labelPage.setSize(versions.getSize());
+		labelPage.setTotalElements(versions.getTotalElements());
+		versions.forEach(v -> {
+			final LabelVersionDAO labelVersion = new LabelVersionDAO();
+			labelVersion.setLabel(v.getLabel());
+			labelVersion.setVersion(v.getConfigVersion());
+			labelVersion.setUpdateTime(v.getUpdateTime());
+			labelPage.getLabels().add(labelVersion);
 		});
 
-		return configList;
+		return labelPage;
 	}
 
 	/**
-	 * Get Config DAO from the Database
+	 * Get Config DAO. Served from the config cache when enabled, otherwise from
+	 * the Database
 	 * 
 	 * @param label is a unique identifier for config set
 	 * @return Config details
 	 */
 	public Optional<ConfigDetailDAO> getConfig(final String label) {
+		return this.getCachedConfig(label).map(CachedConfig::getConfigDetail);
+	}
 
-		ConfigDetailDAO configDetails = null;
+	/**
+	 * Get ready to serve configuration of a label including version metadata.
+	 * Served from the snapshot file when enabled and the database is unavailable
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @return cached configuration
+	 */
+	public Optional<CachedConfig> getCachedConfig(final String label) {
+		try {
+			return Optional.ofNullable(this.configCache.get(label, this::loadConfig));
+		} catch (DataAccessException | TransactionException e) {
+			if (null == this.configSnapshotService) {
+				throw e;
+			}
+			log.warn("Serving label " + label + " from config snapshot: " + e.getMessage());
+			return this.configSnapshotService.getCachedConfig(label);
+		}
+	}
 
-		final List<Config> list = configRepository.findByLabel(label);
+	/**
+	 * Get configuration of a label merged with the configuration of its
+	 * ancestors. Keys of a label override the keys of its ancestors. The merged
+	 * configuration is cached until any of the layers changes
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @return resolved configuration with a {@link ResolvedConfigDAO} as detail
+	 */
+	public Optional<CachedConfig> getResolvedConfig(final String label) {
+		final List<CachedConfig> layers = this.getLayers(label);
+		if (layers.isEmpty()) {
+			return Optional.empty();
+		}
+
+		final String layerKey = layers.stream().map(layer -> layer.getLabel() + ":" + layer.getVersion())
+				.collect(Collectors.joining("/"));
+
+		return Optional.ofNullable(this.configCache.getResolved(label, layerKey, () -> this.resolve(layers)));
+	}
+
+	/**
+	 * Get configurations of several labels at once. Labels which are not cached
+	 * are loaded with a single query
+	 * 
+	 * @param labels are unique identifiers for config sets
+	 * @return Config details by label and the labels which do not exist
+	 */
+	public ConfigBatchDAO getConfigs(final Collection<String> labels) {
+		final Set<String> uniqueLabels = new LinkedHashSet<>(labels);
+		final Map<String, CachedConfig> cachedConfigs = this.configCache.getAll(uniqueLabels, this::loadConfigs);
+
+		final ConfigBatchDAO batch = new ConfigBatchDAO();
+		uniqueLabels.forEach(label -> {
+			final CachedConfig cachedConfig = cachedConfigs.get(label);
+			if (null != cachedConfig) {
+				batch.getConfigs().put(label, cachedConfig.getConfigDetail());
+			} else {
+				batch.getNotFound().add(label);
+			}
+		});
+
+		return batch;
+	}
+
+	/**
+	 * Get changes of a label since the given version. Added and changed entries
+	 * hold the current values and removed entries hold the values at the given
+	 * version.
+	 * 
+	 * @param label        is a unique identifier for config set
+	 * @param sinceVersion is the version known by the client
+	 * @return delta between given version and the current version
+	 * @throws InvalidVersionException if no history is available for the given
+	 *                                 version
+	 */
+	public Optional<ConfigDeltaDAO> getConfigDelta(final String label, final int sinceVersion)
+			throws InvalidVersionException {
+		final Optional<CachedConfig> current = this.getCachedConfig(label);
 
-		if (list.stream().findFirst().isPresent()) {
-			final Config config = list.stream().findFirst().get();
+		if (!current.isPresent()) {
+			return Optional.empty();
+		}
+
+		final CachedConfig config = current.get();
+		if (sinceVersion > config.getVersion() || sinceVersion < 1) {
+			throw new InvalidVersionException();
+		}
+
+		if (sinceVersion == config.getVersion()) {
+			final ConfigDeltaDAO delta = new ConfigDeltaDAO();
+			delta.setFromVersion(sinceVersion);
+			delta.setToVersion(sinceVersion);
+			return Optional.of(delta);
+		}
 
-			configDetails = this.convertToConfigDetailDAO(config);
+		final ConfigDeltaDAO delta = this.configCache.getDelta(label, sinceVersion, config.getVersion(), () -> {
+			final Optional<List<ConfigMetaDAO>> base = this.configHistoryService.reconstruct(label, sinceVersion,
+					config.getVersion(), () -> config.getConfigDetail().getConfigData());
+			return base.isPresent() ? this.computeDelta(base.get(), sinceVersion, config) : null;
+		});
 
+		if (null == delta) {
+			throw new InvalidVersionException();
 		}
 
-		return Optional.ofNullable(configDetails);
+		return Optional.of(delta);
+	}
+
+	/**
+	 * Get Config DAO of a past version. Versions are rebuilt from the history
+	 * 
+	 * @param label   is a unique identifier for config set
+	 * @param version is the requested version
+	 * @return Config details of the version
+	 * @throws InvalidVersionException if the version is not available
+	 */
+	public Optional<ConfigDetailDAO> getConfig(final String label, final int version) throws InvalidVersionException {
+		final Optional<CachedConfig> current = this.getCachedConfig(label);
+
+		if (!current.isPresent()) {
+			return Optional.empty();
+		}
+
+		if (version == current.get().getVersion()) {
+			return Optional.of(current.get().getConfigDetail());
+		}
+
+		final ConfigDetailDAO configDetails = this.configCache.getVersion(label, version, () -> {
+			final Optional<List<ConfigMetaDAO>> configs = this.configHistoryService.reconstruct(label, version,
+					current.get().getVersion(), () -> current.get().getConfigDetail().getConfigData());
+			if (!configs.isPresent()) {
+				return null;
+			}
+
+			final ConfigDetailDAO details = this.convertToConfigDetailDAO(version, configs.get());
+			details.setConfigData(Collections.unmodifiableList(details.getConfigData()));
+			return details;
+		});
+
+		if (null == configDetails) {
+			throw new InvalidVersionException();
+		}
+
+		return Optional.of(configDetails);
+	}
+
+	/**
+	 * Get a page of past versions of a label, newest first, without their
+	 * configuration
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @param page  is the zero based page number
+	 * @param size  is the page size
+	 * @return page of versions
+	 */
+	public Optional<ConfigVersionPageDAO> getConfigVersions(final String label, final int page, final int size) {
+		final Optional<ConfigVersionView> current = this.getConfigVersion(label);
+
+		if (!current.isPresent()) {
+			return Optional.empty();
+		}
+
+		final Page<ConfigVersionView> versions = this.configHistoryRepository
+				.findVersionsByLabelOrderByConfigVersionDesc(label, PageRequest.of(page, size));
+
+		final ConfigVersionPageDAO versionPage = new ConfigVersionPageDAO();
+		versionPage.setCurrentVersion(current.get().getConfigVersion());
+		versionPage.setPage(versions.getNumber());
+		versionPage.setSize(versions.getSize());
+		versionPage.setTotalElements(versions.getTotalElements());
+		versions.forEach(v -> {
+			final ConfigVersionDAO version = new ConfigVersionDAO();
+			version.setVersion(v.getConfigVersion());
+			version.setUpdateTime(v.getUpdateTime());
+			versionPage.getVersions().add(version);
+		});
+
+		return Optional.of(versionPage);
+	}
+
+	/**
+	 * Get current version and update time of a label without loading its
+	 * configuration
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @return version details
+	 */
+	public Optional<ConfigVersionView> getConfigVersion(final String label) {
+		try {
+			return this.configRepository.findVersionByLabel(label);
+		} catch (DataAccessException | TransactionException e) {
+			if (null == this.configSnapshotService) {
+				throw e;
+			}
+			log.warn("Serving version of label " + label + " from config snapshot: " + e.getMessage());
+			return this.configSnapshotService.getConfigVersion(label);
+		}
 	}
 
 	/**
@@ -106,6 +422,7 @@ public class ConfigService {
 	 * @throws InvalidConfigException      if invalid configuration found
 	 * @throws DuplicateKeysException if duplicate keys provided
 	 */
+	@Transactional(rollbackFor = Exception.class)
 	public Optional<ConfigDetailDAO> createConfig(final String label, List<ConfigMetaDAO> configs)
 			throws LabelAlreadyExisitException, InvalidConfigException, DuplicateKeysException {
 
@@ -115,20 +432,23 @@ public class ConfigService {
 			throw new DuplicateKeysException(duplicateList);
 		}
 
+		if (this.configRepository.findVersionByLabel(label).isPresent()) {
+			throw new LabelAlreadyExisitException();
+		}
+
 		final Config config = new Config();
 		config.setLabel(label);
 		config.setConfigVersion(1);
 
 		try {
-			config.setValue(this.mapper.writeValueAsString(configs));
-		} catch (JsonProcessingException e) {
-			log.error(e.getMessage());
-			throw new InvalidConfigException();
-		}
-
-		try {
+			final long storeStart = System.nanoTime();
+			this.configValueStore.replace(config, configs);
+			this.metrics.record(Stage.STORE_WRITE, storeStart);
 			this.configRepository.save(config);
-			this.dispatchEvent(ConfigEventType.CONFIG_CREATE, label);
+			this.configRepository.flush();
+			this.onConfigChange(config, ConfigEventType.CONFIG_CREATE);
+		} catch (InvalidConfigException e) {
+			throw e;
 		} catch (Exception se) {
 			if (se instanceof SQLIntegrityConstraintViolationException
 					|| se instanceof DataIntegrityViolationException) {
@@ -139,7 +459,7 @@ public class ConfigService {
 
 		}
 
-		return Optional.ofNullable(this.convertToConfigDetailDAO(config));
+		return Optional.ofNullable(this.convertToConfigDetailDAO(config.getConfigVersion(), configs));
 
 	}
 
@@ -150,12 +470,47 @@ public class ConfigService {
 	 * @param label   is a unique identifier for config set
 	 * @param configs is a list of configuration data including meta data
 	 * @return updated Config details
-	 * @throws InvalidLabelException  if unable to find the label
-	 * @throws InvalidConfigException if invalid configuration found
-	 * @throws DuplicateKeysException if duplicate keys provided
+	 * @throws InvalidLabelException   if unable to find the label
+	 * @throws InvalidConfigException  if invalid configuration found
+	 * @throws DuplicateKeysException  if duplicate keys provided
+	 * @throws ConfigConflictException if the label kept being updated
+	 *                                 concurrently
+	 * @throws WriteTimeoutException   if a coalesced patch was not written in
+	 *                                 time, it may still be applied
+	 */
+	public ConfigDetailDAO patchConfig(final String label, List<ConfigMetaDAO> configs) throws InvalidLabelException,
+			InvalidConfigException, DuplicateKeysException, ConfigConflictException, WriteTimeoutException {
+		try {
+			return this.patchConfig(label, configs, null);
+		} catch (VersionMismatchException e) {
+			// Not thrown without an expected version
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Patch Config if the label is still at the expected version. this will also
+	 * add a history record and bump up the version. This will update provided
+	 * properties or add new properties (delta update)
+	 * 
+	 * @param label           is a unique identifier for config set
+	 * @param configs         is a list of configuration data including meta data
+	 * @param expectedVersion is the version the patch is based on, any version
+	 *                        when null
+	 * @return updated Config details
+	 * @throws InvalidLabelException    if unable to find the label
+	 * @throws InvalidConfigException   if invalid configuration found
+	 * @throws DuplicateKeysException   if duplicate keys provided
+	 * @throws VersionMismatchException if the label is not at the expected
+	 *                                  version
+	 * @throws ConfigConflictException  if the label kept being updated
+	 *                                  concurrently
+	 * @throws WriteTimeoutException    if a coalesced patch was not written in
+	 *                                  time, it may still be applied
 	 */
-	public ConfigDetailDAO patchConfig(final String label, List<ConfigMetaDAO> configs)
-			throws InvalidLabelException, InvalidConfigException, DuplicateKeysException {
+	public ConfigDetailDAO patchConfig(final String label, final List<ConfigMetaDAO> configs,
+			final Integer expectedVersion) throws InvalidLabelException, InvalidConfigException, DuplicateKeysException,
+			VersionMismatchException, ConfigConflictException, WriteTimeoutException {
 
 		List<ConfigMetaDAO> duplicateList = this.getDuplicates(configs);
 
@@ -163,50 +518,14 @@ public class ConfigService {
 			throw new DuplicateKeysException(duplicateList);
 		}
 
-		Config config = null;
-		final List<Config> list = configRepository.findByLabel(label);
-
-		if (list.stream().findFirst().isPresent()) {
-			config = list.stream().findFirst().get();
-
-			// Create History Object
-			ConfigHistory history = this.convertToConfigHistory(config);
-
-			// Update Config data
-			config.increaseVersion();
-
-			try {
-				List<ConfigMetaDAO> currentConfig = this.getConfigList(config.getValue());
-
-				Map<String, ConfigMetaDAO> currentConfigMap = currentConfig.stream()
-						.collect(Collectors.toMap(ConfigMetaDAO::getKey, v -> v));
-
-				configs.forEach(v -> {
-					currentConfigMap.put(v.getKey(), v);
-				});
-
-				config.setValue(this.mapper
-						.writeValueAsString(currentConfigMap.values().stream().collect(Collectors.toList())));
-			} catch (JsonProcessingException e) {
-				log.error(e.getMessage());
-				throw new InvalidConfigException();
-			}
-
-			try {
-				config = this.configRepository.save(config);
-				this.configHistoryRepository.save(history);
-
-				this.dispatchEvent(ConfigEventType.CONFIG_PATCH, label);
-			} catch (Exception se) {
-				log.error(se.getMessage(), se);
-			}
-
-		} else {
-			throw new InvalidLabelException();
+		// A patch based on a specific version can not be combined with others
+		final Duration window = this.properties.getWrite().getCoalesceWindow();
+		if (null == expectedVersion && null != window && !window.isZero()
+				&& !TransactionSynchronizationManager.isActualTransactionActive()) {
+			return this.awaitCoalesced(label, this.patchCoalescer.submit(label, configs, window.toMillis()));
 		}
 
-		return this.convertToConfigDetailDAO(config);
-
+		return this.write(label, () -> this.doPatchConfig(label, configs, expectedVersion));
 	}
 
 	/**
@@ -216,12 +535,43 @@ public class ConfigService {
 	 * @param label   is a unique identifier for config set
 	 * @param configs is a list of configuration data including meta data
 	 * @return updated Config details
-	 * @throws InvalidLabelException  if unable to find the label
-	 * @throws InvalidConfigException if invalid configuration found
-	 * @throws DuplicateKeysException if duplicate keys provided
+	 * @throws InvalidLabelException   if unable to find the label
+	 * @throws InvalidConfigException  if invalid configuration found
+	 * @throws DuplicateKeysException  if duplicate keys provided
+	 * @throws ConfigConflictException if the label kept being updated
+	 *                                 concurrently
 	 */
 	public ConfigDetailDAO updateConfig(final String label, List<ConfigMetaDAO> configs)
-			throws InvalidLabelException, InvalidConfigException, DuplicateKeysException {
+			throws InvalidLabelException, InvalidConfigException, DuplicateKeysException, ConfigConflictException {
+		try {
+			return this.updateConfig(label, configs, null);
+		} catch (VersionMismatchException e) {
+			// Not thrown without an expected version
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Update Config if the label is still at the expected version. this will also
+	 * add a history record and bump up the version This would replace existing
+	 * configurations with provided set
+	 * 
+	 * @param label           is a unique identifier for config set
+	 * @param configs         is a list of configuration data including meta data
+	 * @param expectedVersion is the version the update is based on, any version
+	 *                        when null
+	 * @return updated Config details
+	 * @throws InvalidLabelException    if unable to find the label
+	 * @throws InvalidConfigException   if invalid configuration found
+	 * @throws DuplicateKeysException   if duplicate keys provided
+	 * @throws VersionMismatchException if the label is not at the expected
+	 *                                  version
+	 * @throws ConfigConflictException  if the label kept being updated
+	 *                                  concurrently
+	 */
+	public ConfigDetailDAO updateConfig(final String label, final List<ConfigMetaDAO> configs,
+			final Integer expectedVersion) throws InvalidLabelException, InvalidConfigException, DuplicateKeysException,
+			VersionMismatchException, ConfigConflictException {
 
 		List<ConfigMetaDAO> duplicateList = this.getDuplicates(configs);
 
@@ -229,89 +579,538 @@ public class ConfigService {
 			throw new DuplicateKeysException(duplicateList);
 		}
 
-		Config config = null;
-		final List<Config> list = configRepository.findByLabel(label);
+		return this.write(label, () -> this.doUpdateConfig(label, configs, expectedVersion));
+	}
 
-		if (list.stream().findFirst().isPresent()) {
-			config = list.stream().findFirst().get();
+	/**
+	 * Set or remove the parent of a label. The label inherits all keys of the
+	 * parent which it does not define itself. Changing the parent bumps up the
+	 * version of the label
+	 * 
+	 * @param label           is a unique identifier for config set
+	 * @param parentLabel     is the label to inherit from, none when null
+	 * @param expectedVersion is the version the change is based on, any version
+	 *                        when null
+	 * @return updated Config details
+	 * @throws InvalidLabelException    if unable to find the label
+	 * @throws InvalidParentException   if unable to find the parent, or if the
+	 *                                  parent would inherit from the label or
+	 *                                  exceed the maximum depth
+	 * @throws InvalidConfigException   if stored configuration can not be read
+	 * @throws VersionMismatchException if the label is not at the expected
+	 *                                  version
+	 * @throws ConfigConflictException  if the label kept being updated
+	 *                                  concurrently
+	 */
+	public ConfigDetailDAO updateParent(final String label, final String parentLabel, final Integer expectedVersion)
+			throws InvalidLabelException, InvalidParentException, InvalidConfigException, VersionMismatchException,
+			ConfigConflictException {
+		try {
+			return this.configWriteExecutor.execute(label,
+					() -> this.doUpdateParent(label, parentLabel, expectedVersion));
+		} catch (InvalidLabelException | InvalidParentException | InvalidConfigException | VersionMismatchException
+				| ConfigConflictException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Import configuration from a JSON array read as a stream. The whole import
+	 * runs in one transaction and nothing is stored if any entry is invalid. The
+	 * previous version of a replaced label is recorded as a snapshot, so the new
+	 * entries are never held in memory all at once.
+	 * 
+	 * @param label   is a unique identifier for config set
+	 * @param input   is a JSON array of configuration data including meta data
+	 * @param replace replaces the configuration of an existing label when true,
+	 *                creates a new label otherwise
+	 * @return import summary
+	 * @throws LabelAlreadyExisitException if creating a label which already
+	 *                                     exist
+	 * @throws InvalidLabelException       if replacing a label which does not
+	 *                                     exist
+	 * @throws InvalidConfigException      if configuration can not be stored
+	 * @throws InvalidImportException      if invalid entries are found
+	 * @throws IOException                 if the input can not be read
+	 */
+	@Transactional(rollbackFor = Exception.class)
+	public ConfigImportDAO importConfig(final String label, final InputStream input, final boolean replace)
+			throws LabelAlreadyExisitException, InvalidLabelException, InvalidConfigException,
+			InvalidImportException, IOException {
 
-			// Create History Object
-			ConfigHistory history = this.convertToConfigHistory(config);
+		Config config = null;
+		ConfigHistory history = null;
+		final List<Config> list = this.configRepository.findByLabel(label);
 
-			// Update Config data
+		if (replace) {
+			if (!list.stream().findFirst().isPresent()) {
+				throw new InvalidLabelException();
+			}
+			config = list.stream().findFirst().get();
+			history = this.configHistoryService.createSnapshot(label, config.getConfigVersion(),
+					config.getUpdateTime(), this.configValueStore.readAsJson(config));
 			config.increaseVersion();
-			try {
-				config.setValue(this.mapper.writeValueAsString(configs));
-			} catch (JsonProcessingException e) {
-				log.error(e.getMessage());
-				throw new InvalidConfigException();
+		} else {
+			if (list.stream().findFirst().isPresent()) {
+				throw new LabelAlreadyExisitException();
 			}
+			config = new Config();
+			config.setLabel(label);
+			config.setConfigVersion(1);
+		}
 
-			try {
-				config = this.configRepository.save(config);
-				this.configHistoryRepository.save(history);
+		final ConfigValueWriter writer = this.configValueStore.openWriter(config);
+		final ConfigImportDAO result = new ConfigImportReader(this.mapper,
+				this.properties.getStorage().getImportMaxErrors()).read(label, input, writer);
 
-				this.dispatchEvent(ConfigEventType.CONFIG_UPDATE, label);
-			} catch (Exception se) {
-				log.error(se.getMessage(), se);
+		if (result.getErrorCount() > 0) {
+			throw new InvalidImportException(result);
+		}
+
+		writer.finish();
+
+		if (null != history) {
+			this.configHistoryRepository.save(history);
+		}
+
+		try {
+			// The writer may have detached the label row, so use the merged copy
+			config = this.configRepository.save(config);
+			this.configRepository.flush();
+		} catch (DataIntegrityViolationException e) {
+			throw new LabelAlreadyExisitException();
+		}
+
+		result.setVersion(config.getConfigVersion());
+		this.onConfigChange(config, replace ? ConfigEventType.CONFIG_UPDATE : ConfigEventType.CONFIG_CREATE);
+
+		return result;
+	}
+
+	/**
+	 * Process Client Feedback. Feedback is queued and handed to the feedback
+	 * handlers in the background
+	 * 
+	 * @param clientFeedback Client Feedback
+	 * @return false if the feedback was dropped
+	 * @throws InvalidLabelException if the label does not exist
+	 */
+	public boolean processClientFeedback(ClientFeedback clientFeedback) throws InvalidLabelException {
+		return this.clientFeedbackService.accept(clientFeedback);
+	}
+
+	/**
+	 * Get the number of clients of a label on each version, based on client
+	 * feedback received within the feedback expiry
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @return client counts per version
+	 */
+	public Optional<ConfigFleetDAO> getConfigFleet(final String label) {
+		return this.getConfigVersion(label).map(version -> {
+			final ConfigFleetDAO fleet = this.clientFeedbackService.getFleet(label);
+			fleet.setCurrentVersion(version.getConfigVersion());
+			return fleet;
+		});
+	}
+
+	/**
+	 * Parse, serialize and cache already fetched labels which are not cached yet.
+	 * A label written while it is being parsed is left to load on demand
+	 * 
+	 * @param configs are the label rows
+	 * @return cached configurations of the labels
+	 */
+	public Collection<CachedConfig> preloadConfigs(final List<Config> configs) {
+		final Map<String, Config> configMap = new HashMap<>();
+		configs.forEach(config -> configMap.put(config.getLabel(), config));
+
+		return this.configCache.getAll(configMap.keySet(), labels -> {
+			final Map<String, CachedConfig> cachedConfigs = new HashMap<>();
+			labels.forEach(label -> cachedConfigs.put(label, this.toCachedConfig(configMap.get(label))));
+			return cachedConfigs;
+		}).values();
+	}
+
+	private ConfigDetailDAO write(final String label, final ConfigWriteExecutor.ConfigWrite<ConfigDetailDAO> write)
+			throws InvalidLabelException, InvalidConfigException, VersionMismatchException, ConfigConflictException {
+		try {
+			return this.configWriteExecutor.execute(label, write);
+		} catch (InvalidLabelException | InvalidConfigException | VersionMismatchException | ConfigConflictException
+				| RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private ConfigDetailDAO awaitCoalesced(final String label, final CompletableFuture<ConfigDetailDAO> future)
+			throws InvalidLabelException, InvalidConfigException, ConfigConflictException, WriteTimeoutException {
+		try {
+			return future.get(this.properties.getWrite().getCoalesceTimeout().toMillis(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// The combined write may still complete, so the outcome is unknown rather than a conflict
+			log.warn("Timed out waiting for coalesced patch of label " + label);
+			throw new WriteTimeoutException();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof InvalidLabelException) {
+				throw (InvalidLabelException) cause;
+			} else if (cause instanceof InvalidConfigException) {
+				throw (InvalidConfigException) cause;
+			} else if (cause instanceof ConfigConflictException) {
+				throw (ConfigConflictException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
 			}
+			throw new IllegalStateException(cause);
+		}
+	}
 
+	private ConfigDetailDAO doPatchConfig(final String label, final List<ConfigMetaDAO> configs,
+			final Integer expectedVersion) throws InvalidLabelException, InvalidConfigException, VersionMismatchException {
+		Config config = this.findForWrite(label, expectedVersion);
+
+		final int previousVersion = config.getConfigVersion();
+		final Date previousUpdateTime = config.getUpdateTime();
+
+		// Create History Object
+		ConfigHistory history = null;
+		if (this.configHistoryService.isCheckpoint(previousVersion)) {
+			history = this.configHistoryService.createSnapshot(label, previousVersion, previousUpdateTime,
+					this.configValueStore.readAsJson(config));
+		}
+
+		// Update Config data
+		config.increaseVersion();
+		final long storeStart = System.nanoTime();
+		final List<ConfigMetaDAO> replaced = this.configValueStore.patch(config, configs);
+		this.metrics.record(Stage.STORE_WRITE, storeStart);
+
+		final long historyStart = System.nanoTime();
+		if (null == history) {
+			history = this.configHistoryService.createPatchDelta(label, previousVersion, previousUpdateTime, replaced,
+					configs);
+		}
+
+		config = this.configRepository.save(config);
+		this.configHistoryRepository.save(history);
+		this.metrics.record(Stage.HISTORY_WRITE, historyStart);
+
+		// Runs @PreUpdate, so the change carries the new update time
+		this.configRepository.flush();
+		this.onConfigChange(config, ConfigEventType.CONFIG_PATCH);
+
+		return this.convertToConfigDetailDAO(config);
+	}
+
+	private ConfigDetailDAO doUpdateConfig(final String label, final List<ConfigMetaDAO> configs,
+			final Integer expectedVersion) throws InvalidLabelException, InvalidConfigException, VersionMismatchException {
+		Config config = this.findForWrite(label, expectedVersion);
+
+		final int previousVersion = config.getConfigVersion();
+		final Date previousUpdateTime = config.getUpdateTime();
+
+		// Create History Object
+		ConfigHistory history = null;
+		if (this.configHistoryService.isCheckpoint(previousVersion)) {
+			history = this.configHistoryService.createSnapshot(label, previousVersion, previousUpdateTime,
+					this.configValueStore.readAsJson(config));
 		} else {
-			throw new InvalidLabelException();
+			history = this.configHistoryService.createReplaceDelta(label, previousVersion, previousUpdateTime,
+					this.configValueStore.read(config), configs);
+		}
+
+		// Update Config data
+		config.increaseVersion();
+		final long storeStart = System.nanoTime();
+		this.configValueStore.replace(config, configs);
+		this.metrics.record(Stage.STORE_WRITE, storeStart);
+
+		config = this.configRepository.save(config);
+		final long historyStart = System.nanoTime();
+		this.configHistoryRepository.save(history);
+		this.metrics.record(Stage.HISTORY_WRITE, historyStart);
+
+		// Runs @PreUpdate, so the change carries the new update time
+		this.configRepository.flush();
+		this.onConfigChange(config, ConfigEventType.CONFIG_UPDATE);
+
+		return this.convertToConfigDetailDAO(config.getConfigVersion(), configs);
+	}
+
+	private ConfigDetailDAO doUpdateParent(final String label, final String parentLabel, final Integer expectedVersion)
+			throws InvalidLabelException, InvalidParentException, InvalidConfigException, VersionMismatchException {
+		Config config = this.findForWrite(label, expectedVersion);
+
+		if (null != parentLabel) {
+			this.checkParent(label, parentLabel);
+		}
+
+		final int previousVersion = config.getConfigVersion();
+		final Date previousUpdateTime = config.getUpdateTime();
+
+		// Entries are unchanged, so an empty delta rebuilds the previous version
+		final ConfigHistory history;
+		if (this.configHistoryService.isCheckpoint(previousVersion)) {
+			history = this.configHistoryService.createSnapshot(label, previousVersion, previousUpdateTime,
+					this.configValueStore.readAsJson(config));
+		} else {
+			history = this.configHistoryService.createPatchDelta(label, previousVersion, previousUpdateTime,
+					Collections.emptyList(), Collections.emptyList());
 		}
 
+		config.setParentLabel(parentLabel);
+		config.increaseVersion();
+
+		config = this.configRepository.save(config);
+		this.configHistoryRepository.save(history);
+
+		// Runs @PreUpdate, so the change carries the new update time
+		this.configRepository.flush();
+		this.onConfigChange(config, ConfigEventType.CONFIG_PARENT_UPDATE);
+
 		return this.convertToConfigDetailDAO(config);
+	}
+
+	private void checkParent(final String label, final String parentLabel) throws InvalidParentException {
+		if (!this.configRepository.findVersionByLabel(parentLabel).isPresent()) {
+			throw new InvalidParentException();
+		}
+
+		// Walk up from the new parent, which must neither reach the label nor be
+		// too deep
+		int depth = 1;
+		String current = parentLabel;
+		while (null != current) {
+			if (current.equals(label) || ++depth > this.properties.getLayer().getMaxDepth()) {
+				throw new InvalidParentException();
+			}
+			current = this.configRepository.findParentLabelByLabel(current).orElse(null);
+		}
+	}
+
+	private List<CachedConfig> getLayers(final String label) {
+		final List<CachedConfig> layers = new ArrayList<>();
+		final Set<String> visited = new HashSet<>();
+
+		String current = label;
+		while (null != current && visited.add(current)) {
+			if (layers.size() >= this.properties.getLayer().getMaxDepth()) {
+				log.warn("Inheritance chain of label " + label + " is deeper than "
+						+ this.properties.getLayer().getMaxDepth());
+				break;
+			}
+
+			final CachedConfig layer = this.configCache.get(current, this::loadConfig);
+			if (null == layer) {
+				break;
+			}
+			layers.add(layer);
+			current = this.labelHierarchy.getParent(current);
+		}
+
+		// Root ancestor first
+		Collections.reverse(layers);
+		return layers;
+	}
+
+	private CachedConfig resolve(final List<CachedConfig> layers) {
+		final CachedConfig leaf = layers.get(layers.size() - 1);
+		final ResolvedConfigDAO resolved = new ResolvedConfigDAO();
+		resolved.setVersion(leaf.getVersion());
+
+		List<ConfigMetaDAO> merged = Collections.emptyList();
+		Date updateTime = null;
+		for (CachedConfig layer : layers) {
+			merged = this.mergeLayer(merged, layer.getConfigDetail().getConfigData());
+
+			final LabelVersionDAO layerVersion = new LabelVersionDAO();
+			layerVersion.setLabel(layer.getLabel());
+			layerVersion.setVersion(layer.getVersion());
+			layerVersion.setUpdateTime(layer.getUpdateTime());
+			resolved.getLayers().add(layerVersion);
+
+			if (null != layer.getUpdateTime() && (null == updateTime || layer.getUpdateTime().after(updateTime))) {
+				updateTime = layer.getUpdateTime();
+			}
+		}
+		resolved.setConfigData(Collections.unmodifiableList(merged));
 
+		return this.encode(leaf.getLabel(), leaf.getVersion(), updateTime, resolved);
 	}
 
 	/**
-	 * Process Client Feedback
-	 * 
-	 * @param clientFeedback Client Feedback
+	 * Merge two configurations sorted by key in a single pass. Entries of the
+	 * overriding layer replace entries of the base with the same key
 	 */
-	public void processClientFeedback(ClientFeedback clientFeedback) {
-		if (null != this.clientFeedbackHandler) {
-			this.clientFeedbackHandler.onClientFeedback(clientFeedback);
+	private List<ConfigMetaDAO> mergeLayer(final List<ConfigMetaDAO> base, final List<ConfigMetaDAO> layer) {
+		final List<ConfigMetaDAO> merged = new ArrayList<>(base.size() + layer.size());
+
+		int b = 0;
+		int l = 0;
+		while (b < base.size() && l < layer.size()) {
+			final int order = compareByKey.compare(base.get(b), layer.get(l));
+			if (order < 0) {
+				merged.add(base.get(b++));
+			} else {
+				if (order == 0) {
+					b++;
+				}
+				merged.add(layer.get(l++));
+			}
 		}
+		merged.addAll(base.subList(b, base.size()));
+		merged.addAll(layer.subList(l, layer.size()));
+
+		return merged;
 	}
 
-	@Async
-	private void dispatchEvent(ConfigEventType eventType, final String label) {
-		if (null != this.configEventHandler) {
-			final ConfigEvent event = new ConfigEvent(UUID.randomUUID().toString(), label, eventType);
-			event.setEventDate(new Date());
+	private Config findForWrite(final String label, final Integer expectedVersion)
+			throws InvalidLabelException, VersionMismatchException {
+		final Optional<Config> config = this.configRepository.findByLabel(label).stream().findFirst();
 
-			this.configEventHandler.onEvent(event);
+		if (!config.isPresent()) {
+			throw new InvalidLabelException();
 		}
+
+		if (null != expectedVersion && expectedVersion.intValue() != config.get().getConfigVersion()) {
+			throw new VersionMismatchException();
+		}
+
+		return config.get();
 	}
 
-	private List<ConfigMetaDAO> getConfigList(final String json) throws JsonMappingException, JsonProcessingException {
-		return mapper.readValue(json, new TypeReference<List<ConfigMetaDAO>>() {
+	private void onConfigChange(final Config config, final ConfigEventType eventType) {
+		final ConfigChange change = new ConfigChange(config.getLabel(), config.getConfigVersion(),
+				config.getUpdateTime(), config.getParentLabel());
+
+		// Readers must not reload the label before the new version is visible
+		this.afterCommit(() -> {
+			this.configChangeNotifier.onLocalChange(change);
+			this.dispatchEvent(eventType, change.getLabel());
 		});
 	}
 
-	private ConfigDetailDAO convertToConfigDetailDAO(final Config config) {
-		final ConfigDetailDAO configDetails = new ConfigDetailDAO();
-		configDetails.setVersion(config.getConfigVersion());
+	private void afterCommit(final Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+
+	private void dispatchEvent(ConfigEventType eventType, final String label) {
+		final ConfigEvent event = new ConfigEvent(UUID.randomUUID().toString(), label, eventType);
+		event.setEventDate(new Date());
+
+		this.configEventDispatcher.dispatch(event);
+	}
+
+	private CachedConfig loadConfig(final String label) {
+		final long start = System.nanoTime();
+		final List<Config> list = configRepository.findByLabel(label);
+		this.metrics.record(Stage.DB_FETCH, start);
+
+		return list.stream().findFirst().map(this::toCachedConfig).orElse(null);
+	}
+
+	private Map<String, CachedConfig> loadConfigs(final Collection<String> labels) {
+		final Map<String, CachedConfig> cachedConfigs = new HashMap<>();
+
+		final long start = System.nanoTime();
+		final List<Config> configs = this.configRepository.findByLabelIn(labels);
+		this.metrics.record(Stage.DB_FETCH, start);
+
+		configs.forEach(config -> cachedConfigs.put(config.getLabel(), this.toCachedConfig(config)));
+
+		return cachedConfigs;
+	}
+
+	private CachedConfig toCachedConfig(final Config config) {
+		final ConfigDetailDAO configDetails = this.convertToConfigDetailDAO(config);
+		configDetails.setConfigData(Collections.unmodifiableList(configDetails.getConfigData()));
+
+		return this.encode(config.getLabel(), config.getConfigVersion(), config.getUpdateTime(), configDetails);
+	}
+
+	private CachedConfig encode(final String label, final int version, final Date updateTime,
+			final ConfigDetailDAO configDetails) {
 		try {
-			List<ConfigMetaDAO> list = this.getConfigList(config.getValue());
-			Collections.sort(list, compareByKey);
-			configDetails.setConfigData(list);
+			final long start = System.nanoTime();
+			final byte[] jsonBody = this.mapper.writeValueAsBytes(configDetails);
+			this.metrics.record(Stage.ENCODE, start);
+			this.metrics.recordPayloadSize(label, jsonBody.length);
+
+			return new CachedConfig(label, version, updateTime, configDetails, jsonBody);
 		} catch (JsonProcessingException e) {
 			log.error(e.getMessage());
+			throw new UncheckedIOException(e);
 		}
+	}
+
+	private ConfigDetailDAO convertToConfigDetailDAO(final Config config) {
+		List<ConfigMetaDAO> list = new ArrayList<>();
+		try {
+			final long start = System.nanoTime();
+			list = this.configValueStore.read(config);
+			this.metrics.record(Stage.DECODE, start);
+		} catch (InvalidConfigException e) {
+			log.error("Unable to read config of label " + config.getLabel());
+		}
+
+		return this.convertToConfigDetailDAO(config.getConfigVersion(), list);
+	}
+
+	private ConfigDetailDAO convertToConfigDetailDAO(final int version, final List<ConfigMetaDAO> configs) {
+		final ConfigDetailDAO configDetails = new ConfigDetailDAO();
+		configDetails.setVersion(version);
+
+		final long start = System.nanoTime();
+		List<ConfigMetaDAO> list = new ArrayList<>(configs);
+		Collections.sort(list, compareByKey);
+		configDetails.setConfigData(list);
+		this.metrics.record(Stage.SORT, start);
 
 		return configDetails;
 	}
 
-	private ConfigHistory convertToConfigHistory(Config config) {
-		ConfigHistory history = new ConfigHistory();
-		history.setLabel(config.getLabel());
-		history.setConfigVersion(config.getConfigVersion());
-		history.setValue(config.getValue());
-		history.setUpdateTime(config.getUpdateTime());
+	private ConfigDeltaDAO computeDelta(final List<ConfigMetaDAO> base, final int fromVersion,
+			final CachedConfig current) {
+		final ConfigDeltaDAO delta = new ConfigDeltaDAO();
+		delta.setFromVersion(fromVersion);
+		delta.setToVersion(current.getVersion());
+
+		final Map<String, ConfigMetaDAO> baseMap = new HashMap<>();
+		final List<ConfigMetaDAO> baseList = new ArrayList<>(base);
+		Collections.sort(baseList, compareByKey);
+		baseList.forEach(c -> baseMap.put(c.getKey(), c));
+
+		final Set<String> currentKeys = new HashSet<>();
+		current.getConfigDetail().getConfigData().forEach(c -> {
+			currentKeys.add(c.getKey());
+			final ConfigMetaDAO previous = baseMap.get(c.getKey());
+			if (null == previous) {
+				delta.getAdded().add(c);
+			} else if (!Objects.equals(previous.getValue(), c.getValue())
+					|| !Objects.equals(previous.getDescription(), c.getDescription())) {
+				delta.getChanged().add(c);
+			}
+		});
+
+		baseList.stream().filter(c -> !currentKeys.contains(c.getKey())).forEach(delta.getRemoved()::add);
 
-		return history;
+		return delta;
 	}
 
 	private List<ConfigMetaDAO> getDuplicates(List<ConfigMetaDAO> configList) {
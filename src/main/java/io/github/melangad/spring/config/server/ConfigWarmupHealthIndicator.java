@@ -0,0 +1,38 @@
+package io.github.melangad.spring.config.server;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * <h1>Config Warmup Health Indicator</h1> Reports the server out of service
+ * until the config cache is warm, so that load balancers only route clients to
+ * the server afterwards. Registered when Actuator is on the classpath.
+ *
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnClass(name = "org.springframework.boot.actuate.health.HealthIndicator")
+@ConditionalOnProperty(prefix = "config.server.warmup", name = "enabled", havingValue = "true")
+public class ConfigWarmupHealthIndicator implements HealthIndicator {
+
+	@Autowired
+	private ConfigCacheWarmer configCacheWarmer;
+
+	@Override
+	public Health health() {
+		final Health.Builder builder = this.configCacheWarmer.isComplete() ? Health.up() : Health.outOfService();
+
+		return builder.withDetail("labels", this.configCacheWarmer.getLabelCount())
+				.withDetail("failedPages", this.configCacheWarmer.getFailedPageCount())
+				.withDetail("durationMillis", this.configCacheWarmer.getDurationMillis())
+				.withDetail("serializedBytes", this.configCacheWarmer.getSerializedBytes())
+				.withDetail("estimatedHeapBytes", this.configCacheWarmer.getEstimatedHeapBytes()).build();
+	}
+
+}
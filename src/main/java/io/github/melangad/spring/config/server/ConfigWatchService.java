@@ -0,0 +1,127 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import io.github.melangad.spring.config.server.model.ConfigPushEvent;
+
+/**
+ * <h1>Config Watch Service</h1> Long polling alternative to the Server Sent
+ * Event push service. Watch requests are parked without holding a servlet
+ * thread until the version of the label moves past the version known by the
+ * client or the watch times out. All watchers of a label are released together
+ * on a version change.
+ * 
+ * @author melanga
+ *
+ */
+
+@Service
+public class ConfigWatchService {
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private final ConcurrentMap<String, Set<Watcher>> watcherMap = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, ConfigPushEvent> latestVersionMap = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a parked watch on a label. The result completes with the new version
+	 * once the label version is greater than the given version, or with
+	 * <code>304 Not Modified</code> when the watch times out.
+	 * 
+	 * @param label   is a label
+	 * @param version is the version known by the client
+	 * @return deferred watch result
+	 */
+	public DeferredResult<ResponseEntity<?>> watch(final String label, final int version) {
+		final DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(
+				this.properties.getWatch().getTimeout().toMillis(),
+				ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+		final Watcher watcher = new Watcher(version, result);
+
+		result.onCompletion(() -> this.removeWatcher(label, watcher));
+		this.watcherMap.computeIfAbsent(label, k -> ConcurrentHashMap.newKeySet()).add(watcher);
+
+		// A version change may have released the watchers just before this one was
+		// added
+		final ConfigPushEvent latest = this.latestVersionMap.get(label);
+		if (null != latest && latest.getConfigVersion() > version) {
+			watcher.release(latest);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Release all watchers of a label which are behind the given version
+	 * 
+	 * @param label      is a label
+	 * @param version    is the new version of the label
+	 * @param updateTime is the update time of the new version
+	 */
+	public void release(final String label, final int version, final Date updateTime) {
+		final ConfigPushEvent event = new ConfigPushEvent();
+		event.setLabel(label);
+		event.setConfigVersion(version);
+		event.setUpdateTime(updateTime);
+
+		this.latestVersionMap.merge(label, event,
+				(current, update) -> update.getConfigVersion() > current.getConfigVersion() ? update : current);
+
+		final Set<Watcher> watchers = this.watcherMap.remove(label);
+		if (null != watchers) {
+			watchers.forEach(watcher -> {
+				if (watcher.version < version) {
+					watcher.release(event);
+				} else {
+					this.watcherMap.computeIfAbsent(label, k -> ConcurrentHashMap.newKeySet()).add(watcher);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Number of parked watch requests for a label
+	 * 
+	 * @param label is a label
+	 * @return number of parked watch requests
+	 */
+	public int getWatcherCount(final String label) {
+		final Set<Watcher> watchers = this.watcherMap.get(label);
+		return null == watchers ? 0 : watchers.size();
+	}
+
+	private void removeWatcher(final String label, final Watcher watcher) {
+		final Set<Watcher> watchers = this.watcherMap.get(label);
+		if (null != watchers) {
+			watchers.remove(watcher);
+		}
+	}
+
+	private static final class Watcher {
+
+		private final int version;
+
+		private final DeferredResult<ResponseEntity<?>> result;
+
+		private Watcher(final int version, final DeferredResult<ResponseEntity<?>> result) {
+			this.version = version;
+			this.result = result;
+		}
+
+		private void release(final ConfigPushEvent event) {
+			this.result.setResult(ResponseEntity.ok(event));
+		}
+	}
+
+}
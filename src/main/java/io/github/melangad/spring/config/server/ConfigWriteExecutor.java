@@ -0,0 +1,163 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Write Executor</h1> Runs read-modify-write operations on a label.
+ * Writes to the same label on this node are serialized by one of a fixed
+ * number of locks picked by the label, while writes to labels on different
+ * locks run in parallel. Each attempt runs in its
+ * own transaction and is retried when another node updated the label
+ * concurrently, which is detected by the optimistic lock on the label row.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@Slf4j
+public class ConfigWriteExecutor {
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@Autowired(required = false)
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ReentrantLock[] labelLocks;
+
+	private final LongAdder retryCount = new LongAdder();
+
+	private final LongAdder conflictCount = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		this.labelLocks = new ReentrantLock[Math.max(1, this.properties.getWrite().getLockStripes())];
+		for (int i = 0; i < this.labelLocks.length; i++) {
+			this.labelLocks[i] = new ReentrantLock(true);
+		}
+
+		if (null != this.transactionManager) {
+			this.transactionTemplate = new TransactionTemplate(this.transactionManager);
+		}
+	}
+
+	/**
+	 * Run a write on a label
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @param write is the read-modify-write operation, run once per attempt
+	 * @return result of the successful attempt
+	 * @throws ConfigConflictException if all attempts failed on concurrent
+	 *                                 updates
+	 * @throws Exception               thrown by the write
+	 */
+	public <T> T execute(final String label, final ConfigWrite<T> write) throws Exception {
+		// Retrying only helps when the attempt owns its transaction
+		final int maxAttempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1
+				: Math.max(1, this.properties.getWrite().getMaxAttempts());
+
+		for (int attempt = 1;; attempt++) {
+			try {
+				return this.executeLocked(label, write);
+			} catch (OptimisticLockingFailureException e) {
+				if (attempt >= maxAttempts) {
+					this.conflictCount.increment();
+					log.warn("Giving up write on label " + label + " after " + attempt + " attempts");
+					throw new ConfigConflictException();
+				}
+				this.retryCount.increment();
+				this.backOff(attempt);
+			}
+		}
+	}
+
+	public long getRetryCount() {
+		return this.retryCount.sum();
+	}
+
+	public long getConflictCount() {
+		return this.conflictCount.sum();
+	}
+
+	private <T> T executeLocked(final String label, final ConfigWrite<T> write) throws Exception {
+		final ReentrantLock lock = this.lockOf(label);
+
+		lock.lock();
+		try {
+			if (null == this.transactionTemplate) {
+				return write.apply();
+			}
+
+			try {
+				return this.transactionTemplate.execute(status -> {
+					try {
+						return write.apply();
+					} catch (RuntimeException e) {
+						throw e;
+					} catch (Exception e) {
+						throw new WriteFailure(e);
+					}
+				});
+			} catch (WriteFailure e) {
+				throw (Exception) e.getCause();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private ReentrantLock lockOf(final String label) {
+		final int hash = label.hashCode();
+		return this.labelLocks[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % this.labelLocks.length];
+	}
+
+	private void backOff(final int attempt) {
+		final long backOff = this.properties.getWrite().getRetryBackOff().toMillis() * attempt;
+		if (backOff > 0) {
+			try {
+				Thread.sleep(backOff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Read-modify-write operation on a label
+	 *
+	 * @param <T> result type
+	 */
+	@FunctionalInterface
+	public interface ConfigWrite<T> {
+		T apply() throws Exception;
+	}
+
+	/**
+	 * Carries checked exceptions of a write through the transaction template,
+	 * which rolls back on runtime exceptions
+	 */
+	private static final class WriteFailure extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private WriteFailure(final Exception cause) {
+			super(cause);
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package io.github.melangad.spring.config.server;
+
+import io.github.melangad.spring.config.server.model.ConfigImportDAO;
+
+public class InvalidImportException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final transient ConfigImportDAO importResult;
+
+	public InvalidImportException(ConfigImportDAO importResult) {
+		this.importResult = importResult;
+	}
+
+	public ConfigImportDAO getImportResult() {
+		return this.importResult;
+	}
+
+	@Override
+	public String getMessage() {
+
+		return String.join(",", this.importResult.getErrors());
+
+	}
+
+}
@@ -0,0 +1,111 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+
+/**
+ * <h1>Patch Coalescer</h1> Collects patches of the same label arriving within
+ * a short window and writes them as a single patch. Entries are merged in
+ * order of arrival, so a later patch of a key wins. Every caller is completed
+ * with the result of the combined write.
+ * 
+ * @author melanga
+ *
+ */
+class PatchCoalescer {
+
+	private final ScheduledExecutorService scheduler;
+
+	private final PatchWriter writer;
+
+	private final ConcurrentMap<String, Batch> pendingBatches = new ConcurrentHashMap<>();
+
+	private final LongAdder patchCount = new LongAdder();
+
+	private final LongAdder writeCount = new LongAdder();
+
+	PatchCoalescer(final ScheduledExecutorService scheduler, final PatchWriter writer) {
+		this.scheduler = scheduler;
+		this.writer = writer;
+	}
+
+	/**
+	 * Add a patch to the pending batch of a label, starting a new batch if there
+	 * is none
+	 * 
+	 * @param label       is a unique identifier for config set
+	 * @param configs     is a list of configuration data without duplicate keys
+	 * @param windowMilli is the time a new batch waits for further patches
+	 * @return completed with the result of the combined write
+	 */
+	CompletableFuture<ConfigDetailDAO> submit(final String label, final List<ConfigMetaDAO> configs,
+			final long windowMilli) {
+		final CompletableFuture<ConfigDetailDAO> future = new CompletableFuture<>();
+
+		this.patchCount.increment();
+		this.pendingBatches.compute(label, (key, batch) -> {
+			final Batch target = null == batch ? this.newBatch(label, windowMilli) : batch;
+			configs.forEach(c -> target.configs.put(c.getKey(), c));
+			target.futures.add(future);
+			return target;
+		});
+
+		return future;
+	}
+
+	long getPatchCount() {
+		return this.patchCount.sum();
+	}
+
+	long getWriteCount() {
+		return this.writeCount.sum();
+	}
+
+	private Batch newBatch(final String label, final long windowMilli) {
+		this.scheduler.schedule(() -> this.flush(label), windowMilli, TimeUnit.MILLISECONDS);
+		return new Batch();
+	}
+
+	private void flush(final String label) {
+		final Batch batch = this.pendingBatches.remove(label);
+		if (null == batch) {
+			return;
+		}
+
+		this.writeCount.increment();
+		try {
+			final ConfigDetailDAO result = this.writer.patch(label, new ArrayList<>(batch.configs.values()));
+			batch.futures.forEach(f -> f.complete(result));
+		} catch (Exception e) {
+			batch.futures.forEach(f -> f.completeExceptionally(e));
+		}
+	}
+
+	/**
+	 * Writes a combined patch
+	 */
+	@FunctionalInterface
+	interface PatchWriter {
+		ConfigDetailDAO patch(String label, List<ConfigMetaDAO> configs) throws Exception;
+	}
+
+	private static final class Batch {
+
+		// Guarded by the map entry of the label
+		private final Map<String, ConfigMetaDAO> configs = new LinkedHashMap<>();
+
+		private final List<CompletableFuture<ConfigDetailDAO>> futures = new ArrayList<>();
+	}
+
+}
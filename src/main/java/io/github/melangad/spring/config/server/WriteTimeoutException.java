@@ -0,0 +1,10 @@
+package io.github.melangad.spring.config.server;
+
+public class WriteTimeoutException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+}
@@ -0,0 +1,142 @@
+package io.github.melangad.spring.config.server.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
+
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Ready to serve configuration of a label at a specific version. Holds the
+ * serialized JSON response body so that it is built only once per version.
+ * The gzip compressed body and the key index used to look up a subset of the
+ * entries are built on first use.
+ * 
+ * @author melanga
+ *
+ */
+@Getter
+@RequiredArgsConstructor
+public class CachedConfig {
+
+	@NonNull
+	private final String label;
+
+	private final int version;
+
+	private final Date updateTime;
+
+	@NonNull
+	private final ConfigDetailDAO configDetail;
+
+	@NonNull
+	private final byte[] jsonBody;
+
+	private volatile byte[] gzipBody;
+
+	private volatile String[] sortedKeys;
+
+	/**
+	 * Get gzip compressed JSON response body
+	 * 
+	 * @return compressed body
+	 */
+	public byte[] getGzipBody() {
+		byte[] body = this.gzipBody;
+		if (null == body) {
+			body = gzip(this.jsonBody);
+			this.gzipBody = body;
+		}
+		return body;
+	}
+
+	/**
+	 * Get the entries with any of the given keys or starting with the given
+	 * prefix. Entries are sorted by key, so each key and the prefix are looked up
+	 * by binary search over a key index built on first use
+	 * 
+	 * @param prefix is the key prefix, no prefix match when null
+	 * @param keys   are exact keys, no key match when null
+	 * @return matching entries sorted by key
+	 */
+	public List<ConfigMetaDAO> find(final String prefix, final Collection<String> keys) {
+		final List<ConfigMetaDAO> entries = this.configDetail.getConfigData();
+		final String[] index = this.getSortedKeys();
+
+		int from = 0;
+		int to = 0;
+		if (null != prefix) {
+			// Keys before the prefix, then keys starting with it, then keys after it
+			from = lowerBound(index, key -> key.compareTo(prefix) < 0);
+			to = lowerBound(index, key -> key.compareTo(prefix) < 0 || key.startsWith(prefix));
+		}
+
+		final List<ConfigMetaDAO> result = new ArrayList<>(entries.subList(from, to));
+		if (null != keys) {
+			final Set<String> seen = new HashSet<>();
+			for (String key : keys) {
+				final int position = Arrays.binarySearch(index, key);
+				if (position >= 0 && (position < from || position >= to) && seen.add(key)) {
+					result.add(entries.get(position));
+				}
+			}
+			if (result.size() > to - from) {
+				result.sort(Comparator.comparing(ConfigMetaDAO::getKey));
+			}
+		}
+
+		return result;
+	}
+
+	private String[] getSortedKeys() {
+		String[] keys = this.sortedKeys;
+		if (null == keys) {
+			keys = this.configDetail.getConfigData().stream().map(ConfigMetaDAO::getKey).toArray(String[]::new);
+			this.sortedKeys = keys;
+		}
+		return keys;
+	}
+
+	/**
+	 * Index of the first key not matching the predicate, which must hold for a
+	 * leading run of the keys only
+	 */
+	private static int lowerBound(final String[] keys, final Predicate<String> before) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (before.test(keys[middle])) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private static byte[] gzip(final byte[] data) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(data);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,195 @@
+package io.github.melangad.spring.config.server.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.model.ConfigDeltaDAO;
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+
+/**
+ * <h1>Config Cache</h1> Label keyed read-through cache of parsed
+ * configurations. Entries are invalidated whenever the label is written and
+ * are bounded by size and time to live.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+public class ConfigCache {
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private ExpiringLruCache<String, CachedConfig> cache;
+
+	private ExpiringLruCache<String, ConfigDeltaDAO> deltaCache;
+
+	private ExpiringLruCache<String, ConfigDetailDAO> versionCache;
+
+	private ExpiringLruCache<String, CachedConfig> resolvedCache;
+
+	private final ConcurrentMap<String, String> resolvedKeys = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		this.cache = new ExpiringLruCache<String, CachedConfig>(this.properties.getCache().getMaxSize(),
+				this.properties.getCache().getTtl());
+		// Deltas between two fixed versions never change, so they do not expire
+		this.deltaCache = new ExpiringLruCache<String, ConfigDeltaDAO>(this.properties.getCache().getDeltaMaxSize(),
+				Duration.ZERO);
+		// Past versions are immutable as well
+		this.versionCache = new ExpiringLruCache<String, ConfigDetailDAO>(
+				this.properties.getCache().getVersionMaxSize(), Duration.ZERO);
+		// Keyed by the versions of all layers, so an entry never goes stale
+		this.resolvedCache = new ExpiringLruCache<String, CachedConfig>(
+				this.properties.getCache().getResolvedMaxSize(), Duration.ZERO);
+	}
+
+	public boolean isEnabled() {
+		return this.properties.getCache().isEnabled();
+	}
+
+	/**
+	 * Get cached configuration of a label, loading it on a miss
+	 * 
+	 * @param label  is a unique identifier for config set
+	 * @param loader is used to load the configuration on a miss
+	 * @return cached configuration or null if the loader could not find the label
+	 */
+	public CachedConfig get(final String label, final Function<String, CachedConfig> loader) {
+		if (!this.isEnabled()) {
+			return loader.apply(label);
+		}
+		return this.cache.get(label, loader);
+	}
+
+	/**
+	 * Get cached configurations of several labels, loading all misses at once
+	 * 
+	 * @param labels are unique identifiers for config sets
+	 * @param loader is used to load the missing labels
+	 * @return cached configurations by label, without labels which do not exist
+	 */
+	public Map<String, CachedConfig> getAll(final Collection<String> labels,
+			final Function<Collection<String>, Map<String, CachedConfig>> loader) {
+		if (!this.isEnabled()) {
+			return loader.apply(labels);
+		}
+		return this.cache.getAll(labels, loader);
+	}
+
+	/**
+	 * Get cached delta between two versions of a label, computing it on a miss
+	 * 
+	 * @param label       is a unique identifier for config set
+	 * @param fromVersion is the base version
+	 * @param toVersion   is the target version
+	 * @param loader      is used to compute the delta on a miss
+	 * @return cached delta
+	 */
+	public ConfigDeltaDAO getDelta(final String label, final int fromVersion, final int toVersion,
+			final Supplier<ConfigDeltaDAO> loader) {
+		if (!this.isEnabled()) {
+			return loader.get();
+		}
+		return this.deltaCache.get(label + ":" + fromVersion + ":" + toVersion, key -> loader.get());
+	}
+
+	/**
+	 * Get cached configuration of a past version of a label, loading it on a miss
+	 * 
+	 * @param label   is a unique identifier for config set
+	 * @param version is the version
+	 * @param loader  is used to load the version on a miss
+	 * @return cached configuration or null if the loader could not find the
+	 *         version
+	 */
+	public ConfigDetailDAO getVersion(final String label, final int version, final Supplier<ConfigDetailDAO> loader) {
+		if (!this.isEnabled()) {
+			return loader.get();
+		}
+		return this.versionCache.get(label + ":" + version, key -> loader.get());
+	}
+
+	/**
+	 * Get cached resolved configuration of a layered label, resolving it on a
+	 * miss. The previous resolution of the label is dropped once its layers moved
+	 * on
+	 * 
+	 * @param label    is a unique identifier for config set
+	 * @param layerKey identifies the labels and versions of all layers
+	 * @param loader   is used to resolve the configuration on a miss
+	 * @return cached resolved configuration
+	 */
+	public CachedConfig getResolved(final String label, final String layerKey, final Supplier<CachedConfig> loader) {
+		if (!this.isEnabled()) {
+			return loader.get();
+		}
+
+		final String previous = this.resolvedKeys.put(label, layerKey);
+		if (null != previous && !previous.equals(layerKey)) {
+			this.resolvedCache.invalidate(previous);
+		}
+		return this.resolvedCache.get(layerKey, key -> loader.get());
+	}
+
+	/**
+	 * Remove cached configuration of a label
+	 * 
+	 * @param label is a unique identifier for config set
+	 */
+	public void evict(final String label) {
+		this.cache.invalidate(label);
+		this.evictResolved(label);
+	}
+
+	/**
+	 * Remove cached resolved configuration of a label, after one of its ancestors
+	 * changed
+	 * 
+	 * @param label is a unique identifier for config set
+	 */
+	public void evictResolved(final String label) {
+		final String layerKey = this.resolvedKeys.remove(label);
+		if (null != layerKey) {
+			this.resolvedCache.invalidate(layerKey);
+		}
+	}
+
+	public void evictAll() {
+		this.cache.invalidateAll();
+		this.deltaCache.invalidateAll();
+		this.versionCache.invalidateAll();
+		this.resolvedCache.invalidateAll();
+		this.resolvedKeys.clear();
+	}
+
+	public int size() {
+		return this.cache.size();
+	}
+
+	public long getHitCount() {
+		return this.cache.getHitCount();
+	}
+
+	public long getMissCount() {
+		return this.cache.getMissCount();
+	}
+
+	public long getEvictionCount() {
+		return this.cache.getEvictionCount();
+	}
+
+}
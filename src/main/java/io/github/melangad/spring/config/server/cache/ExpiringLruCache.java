@@ -0,0 +1,318 @@
+package io.github.melangad.spring.config.server.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * <h1>Expiring LRU Cache</h1> Small bounded cache with approximate least
+ * recently used eviction and an optional time to live. Concurrent misses on the
+ * same key are collapsed into a single load, and loads started before an
+ * invalidation of their key are never written back to the cache.
+ * <p>
+ * Reads take no lock. Each entry records when it was last read, at a resolution
+ * of a millisecond so that a hot entry is not written on every read. Once the
+ * cache is over its size, the entry read longest ago is found by a scan of the
+ * entries, which is cheap next to the load that caused it.
+ * 
+ * @author melanga
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ExpiringLruCache<K, V> {
+
+	private static final long ACCESS_RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final int maxSize;
+
+	private final long ttlNanos;
+
+	private final ConcurrentMap<K, Holder<V>> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Loads in progress. A load writes its value only while its own future is
+	 * still registered, and invalidating a key removes the future of the key
+	 */
+	private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * @param maxSize is the maximum number of entries kept in the cache
+	 * @param ttl     is the time to live of an entry, zero or null disables
+	 *                expiry
+	 */
+	public ExpiringLruCache(final int maxSize, final Duration ttl) {
+		this.maxSize = maxSize;
+		this.ttlNanos = (null == ttl || ttl.isNegative()) ? 0 : ttl.toNanos();
+	}
+
+	/**
+	 * Get cached value without loading it
+	 * 
+	 * @param key is the cache key
+	 * @return cached value or null if absent or expired
+	 */
+	public V getIfPresent(final K key) {
+		V value = this.lookup(key);
+		if (null != value) {
+			this.hitCount.increment();
+		} else {
+			this.missCount.increment();
+		}
+		return value;
+	}
+
+	/**
+	 * Get cached value, loading it on a miss. Null values returned by the loader
+	 * are not cached.
+	 * 
+	 * @param key    is the cache key
+	 * @param loader is used to load the value on a miss
+	 * @return cached or loaded value
+	 */
+	public V get(final K key, final Function<? super K, ? extends V> loader) {
+		V value = this.lookup(key);
+		if (null != value) {
+			this.hitCount.increment();
+			return value;
+		}
+		this.missCount.increment();
+
+		final CompletableFuture<V> future = new CompletableFuture<>();
+		final CompletableFuture<V> inFlight = this.loading.putIfAbsent(key, future);
+		if (null != inFlight) {
+			try {
+				return inFlight.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+
+		try {
+			value = loader.apply(key);
+		} catch (RuntimeException e) {
+			this.loading.remove(key, future);
+			future.completeExceptionally(e);
+			throw e;
+		}
+
+		this.complete(key, future, value);
+		return value;
+	}
+
+	/**
+	 * Get cached values, loading all misses with a single call to the loader.
+	 * Keys the loader does not return are absent from the result.
+	 * 
+	 * @param keys   are the cache keys
+	 * @param loader is used to load the missing keys
+	 * @return cached or loaded values by key
+	 */
+	public Map<K, V> getAll(final Collection<K> keys, final Function<Collection<K>, Map<K, V>> loader) {
+		final Map<K, V> values = new LinkedHashMap<>();
+		final List<K> misses = new ArrayList<>();
+
+		for (K key : keys) {
+			V value = this.lookup(key);
+			if (null != value) {
+				this.hitCount.increment();
+				values.put(key, value);
+			} else {
+				this.missCount.increment();
+				misses.add(key);
+			}
+		}
+
+		if (!misses.isEmpty()) {
+			// Keys already loading elsewhere are loaded again but written by the other load
+			final Map<K, CompletableFuture<V>> futures = new HashMap<>();
+			for (K key : misses) {
+				final CompletableFuture<V> future = new CompletableFuture<>();
+				if (null == this.loading.putIfAbsent(key, future)) {
+					futures.put(key, future);
+				}
+			}
+
+			final Map<K, V> loaded;
+			try {
+				loaded = loader.apply(misses);
+			} catch (RuntimeException e) {
+				futures.forEach((key, future) -> {
+					this.loading.remove(key, future);
+					future.completeExceptionally(e);
+				});
+				throw e;
+			}
+
+			for (K key : misses) {
+				V value = loaded.get(key);
+				final CompletableFuture<V> future = futures.get(key);
+				if (null != future) {
+					this.complete(key, future, value);
+				}
+				if (null != value) {
+					values.put(key, value);
+				}
+			}
+		}
+
+		return values;
+	}
+
+	/**
+	 * Add or replace a value
+	 * 
+	 * @param key   is the cache key
+	 * @param value is the value to cache
+	 */
+	public void put(final K key, final V value) {
+		this.entries.put(key, new Holder<V>(value, System.nanoTime()));
+		this.evictIfNeeded();
+	}
+
+	/**
+	 * Remove a value. Loads in progress for the key will not be cached.
+	 * 
+	 * @param key is the cache key
+	 */
+	public void invalidate(final K key) {
+		// Runs under the lock of the key in the loading map, so a load either
+		// writes before the removal or not at all
+		this.loading.compute(key, (k, inFlight) -> {
+			this.entries.remove(k);
+			return null;
+		});
+	}
+
+	/**
+	 * Remove all values
+	 */
+	public void invalidateAll() {
+		this.loading.clear();
+		this.entries.clear();
+	}
+
+	public int size() {
+		return this.entries.size();
+	}
+
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+
+	public long getEvictionCount() {
+		return this.evictionCount.sum();
+	}
+
+	private V lookup(final K key) {
+		final Holder<V> holder = this.entries.get(key);
+		if (null == holder) {
+			return null;
+		}
+
+		final long now = System.nanoTime();
+		if (this.ttlNanos > 0 && now - holder.loadTime > this.ttlNanos) {
+			this.entries.remove(key, holder);
+			return null;
+		}
+		if (now - holder.accessTime > ACCESS_RESOLUTION_NANOS) {
+			holder.accessTime = now;
+		}
+		return holder.value;
+	}
+
+	/**
+	 * Write a loaded value unless the key was invalidated while it was loading,
+	 * and hand it to the requests waiting on the same load
+	 */
+	private void complete(final K key, final CompletableFuture<V> future, final V value) {
+		this.loading.computeIfPresent(key, (k, inFlight) -> {
+			if (inFlight != future) {
+				return inFlight;
+			}
+			if (null != value) {
+				this.entries.put(k, new Holder<V>(value, System.nanoTime()));
+			}
+			return null;
+		});
+		future.complete(value);
+
+		if (null != value) {
+			this.evictIfNeeded();
+		}
+	}
+
+	private void evictIfNeeded() {
+		// A thread failing to get the lock leaves its entry to the thread holding
+		// it, which checks the size again after unlocking
+		while (this.entries.size() > this.maxSize && this.evictionLock.tryLock()) {
+			try {
+				while (this.entries.size() > this.maxSize && this.evictLeastRecentlyUsed()) {
+					// Evict until the cache is back to its size
+				}
+			} finally {
+				this.evictionLock.unlock();
+			}
+		}
+	}
+
+	private boolean evictLeastRecentlyUsed() {
+		Map.Entry<K, Holder<V>> eldest = null;
+		for (Map.Entry<K, Holder<V>> entry : this.entries.entrySet()) {
+			if (null == eldest || entry.getValue().accessTime - eldest.getValue().accessTime < 0) {
+				eldest = entry;
+			}
+		}
+
+		if (null == eldest) {
+			return false;
+		}
+		if (this.entries.remove(eldest.getKey(), eldest.getValue())) {
+			this.evictionCount.increment();
+		}
+		return true;
+	}
+
+	private static final class Holder<V> {
+
+		private final V value;
+
+		private final long loadTime;
+
+		private volatile long accessTime;
+
+		private Holder(final V value, final long loadTime) {
+			this.value = value;
+			this.loadTime = loadTime;
+			this.accessTime = loadTime;
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package io.github.melangad.spring.config.server.cache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+
+/**
+ * <h1>Label Hierarchy</h1> In-memory index of label inheritance, in both
+ * directions. Parents are loaded from the database on first use and then kept
+ * up to date from the parent carried by every change of a label, so that
+ * changes made on other nodes are picked up as well.
+ *
+ * @author melanga
+ *
+ */
+
+@Component
+public class LabelHierarchy {
+
+	@Autowired
+	private ConfigRepository configRepository;
+
+	private final ConcurrentMap<String, String> parents = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Set<String>> children = new ConcurrentHashMap<>();
+
+	private volatile boolean loaded = false;
+
+	/**
+	 * Get the parent of a label
+	 *
+	 * @param label is a unique identifier for config set
+	 * @return parent label or null if the label has no parent
+	 */
+	public String getParent(final String label) {
+		this.ensureLoaded();
+		return this.parents.get(label);
+	}
+
+	/**
+	 * Get all labels inheriting from a label, directly or through other labels
+	 *
+	 * @param label is a unique identifier for config set
+	 * @return inheriting labels, nearest first
+	 */
+	public List<String> getDescendants(final String label) {
+		this.ensureLoaded();
+
+		final Set<String> children = this.children.get(label);
+		if (null == children || children.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		final List<String> descendants = new ArrayList<>();
+		final Set<String> visited = new HashSet<>();
+		final Deque<String> queue = new ArrayDeque<>(children);
+		visited.add(label);
+
+		while (!queue.isEmpty()) {
+			final String current = queue.poll();
+			if (visited.add(current)) {
+				descendants.add(current);
+				queue.addAll(this.children.getOrDefault(current, Collections.emptySet()));
+			}
+		}
+
+		return descendants;
+	}
+
+	/**
+	 * Apply the parent carried by a change of a label. Has no effect before the
+	 * hierarchy is first used
+	 *
+	 * @param label  is a unique identifier for config set
+	 * @param parent is the current parent label or null if the label has none
+	 */
+	public void update(final String label, final String parent) {
+		if (this.loaded && !Objects.equals(this.parents.get(label), parent)) {
+			this.setParent(label, parent);
+		}
+	}
+
+	/**
+	 * Drop all parents and load them from the database again on next use
+	 */
+	public synchronized void reload() {
+		this.loaded = false;
+		this.parents.clear();
+		this.children.clear();
+	}
+
+	private synchronized void setParent(final String label, final String parent) {
+		final String previous = null == parent ? this.parents.remove(label) : this.parents.put(label, parent);
+
+		if (null != previous && !previous.equals(parent)) {
+			this.children.computeIfPresent(previous, (k, labels) -> {
+				labels.remove(label);
+				return labels.isEmpty() ? null : labels;
+			});
+		}
+		if (null != parent) {
+			this.children.computeIfAbsent(parent, k -> ConcurrentHashMap.newKeySet()).add(label);
+		}
+	}
+
+	private void ensureLoaded() {
+		if (!this.loaded) {
+			synchronized (this) {
+				if (!this.loaded) {
+					this.configRepository.findAllParents()
+							.forEach(view -> this.setParent(view.getLabel(), view.getParentLabel()));
+					this.loaded = true;
+				}
+			}
+		}
+	}
+
+}
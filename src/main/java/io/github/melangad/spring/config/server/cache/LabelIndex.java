@@ -0,0 +1,134 @@
+package io.github.melangad.spring.config.server.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+
+/**
+ * <h1>Label Index</h1> Sorted in-memory index of all labels. Labels are
+ * ordered by their upper case form, as they are listed to clients, and loaded
+ * from the database on first use. Labels are
+ * never removed, so the index only needs to learn about created labels.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+public class LabelIndex {
+
+	private static final Comparator<String> LABEL_ORDER = ((Comparator<String>) LabelIndex::compareUpperCase)
+			.thenComparing(Comparator.naturalOrder());
+
+	@Autowired
+	private ConfigRepository configRepository;
+
+	private final NavigableSet<String> labels = new ConcurrentSkipListSet<>(LABEL_ORDER);
+
+	private volatile boolean loaded = false;
+
+	/**
+	 * Add a label to the index. Adding a known label has no effect
+	 * 
+	 * @param label is a unique identifier for config set
+	 */
+	public void add(final String label) {
+		this.labels.add(label);
+	}
+
+	/**
+	 * Check whether a label exists
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @return true if the label exists
+	 */
+	public boolean contains(final String label) {
+		this.ensureLoaded();
+		return this.labels.contains(label);
+	}
+
+	/**
+	 * Get a page of labels starting with the given prefix, ignoring case
+	 * 
+	 * @param prefix is the label prefix, all labels when null or empty
+	 * @param offset is the number of matching labels to skip
+	 * @param limit  is the maximum number of labels returned
+	 * @return sorted labels
+	 */
+	public List<String> find(final String prefix, final int offset, final int limit) {
+		this.ensureLoaded();
+
+		final List<String> result = new ArrayList<>();
+		final boolean hasPrefix = null != prefix && !prefix.isEmpty();
+		// Upper case sorts first among labels differing only in case
+		final NavigableSet<String> candidates = hasPrefix
+				? this.labels.tailSet(prefix.toUpperCase(Locale.ROOT), true)
+				: this.labels;
+
+		int skipped = 0;
+		for (String label : candidates) {
+			if (hasPrefix && !label.regionMatches(true, 0, prefix, 0, prefix.length())) {
+				break;
+			}
+			if (skipped++ < offset) {
+				continue;
+			}
+			if (result.size() >= limit) {
+				break;
+			}
+			result.add(label);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Drop all labels and load them from the database again on next use
+	 */
+	public synchronized void reload() {
+		this.loaded = false;
+		this.labels.clear();
+	}
+
+	public int size() {
+		this.ensureLoaded();
+		return this.labels.size();
+	}
+
+	/**
+	 * Compare labels as if upper cased, without creating upper case copies.
+	 * Unlike {@link String#CASE_INSENSITIVE_ORDER}, characters between the upper
+	 * and lower case letters, such as underscore, sort after Z
+	 */
+	private static int compareUpperCase(final String a, final String b) {
+		final int length = Math.min(a.length(), b.length());
+		for (int i = 0; i < length; i++) {
+			final char ca = Character.toUpperCase(a.charAt(i));
+			final char cb = Character.toUpperCase(b.charAt(i));
+			if (ca != cb) {
+				return ca - cb;
+			}
+		}
+		return a.length() - b.length();
+	}
+
+	private void ensureLoaded() {
+		if (!this.loaded) {
+			synchronized (this) {
+				if (!this.loaded) {
+					this.labels.addAll(this.configRepository.findAllLabels());
+					this.loaded = true;
+				}
+			}
+		}
+	}
+
+}
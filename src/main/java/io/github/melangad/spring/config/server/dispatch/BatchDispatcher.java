@@ -0,0 +1,192 @@
+package io.github.melangad.spring.config.server.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Batch Dispatcher</h1> Hands items to a consumer on a dedicated thread.
+ * Items are queued in a bounded queue and delivered in order, in batches of
+ * whatever has been queued while the previous batch was being consumed. What
+ * happens when the queue is full is decided by the {@link OverflowPolicy}.
+ * 
+ * @author melanga
+ *
+ * @param <T> item type
+ */
+@Slf4j
+public class BatchDispatcher<T> {
+
+	private final String name;
+
+	private final BlockingQueue<T> queue;
+
+	private final int maxBatchSize;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final Consumer<List<T>> consumer;
+
+	private final Thread worker;
+
+	private volatile boolean running = true;
+
+	private final LongAdder dispatchedCount = new LongAdder();
+
+	private final LongAdder droppedCount = new LongAdder();
+
+	private final LongAdder failedCount = new LongAdder();
+
+	private final LongAdder batchCount = new LongAdder();
+
+	private final LongAdder consumeTimeNanos = new LongAdder();
+
+	private volatile long lastConsumeNanos = 0;
+
+	/**
+	 * @param name           is used to name the dispatch thread
+	 * @param queueSize      is the maximum number of queued items
+	 * @param maxBatchSize   is the maximum number of items handed over at once
+	 * @param overflowPolicy decides what happens when the queue is full
+	 * @param consumer       receives batches of items on the dispatch thread
+	 */
+	public BatchDispatcher(final String name, final int queueSize, final int maxBatchSize,
+			final OverflowPolicy overflowPolicy, final Consumer<List<T>> consumer) {
+		this.name = name;
+		this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.overflowPolicy = null == overflowPolicy ? OverflowPolicy.DROP_NEWEST : overflowPolicy;
+		this.consumer = consumer;
+
+		this.worker = new Thread(this::run, name);
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * Queue an item for delivery
+	 * 
+	 * @param item is the item to deliver
+	 * @return false if the item or an older item was dropped
+	 */
+	public boolean dispatch(final T item) {
+		if (!this.running) {
+			this.droppedCount.increment();
+			return false;
+		}
+
+		switch (this.overflowPolicy) {
+		case BLOCK:
+			try {
+				this.queue.put(item);
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				this.droppedCount.increment();
+				return false;
+			}
+		case DROP_OLDEST:
+			boolean dropped = false;
+			while (!this.queue.offer(item)) {
+				if (null != this.queue.poll()) {
+					this.droppedCount.increment();
+					dropped = true;
+				}
+			}
+			return !dropped;
+		default:
+			if (this.queue.offer(item)) {
+				return true;
+			}
+			this.droppedCount.increment();
+			return false;
+		}
+	}
+
+	/**
+	 * Stop the dispatch thread after delivering the items already queued
+	 * 
+	 * @param timeoutMilli is the maximum time to wait for queued items
+	 */
+	public void shutdown(final long timeoutMilli) {
+		this.running = false;
+		try {
+			this.worker.join(Math.max(1, timeoutMilli));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.worker.interrupt();
+	}
+
+	public int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	public long getDispatchedCount() {
+		return this.dispatchedCount.sum();
+	}
+
+	public long getDroppedCount() {
+		return this.droppedCount.sum();
+	}
+
+	public long getFailedCount() {
+		return this.failedCount.sum();
+	}
+
+	public long getBatchCount() {
+		return this.batchCount.sum();
+	}
+
+	public double getLastConsumeMillis() {
+		return this.lastConsumeNanos / 1_000_000.0;
+	}
+
+	public double getAverageConsumeMillis() {
+		final long batches = this.batchCount.sum();
+		return batches == 0 ? 0 : this.consumeTimeNanos.sum() / 1_000_000.0 / batches;
+	}
+
+	private void run() {
+		final List<T> batch = new ArrayList<>(this.maxBatchSize);
+
+		while (this.running || !this.queue.isEmpty()) {
+			try {
+				final T first = this.queue.poll(100, TimeUnit.MILLISECONDS);
+				if (null == first) {
+					continue;
+				}
+				batch.add(first);
+				this.queue.drainTo(batch, this.maxBatchSize - 1);
+				this.consume(batch);
+			} catch (InterruptedException e) {
+				break;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void consume(final List<T> batch) {
+		final long start = System.nanoTime();
+		try {
+			this.consumer.accept(new ArrayList<>(batch));
+			this.dispatchedCount.add(batch.size());
+		} catch (RuntimeException e) {
+			this.failedCount.add(batch.size());
+			log.error("Dispatcher " + this.name + " failed to deliver " + batch.size() + " items", e);
+		} finally {
+			final long elapsed = System.nanoTime() - start;
+			this.lastConsumeNanos = elapsed;
+			this.consumeTimeNanos.add(elapsed);
+			this.batchCount.increment();
+		}
+	}
+
+}
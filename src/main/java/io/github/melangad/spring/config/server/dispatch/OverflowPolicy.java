@@ -0,0 +1,25 @@
+package io.github.melangad.spring.config.server.dispatch;
+
+/**
+ * Behaviour of a {@link BatchDispatcher} when its queue is full
+ * 
+ * @author melanga
+ *
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * Drop the item being added
+	 */
+	DROP_NEWEST,
+
+	/**
+	 * Drop the oldest queued item to make room for the item being added
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * Block the caller until there is room in the queue
+	 */
+	BLOCK
+}
@@ -0,0 +1,50 @@
+package io.github.melangad.spring.config.server.entity;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Table(name = "CLIENT_FEEDBACK", uniqueConstraints = @UniqueConstraint(columnNames = { "LABEL", "CLIENT_ID" }), indexes = {
+		@Index(name = "IDX_CLIENT_FEEDBACK_LABEL_SEEN", columnList = "LABEL, LAST_SEEN"),
+		@Index(name = "IDX_CLIENT_FEEDBACK_LABEL_VERSION", columnList = "LABEL, CLIENT_VERSION"),
+		@Index(name = "IDX_CLIENT_FEEDBACK_SEEN", columnList = "LAST_SEEN") })
+@Getter
+@Setter
+public class ClientFeedbackRecord {
+
+	@Id
+	@Column(name = "ID")
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	private Long id;
+
+	@Column(name = "LABEL")
+	private String label;
+
+	@Column(name = "CLIENT_ID")
+	private String clientId;
+
+	@Column(name = "CLIENT_VERSION")
+	private int clientVersion;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "CLIENT_UPDATE_TIME")
+	private Date clientUpdateTime;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(name = "LAST_SEEN")
+	private Date lastSeen;
+
+}
@@ -11,6 +11,7 @@ import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -34,6 +35,20 @@ public class Config {
 	@Column(name = "CONFIG_VALUE")
 	private String value;
 
+	/**
+	 * Label whose configuration this label inherits and overrides
+	 */
+	@Column(name = "PARENT_LABEL")
+	private String parentLabel;
+
+	/**
+	 * Optimistic lock guarding concurrent writes of the label. Defaults to 0 so
+	 * that the column can be added to a table which already has rows
+	 */
+	@Version
+	@Column(name = "LOCK_VERSION", nullable = false, columnDefinition = "bigint default 0 not null")
+	private long lockVersion;
+
 	@Temporal(TemporalType.TIMESTAMP)
 	@Column(name = "UPDATE_TIME")
 	private Date updateTime = new Date();
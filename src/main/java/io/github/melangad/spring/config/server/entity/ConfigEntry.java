@@ -0,0 +1,37 @@
+package io.github.melangad.spring.config.server.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Table(name = "CONFIG_ENTRY", uniqueConstraints = @UniqueConstraint(columnNames = { "LABEL", "CONFIG_KEY" }))
+@Getter
+@Setter
+public class ConfigEntry {
+
+	@Id
+	@Column(name = "ID")
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	private Integer id;
+
+	@Column(name = "LABEL")
+	private String label;
+
+	@Column(name = "CONFIG_KEY")
+	private String configKey;
+
+	@Column(name = "CONFIG_VALUE")
+	private String configValue;
+
+	@Column(name = "DESCRIPTION")
+	private String description;
+
+}
@@ -4,9 +4,12 @@ import java.util.Date;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
@@ -15,7 +18,7 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Entity
-@Table(name = "CONFIG_HISTORY")
+@Table(name = "CONFIG_HISTORY", indexes = @Index(name = "IDX_CONFIG_HISTORY_LABEL_VERSION", columnList = "LABEL, CONFIG_VERSION"))
 @Getter
 @Setter
 public class ConfigHistory {
@@ -31,11 +34,27 @@ public class ConfigHistory {
 	@Column(name = "CONFIG_VERSION")
 	private Integer configVersion;
 
+	/**
+	 * Full JSON value of the version for snapshots, otherwise the JSON encoded
+	 * delta which turns the next version back into this version
+	 */
 	@Column(name = "VALUE")
 	private String value;
 
+	/**
+	 * Rows written before delta history was introduced have no type and are
+	 * snapshots
+	 */
+	@Enumerated(EnumType.STRING)
+	@Column(name = "HISTORY_TYPE")
+	private ConfigHistoryType historyType;
+
 	@Temporal(TemporalType.TIMESTAMP)
 	@Column(name = "UPDATE_TIME")
 	private Date updateTime = new Date();
 
+	public boolean isSnapshot() {
+		return ConfigHistoryType.DELTA != this.historyType;
+	}
+
 }
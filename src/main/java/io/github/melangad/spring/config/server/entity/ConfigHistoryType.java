@@ -0,0 +1,6 @@
+package io.github.melangad.spring.config.server.entity;
+
+public enum ConfigHistoryType {
+	SNAPSHOT,
+	DELTA
+}
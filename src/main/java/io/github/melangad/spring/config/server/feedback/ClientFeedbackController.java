@@ -0,0 +1,51 @@
+package io.github.melangad.spring.config.server.feedback;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.github.melangad.spring.config.server.model.ErrorDAO;
+
+@RestController
+@RequestMapping("/config")
+@CrossOrigin("*")
+@ConditionalOnProperty(prefix = "config.server.feedback.store", name = "enabled", havingValue = "true")
+public class ClientFeedbackController {
+
+	@Autowired
+	private JpaClientFeedbackStore clientFeedbackStore;
+
+	@GetMapping("/{label}/clients/stale")
+	public ResponseEntity<?> getStaleClients(@PathVariable String label,
+			@RequestParam(defaultValue = "PT10M") String olderThan, @RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "100") int size) {
+		final Duration age;
+		try {
+			age = Duration.parse(olderThan);
+		} catch (DateTimeParseException e) {
+			return ResponseEntity.badRequest().body(new ErrorDAO("Invalid Duration"));
+		}
+
+		return ResponseEntity.ok(this.clientFeedbackStore.findStaleClients(label,
+				new Date(System.currentTimeMillis() - age.toMillis()), Math.max(0, page),
+				Math.min(Math.max(1, size), 1000)));
+	}
+
+	@GetMapping("/{label}/clients/behind")
+	public ResponseEntity<?> getClientsBehind(@PathVariable String label, @RequestParam int version,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "100") int size) {
+		return ResponseEntity.ok(this.clientFeedbackStore.findClientsBehind(label, version, Math.max(0, page),
+				Math.min(Math.max(1, size), 1000)));
+	}
+
+}
@@ -0,0 +1,292 @@
+package io.github.melangad.spring.config.server.feedback;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.melangad.spring.config.server.ClientFeedbackHandler;
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.entity.ClientFeedbackRecord;
+import io.github.melangad.spring.config.server.model.ClientFeedback;
+import io.github.melangad.spring.config.server.repository.ClientFeedbackRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>JPA Client Feedback Store</h1> Keeps the latest feedback of every client
+ * of a label in the CLIENT_FEEDBACK table. Received feedback is collapsed per
+ * client in memory and written on a schedule, one transaction per flush, so
+ * that a client reporting often costs one row update per flush at most. Rows
+ * of clients which stopped reporting are pruned after the retention period.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.feedback.store", name = "enabled", havingValue = "true")
+@Slf4j
+public class JpaClientFeedbackStore implements ClientFeedbackHandler {
+
+	@Autowired
+	private ClientFeedbackRepository clientFeedbackRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ScheduledExecutorService scheduler;
+
+	private final ConcurrentMap<String, ClientFeedbackRecord> pending = new ConcurrentHashMap<>();
+
+	private final LongAdder writtenCount = new LongAdder();
+
+	private final LongAdder prunedCount = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		final ConfigServerProperties.Feedback.Store store = this.properties.getFeedback().getStore();
+
+		this.transactionTemplate = new TransactionTemplate(this.transactionManager);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "config-feedback-store");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::flushSafely, store.getFlushInterval().toMillis(),
+				store.getFlushInterval().toMillis(), TimeUnit.MILLISECONDS);
+		this.scheduler.scheduleWithFixedDelay(this::pruneSafely, store.getPruneInterval().toMillis(),
+				store.getPruneInterval().toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		this.scheduler.shutdownNow();
+		this.flushSafely();
+	}
+
+	@Override
+	public void onClientFeedback(final ClientFeedback clientFeedback) {
+		final ClientFeedbackRecord record = new ClientFeedbackRecord();
+		record.setLabel(clientFeedback.getLabel());
+		record.setClientId(clientFeedback.getClientId());
+		record.setClientVersion(clientFeedback.getClientVersion());
+		record.setClientUpdateTime(clientFeedback.getLastUpdateTime());
+		record.setLastSeen(new Date());
+
+		this.pending.put(this.pendingKey(record), record);
+	}
+
+	/**
+	 * Write collected feedback. Existing rows are loaded per label in chunks of
+	 * the batch size and updated, new clients are inserted. A chunk failing
+	 * because another node inserted one of its clients meanwhile is written
+	 * again row by row. When a chunk fails for any other reason, it and all
+	 * chunks not written yet go back to the pending feedback, unless newer
+	 * feedback of the same client arrived meanwhile.
+	 * 
+	 * @return number of written rows
+	 */
+	public synchronized int flush() {
+		// Feedback arriving meanwhile stays pending for the next flush
+		final List<ClientFeedbackRecord> records = new ArrayList<>();
+		this.pending.forEach((key, record) -> {
+			if (this.pending.remove(key, record)) {
+				records.add(record);
+			}
+		});
+		if (records.isEmpty()) {
+			return 0;
+		}
+
+		final int batchSize = Math.max(1, this.properties.getFeedback().getStore().getBatchSize());
+		final Map<String, List<ClientFeedbackRecord>> byLabel = records.stream()
+				.collect(Collectors.groupingBy(ClientFeedbackRecord::getLabel));
+
+		final List<List<ClientFeedbackRecord>> chunks = new ArrayList<>();
+		byLabel.values().forEach(labelRecords -> {
+			for (int from = 0; from < labelRecords.size(); from += batchSize) {
+				chunks.add(labelRecords.subList(from, Math.min(from + batchSize, labelRecords.size())));
+			}
+		});
+
+		int written = 0;
+		for (int i = 0; i < chunks.size(); i++) {
+			try {
+				written += this.write(chunks.get(i).get(0).getLabel(), chunks.get(i));
+			} catch (RuntimeException e) {
+				chunks.subList(i, chunks.size()).forEach(chunk -> chunk.forEach(this::requeue));
+				this.writtenCount.add(written);
+				throw e;
+			}
+		}
+
+		this.writtenCount.add(written);
+		return written;
+	}
+
+	/**
+	 * Remove rows of clients which have not reported within the retention period
+	 * 
+	 * @return number of removed rows
+	 */
+	public int prune() {
+		final Date lastSeen = new Date(
+				System.currentTimeMillis() - this.properties.getFeedback().getStore().getRetention().toMillis());
+		final Integer pruned = this.transactionTemplate
+				.execute(status -> this.clientFeedbackRepository.deleteByLastSeenBefore(lastSeen));
+
+		this.prunedCount.add(pruned);
+		return pruned;
+	}
+
+	/**
+	 * Clients of a label which have not reported since the given time
+	 * 
+	 * @param label    is a unique identifier for config set
+	 * @param lastSeen is the time clients have to have reported after
+	 * @param page     is the zero based page number
+	 * @param size     is the page size
+	 * @return stale clients, least recently seen first
+	 */
+	public List<ClientFeedback> findStaleClients(final String label, final Date lastSeen, final int page,
+			final int size) {
+		return this.clientFeedbackRepository
+				.findByLabelAndLastSeenBeforeOrderByLastSeen(label, lastSeen, PageRequest.of(page, size)).stream()
+				.map(this::convertToClientFeedback).collect(Collectors.toList());
+	}
+
+	/**
+	 * Clients of a label on a version older than the given version
+	 * 
+	 * @param label   is a unique identifier for config set
+	 * @param version is the version clients are compared to
+	 * @param page    is the zero based page number
+	 * @param size    is the page size
+	 * @return clients behind the version, oldest version first
+	 */
+	public List<ClientFeedback> findClientsBehind(final String label, final int version, final int page,
+			final int size) {
+		return this.clientFeedbackRepository
+				.findByLabelAndClientVersionLessThanOrderByClientVersion(label, version, PageRequest.of(page, size))
+				.stream().map(this::convertToClientFeedback).collect(Collectors.toList());
+	}
+
+	public int getPendingCount() {
+		return this.pending.size();
+	}
+
+	public long getWrittenCount() {
+		return this.writtenCount.sum();
+	}
+
+	public long getPrunedCount() {
+		return this.prunedCount.sum();
+	}
+
+	private int write(final String label, final List<ClientFeedbackRecord> records) {
+		try {
+			return this.transactionTemplate.execute(status -> this.upsert(label, records));
+		} catch (DataIntegrityViolationException e) {
+			log.debug("Retrying client feedback of label " + label + " row by row: " + e.getMessage());
+		}
+
+		// Rows inserted by the other node are found as existing now
+		int written = 0;
+		for (ClientFeedbackRecord record : records) {
+			try {
+				written += this.transactionTemplate
+						.execute(status -> this.upsert(label, Collections.singletonList(record)));
+			} catch (DataIntegrityViolationException e) {
+				log.warn("Unable to store feedback of client " + record.getClientId() + " of label " + label + ": "
+						+ e.getMessage());
+			}
+		}
+		return written;
+	}
+
+	private int upsert(final String label, final List<ClientFeedbackRecord> records) {
+		final Map<String, ClientFeedbackRecord> existing = new HashMap<>();
+		this.clientFeedbackRepository
+				.findByLabelAndClientIdIn(label,
+						records.stream().map(ClientFeedbackRecord::getClientId).collect(Collectors.toList()))
+				.forEach(r -> existing.put(r.getClientId(), r));
+
+		final List<ClientFeedbackRecord> rows = new ArrayList<>(records.size());
+		records.forEach(r -> {
+			final ClientFeedbackRecord row = existing.get(r.getClientId());
+			if (null == row) {
+				// An insert rolled back before may have assigned an id already
+				r.setId(null);
+				rows.add(r);
+			} else {
+				row.setClientVersion(r.getClientVersion());
+				row.setClientUpdateTime(r.getClientUpdateTime());
+				row.setLastSeen(r.getLastSeen());
+				rows.add(row);
+			}
+		});
+
+		this.clientFeedbackRepository.saveAll(rows);
+		return rows.size();
+	}
+
+	private void requeue(final ClientFeedbackRecord record) {
+		this.pending.putIfAbsent(this.pendingKey(record), record);
+	}
+
+	private String pendingKey(final ClientFeedbackRecord record) {
+		return record.getLabel() + "\u0000" + record.getClientId();
+	}
+
+	private ClientFeedback convertToClientFeedback(final ClientFeedbackRecord record) {
+		final ClientFeedback clientFeedback = new ClientFeedback();
+		clientFeedback.setLabel(record.getLabel());
+		clientFeedback.setClientId(record.getClientId());
+		clientFeedback.setClientVersion(record.getClientVersion());
+		clientFeedback.setLastUpdateTime(record.getClientUpdateTime());
+
+		return clientFeedback;
+	}
+
+	private void flushSafely() {
+		try {
+			this.flush();
+		} catch (RuntimeException e) {
+			log.error("Unable to store client feedback", e);
+		}
+	}
+
+	private void pruneSafely() {
+		try {
+			this.prune();
+		} catch (RuntimeException e) {
+			log.error("Unable to prune client feedback", e);
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package io.github.melangad.spring.config.server.metrics;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.ClientFeedbackService;
+import io.github.melangad.spring.config.server.ConfigCacheWarmer;
+import io.github.melangad.spring.config.server.ConfigEventDispatcher;
+import io.github.melangad.spring.config.server.ConfigPushChannel;
+import io.github.melangad.spring.config.server.ConfigWriteExecutor;
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.propagation.PollingConfigChangePropagator;
+import io.github.melangad.spring.config.server.snapshot.ConfigSnapshotService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * <h1>Config Server Meter Binder</h1> Exposes the counters kept by the config
+ * server components as meters. Bound automatically when Actuator provides a
+ * meter registry.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+public class ConfigServerMeterBinder implements MeterBinder {
+
+	@Autowired
+	private ConfigCache configCache;
+
+	@Autowired
+	private List<ConfigPushChannel> configPushChannels;
+
+	@Autowired
+	private ConfigWriteExecutor configWriteExecutor;
+
+	@Autowired
+	private ConfigEventDispatcher configEventDispatcher;
+
+	@Autowired
+	private ClientFeedbackService clientFeedbackService;
+
+	@Autowired(required = false)
+	private PollingConfigChangePropagator pollingConfigChangePropagator;
+
+	@Autowired(required = false)
+	private ConfigCacheWarmer configCacheWarmer;
+
+	@Autowired(required = false)
+	private ConfigSnapshotService configSnapshotService;
+
+	@Override
+	public void bindTo(final MeterRegistry registry) {
+		Gauge.builder("config.server.cache.size", this.configCache, ConfigCache::size).register(registry);
+		FunctionCounter.builder("config.server.cache.hits", this.configCache, ConfigCache::getHitCount)
+				.register(registry);
+		FunctionCounter.builder("config.server.cache.misses", this.configCache, ConfigCache::getMissCount)
+				.register(registry);
+		FunctionCounter.builder("config.server.cache.evictions", this.configCache, ConfigCache::getEvictionCount)
+				.register(registry);
+
+		Gauge.builder("config.server.push.subscribers.total", this.configPushChannels,
+				channels -> sum(channels,
+						c -> c.getSubscriberCounts().values().stream().mapToInt(Integer::intValue).sum()))
+				.register(registry);
+		FunctionCounter.builder("config.server.push.broadcasts", this.configPushChannels,
+				channels -> sum(channels, ConfigPushChannel::getBroadcastCount)).register(registry);
+		FunctionCounter.builder("config.server.push.dropped", this.configPushChannels,
+				channels -> sum(channels, ConfigPushChannel::getDroppedCount)).register(registry);
+
+		FunctionCounter.builder("config.server.write.retries", this.configWriteExecutor,
+				ConfigWriteExecutor::getRetryCount).register(registry);
+		FunctionCounter.builder("config.server.write.conflicts", this.configWriteExecutor,
+				ConfigWriteExecutor::getConflictCount).register(registry);
+
+		Gauge.builder("config.server.events.queue.depth", this.configEventDispatcher,
+				ConfigEventDispatcher::getQueueDepth).register(registry);
+		FunctionCounter.builder("config.server.events.dispatched", this.configEventDispatcher,
+				ConfigEventDispatcher::getDispatchedCount).register(registry);
+		FunctionCounter.builder("config.server.events.dropped", this.configEventDispatcher,
+				ConfigEventDispatcher::getDroppedCount).register(registry);
+		FunctionCounter.builder("config.server.events.handler.failures", this.configEventDispatcher,
+				ConfigEventDispatcher::getHandlerFailureCount).register(registry);
+
+		Gauge.builder("config.server.feedback.queue.depth", this.clientFeedbackService,
+				ClientFeedbackService::getQueueDepth).register(registry);
+		Gauge.builder("config.server.feedback.clients", this.clientFeedbackService,
+				ClientFeedbackService::getClientCount).register(registry);
+		FunctionCounter.builder("config.server.feedback.processed", this.clientFeedbackService,
+				ClientFeedbackService::getProcessedCount).register(registry);
+		FunctionCounter.builder("config.server.feedback.dropped", this.clientFeedbackService,
+				ClientFeedbackService::getDroppedCount).register(registry);
+
+		if (null != this.pollingConfigChangePropagator) {
+			Gauge.builder("config.server.propagation.lag", this.pollingConfigChangePropagator,
+					PollingConfigChangePropagator::getLastLagMillis).baseUnit("milliseconds").register(registry);
+			Gauge.builder("config.server.propagation.poll.time", this.pollingConfigChangePropagator,
+					PollingConfigChangePropagator::getLastPollTimeMillis).baseUnit("milliseconds").register(registry);
+		}
+
+		if (null != this.configCacheWarmer) {
+			Gauge.builder("config.server.warmup.labels", this.configCacheWarmer, ConfigCacheWarmer::getLabelCount)
+					.register(registry);
+			Gauge.builder("config.server.warmup.duration", this.configCacheWarmer,
+					ConfigCacheWarmer::getDurationMillis).baseUnit("milliseconds").register(registry);
+			Gauge.builder("config.server.warmup.heap", this.configCacheWarmer,
+					ConfigCacheWarmer::getEstimatedHeapBytes).baseUnit("bytes").register(registry);
+		}
+
+		if (null != this.configSnapshotService) {
+			Gauge.builder("config.server.snapshot.labels", this.configSnapshotService,
+					ConfigSnapshotService::getLabelCount).register(registry);
+			FunctionCounter.builder("config.server.snapshot.fallback.reads", this.configSnapshotService,
+					ConfigSnapshotService::getFallbackReadCount).register(registry);
+			FunctionCounter.builder("config.server.snapshot.write.failures", this.configSnapshotService,
+					ConfigSnapshotService::getWriteFailureCount).register(registry);
+		}
+	}
+
+	private static long sum(final List<ConfigPushChannel> channels, final ToLongFunction<ConfigPushChannel> count) {
+		return channels.stream().mapToLong(count).sum();
+	}
+
+}
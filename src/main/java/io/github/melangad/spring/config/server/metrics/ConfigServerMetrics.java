@@ -0,0 +1,142 @@
+package io.github.melangad.spring.config.server.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * <h1>Config Server Metrics</h1> Micrometer meters recorded on the read, write
+ * and notification paths. Meters are registered with the application meter
+ * registry, which Actuator exposes, or with the global registry when there is
+ * none. Per label meters are limited to the configured labels, or to the first
+ * labels seen, and all other labels share the <code>other</code> tag.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+public class ConfigServerMetrics {
+
+	public static final String OTHER_LABEL = "other";
+
+	@Autowired(required = false)
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+
+	private final ConcurrentMap<String, String> labelTags = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, DistributionSummary> payloadSizes = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, Counter> responseCounters = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		if (null == this.meterRegistry) {
+			this.meterRegistry = Metrics.globalRegistry;
+		}
+
+		for (Stage stage : Stage.values()) {
+			this.stageTimers.put(stage, Timer.builder("config.server.stage").tag("stage", stage.getTag())
+					.description("Time spent in a stage of config reads, writes and notifications")
+					.register(this.meterRegistry));
+		}
+	}
+
+	public MeterRegistry getMeterRegistry() {
+		return this.meterRegistry;
+	}
+
+	/**
+	 * Record time spent in a stage
+	 * 
+	 * @param stage     is the stage
+	 * @param startNano is the {@link System#nanoTime()} at the start of the stage
+	 */
+	public void record(final Stage stage, final long startNano) {
+		this.stageTimers.get(stage).record(System.nanoTime() - startNano, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Record the size of a serialized configuration
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @param bytes is the size of the JSON body
+	 */
+	public void recordPayloadSize(final String label, final int bytes) {
+		this.payloadSizes.computeIfAbsent(this.labelTag(label),
+				tag -> DistributionSummary.builder("config.server.payload.size").tag("label", tag).baseUnit("bytes")
+						.description("Size of serialized label configurations").register(this.meterRegistry))
+				.record(bytes);
+	}
+
+	/**
+	 * Count a served configuration response
+	 * 
+	 * @param type is the kind of response, such as full, gzip or not_modified
+	 */
+	public void countResponse(final String type) {
+		this.responseCounters.computeIfAbsent(type, t -> Counter.builder("config.server.responses").tag("type", t)
+				.description("Config responses by kind").register(this.meterRegistry)).increment();
+	}
+
+	/**
+	 * Register a gauge for a label, unless the label shares the other tag
+	 * 
+	 * @param name     is the meter name
+	 * @param label    is a unique identifier for config set
+	 * @param obj      is the object the gauge reads
+	 * @param function reads the value of the label from the object
+	 */
+	public <T> void registerLabelGauge(final String name, final String label, final T obj,
+			final ToDoubleFunction<T> function) {
+		if (!OTHER_LABEL.equals(this.labelTag(label))) {
+			// Registering an existing gauge returns the existing one
+			Gauge.builder(name, obj, function).tag("label", label).register(this.meterRegistry);
+		}
+	}
+
+	/**
+	 * Tag value of a label
+	 * 
+	 * @param label is a unique identifier for config set
+	 * @return the label if it may be used as a tag, other otherwise
+	 */
+	public String labelTag(final String label) {
+		final ConfigServerProperties.Metrics metrics = this.properties.getMetrics();
+
+		if (!metrics.getTaggedLabels().isEmpty()) {
+			return metrics.getTaggedLabels().contains(label) ? label : OTHER_LABEL;
+		}
+
+		final String tag = this.labelTags.get(label);
+		if (null != tag) {
+			return tag;
+		}
+		if (this.labelTags.size() >= metrics.getMaxTaggedLabels()) {
+			return OTHER_LABEL;
+		}
+		return this.labelTags.computeIfAbsent(label, l -> l);
+	}
+
+}
@@ -0,0 +1,63 @@
+package io.github.melangad.spring.config.server.metrics;
+
+import java.util.Locale;
+
+/**
+ * Timed stages of config reads, writes and notifications
+ * 
+ * @author melanga
+ *
+ */
+public enum Stage {
+
+	/**
+	 * Loading label rows from the database
+	 */
+	DB_FETCH,
+
+	/**
+	 * Reading configuration entries from the value store, including JSON parsing
+	 */
+	DECODE,
+
+	/**
+	 * Sorting configuration entries by key
+	 */
+	SORT,
+
+	/**
+	 * Serializing a configuration response body
+	 */
+	ENCODE,
+
+	/**
+	 * Writing configuration entries to the value store, including JSON
+	 * serialization
+	 */
+	STORE_WRITE,
+
+	/**
+	 * Building and saving a history record
+	 */
+	HISTORY_WRITE,
+
+	/**
+	 * Delivering a batch of events to one event handler
+	 */
+	EVENT_DISPATCH,
+
+	/**
+	 * Sending one Server Sent Event to one client
+	 */
+	SSE_SEND,
+
+	/**
+	 * Sending one Server Sent Event to all clients of a label
+	 */
+	SSE_BROADCAST;
+
+	public String getTag() {
+		return this.name().toLowerCase(Locale.ROOT);
+	}
+
+}
@@ -0,0 +1,17 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ConfigBatchDAO {
+	private Map<String, ConfigDetailDAO> configs = new LinkedHashMap<>();
+	private List<String> notFound = new ArrayList<>();
+
+}
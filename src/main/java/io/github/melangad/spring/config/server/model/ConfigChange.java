@@ -0,0 +1,27 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@RequiredArgsConstructor
+@ToString
+public class ConfigChange implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@NonNull
+	private final String label;
+
+	private final int configVersion;
+
+	private final Date updateTime;
+
+	private final String parentLabel;
+
+}
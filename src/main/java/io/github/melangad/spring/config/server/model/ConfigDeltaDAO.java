@@ -0,0 +1,18 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ConfigDeltaDAO {
+	private int fromVersion;
+	private int toVersion;
+	private List<ConfigMetaDAO> added = new ArrayList<>();
+	private List<ConfigMetaDAO> changed = new ArrayList<>();
+	private List<ConfigMetaDAO> removed = new ArrayList<>();
+
+}
@@ -3,5 +3,6 @@ package io.github.melangad.spring.config.server.model;
 public enum ConfigEventType {
 	CONFIG_CREATE,
 	CONFIG_PATCH,
-	CONFIG_UPDATE
+	CONFIG_UPDATE,
+	CONFIG_PARENT_UPDATE
 }
@@ -0,0 +1,17 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ConfigFleetDAO {
+	private String label;
+	private int currentVersion;
+	private long clientCount;
+	private Map<Integer, Long> versionCounts = new TreeMap<>();
+
+}
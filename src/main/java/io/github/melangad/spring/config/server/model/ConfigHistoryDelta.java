@@ -0,0 +1,18 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Changes which turn a configuration version back into its previous version
+ */
+@Getter
+@Setter
+public class ConfigHistoryDelta {
+	private List<ConfigMetaDAO> upserts = new ArrayList<>();
+	private List<String> removals = new ArrayList<>();
+
+}
@@ -0,0 +1,18 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ConfigImportDAO {
+	private String label;
+	private int version;
+	private long entryCount;
+	private long errorCount;
+	private List<String> errors = new ArrayList<>();
+
+}
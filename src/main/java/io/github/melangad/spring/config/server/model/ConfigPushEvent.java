@@ -8,6 +8,7 @@ import lombok.Setter;
 @Getter
 @Setter
 public class ConfigPushEvent {
+	private String label;
 	private int configVersion = 0;
 	private Date updateTime = new Date();
 
@@ -0,0 +1,14 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.Date;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ConfigVersionDAO {
+	private int version;
+	private Date updateTime;
+
+}
@@ -0,0 +1,18 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class ConfigVersionPageDAO {
+	private int currentVersion;
+	private int page;
+	private int size;
+	private long totalElements;
+	private List<ConfigVersionDAO> versions = new ArrayList<>();
+
+}
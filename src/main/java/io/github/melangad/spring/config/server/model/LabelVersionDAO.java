@@ -0,0 +1,15 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.Date;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class LabelVersionDAO {
+	private String label;
+	private int version;
+	private Date updateTime;
+
+}
@@ -0,0 +1,17 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class LabelVersionPageDAO {
+	private int page;
+	private int size;
+	private long totalElements;
+	private List<LabelVersionDAO> labels = new ArrayList<>();
+
+}
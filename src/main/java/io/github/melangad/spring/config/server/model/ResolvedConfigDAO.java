@@ -0,0 +1,22 @@
+package io.github.melangad.spring.config.server.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration of a label merged with the configuration of its ancestors.
+ * Layers are listed from the root ancestor to the label itself and later
+ * layers override the keys of earlier ones.
+ * 
+ * @author melanga
+ *
+ */
+@Getter
+@Setter
+public class ResolvedConfigDAO extends ConfigDetailDAO {
+	private List<LabelVersionDAO> layers = new ArrayList<>();
+
+}
@@ -0,0 +1,59 @@
+package io.github.melangad.spring.config.server.propagation;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.ConfigChangeListener;
+import io.github.melangad.spring.config.server.ConfigChangePropagator;
+import io.github.melangad.spring.config.server.model.ConfigChange;
+
+/**
+ * <h1>Local Config Change Propagator</h1> In-process broker stand-in which
+ * delivers changes between all server instances running in the same JVM. Useful
+ * for tests and for running several application contexts side by side.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.propagation", name = "mode", havingValue = "local")
+public class LocalConfigChangePropagator implements ConfigChangePropagator {
+
+	private static final Set<LocalConfigChangePropagator> NODES = ConcurrentHashMap.newKeySet();
+
+	private final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	@PostConstruct
+	public void init() {
+		NODES.add(this);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		NODES.remove(this);
+	}
+
+	@Override
+	public void publish(final ConfigChange configChange) {
+		NODES.stream().filter(node -> node != this).forEach(node -> node.deliver(configChange));
+	}
+
+	@Override
+	public void subscribe(final ConfigChangeListener listener) {
+		this.listeners.add(listener);
+	}
+
+	private void deliver(final ConfigChange configChange) {
+		this.listeners.forEach(listener -> listener.onConfigChange(configChange));
+	}
+
+}
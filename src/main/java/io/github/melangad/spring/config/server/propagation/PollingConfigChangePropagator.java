@@ -0,0 +1,192 @@
+package io.github.melangad.spring.config.server.propagation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.github.melangad.spring.config.server.ConfigChangeListener;
+import io.github.melangad.spring.config.server.ConfigChangePropagator;
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.model.ConfigChange;
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import io.github.melangad.spring.config.server.repository.ConfigStateView;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Polling Config Change Propagator</h1> Default change propagator. Reads
+ * label, version and update time of all labels with a single query at a fixed
+ * interval and reports labels whose version moved since the previous poll. The
+ * first poll only records the current versions.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.propagation", name = "mode", havingValue = "polling", matchIfMissing = true)
+@Slf4j
+public class PollingConfigChangePropagator implements ConfigChangePropagator {
+
+	@Autowired
+	private ConfigRepository configRepository;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private final List<ConfigChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final Map<String, Integer> knownVersionMap = new ConcurrentHashMap<>();
+
+	private ScheduledExecutorService scheduler;
+
+	private volatile boolean initialized = false;
+
+	private final LongAdder pollCount = new LongAdder();
+
+	private final LongAdder pollTimeNanos = new LongAdder();
+
+	private final LongAdder changeCount = new LongAdder();
+
+	private final LongAdder lagMillis = new LongAdder();
+
+	private volatile long lastPollNanos = 0;
+
+	private volatile long lastLagMillis = 0;
+
+	@PostConstruct
+	public void init() {
+		final long interval = this.properties.getPropagation().getPollInterval().toMillis();
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "config-change-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::poll, 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		this.scheduler.shutdownNow();
+	}
+
+	@Override
+	public void publish(final ConfigChange configChange) {
+		// Local changes are already applied, only remember the version so the next
+		// poll does not report it again
+		this.knownVersionMap.merge(configChange.getLabel(), configChange.getConfigVersion(), Math::max);
+	}
+
+	@Override
+	public void subscribe(final ConfigChangeListener listener) {
+		this.listeners.add(listener);
+	}
+
+	/**
+	 * Read current versions of all labels and report changed labels
+	 */
+	public void poll() {
+		try {
+			final long start = System.nanoTime();
+			final List<ConfigStateView> versions = this.configRepository.findAllVersions();
+			final long elapsed = System.nanoTime() - start;
+
+			this.lastPollNanos = elapsed;
+			this.pollTimeNanos.add(elapsed);
+			this.pollCount.increment();
+
+			versions.forEach(this::onVersion);
+			this.initialized = true;
+		} catch (Exception e) {
+			log.error("Unable to poll config versions: " + e.getMessage(), e);
+		}
+	}
+
+	public long getPollCount() {
+		return this.pollCount.sum();
+	}
+
+	public long getChangeCount() {
+		return this.changeCount.sum();
+	}
+
+	/**
+	 * Query time of the last poll
+	 * 
+	 * @return query time in milliseconds
+	 */
+	public double getLastPollTimeMillis() {
+		return this.lastPollNanos / 1_000_000.0;
+	}
+
+	/**
+	 * Average query time of a poll
+	 * 
+	 * @return query time in milliseconds
+	 */
+	public double getAveragePollTimeMillis() {
+		final long count = this.pollCount.sum();
+		return count == 0 ? 0 : this.pollTimeNanos.sum() / 1_000_000.0 / count;
+	}
+
+	/**
+	 * Time between the update of the last remote change and it being noticed
+	 * on this node
+	 * 
+	 * @return propagation lag in milliseconds
+	 */
+	public long getLastLagMillis() {
+		return this.lastLagMillis;
+	}
+
+	/**
+	 * Average time between the update of a remote change and it being noticed on
+	 * this node
+	 * 
+	 * @return propagation lag in milliseconds
+	 */
+	public double getAverageLagMillis() {
+		final long count = this.changeCount.sum();
+		return count == 0 ? 0 : (double) this.lagMillis.sum() / count;
+	}
+
+	private void onVersion(final ConfigStateView view) {
+		if (null == view.getConfigVersion()) {
+			return;
+		}
+
+		final Integer previous = this.knownVersionMap.get(view.getLabel());
+		if (null != previous && previous >= view.getConfigVersion()) {
+			return;
+		}
+		this.knownVersionMap.merge(view.getLabel(), view.getConfigVersion(), Math::max);
+
+		if (!this.initialized) {
+			return;
+		}
+
+		if (null != view.getUpdateTime()) {
+			final long lag = Math.max(0, System.currentTimeMillis() - view.getUpdateTime().getTime());
+			this.lastLagMillis = lag;
+			this.lagMillis.add(lag);
+		}
+		this.changeCount.increment();
+
+		final ConfigChange change = new ConfigChange(view.getLabel(), view.getConfigVersion(),
+				view.getUpdateTime(), view.getParentLabel());
+		this.listeners.forEach(listener -> listener.onConfigChange(change));
+	}
+
+}
@@ -0,0 +1,230 @@
+package io.github.melangad.spring.config.server.reactive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import io.github.melangad.spring.config.server.ConfigRequestHandler;
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.model.ClientFeedback;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.model.ErrorDAO;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * <h1>Reactive Config Controller</h1> Spring WebFlux variant of the config API,
+ * active when the application runs as a reactive web application. Requests are
+ * answered by the same {@link ConfigRequestHandler} as the Spring MVC
+ * controller, on a bounded scheduler so that database calls never block the
+ * event loop. Push subscriptions and watch requests hold no thread and no
+ * request state beyond their place on the label stream.
+ * 
+ * @author melanga
+ *
+ */
+
+@RestController
+@RequestMapping("/config")
+@CrossOrigin("*")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveConfigController {
+
+	private static final String IMPORT_FILE_PREFIX = "config-import-";
+
+	@Autowired
+	private ConfigRequestHandler configRequestHandler;
+
+	@Autowired
+	private ReactiveConfigPushService reactiveConfigPushService;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private Scheduler blockingScheduler;
+
+	@PostConstruct
+	public void init() {
+		final ConfigServerProperties.Reactive reactive = this.properties.getReactive();
+
+		this.blockingScheduler = Schedulers.newBoundedElastic(reactive.getBlockingThreads(),
+				reactive.getBlockingQueueSize(), "config-blocking", 60, true);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		this.blockingScheduler.dispose();
+	}
+
+	@GetMapping("/")
+	public Mono<ResponseEntity<?>> getLabelList(@RequestParam(required = false) String prefix,
+			@RequestParam(required = false) Integer page, @RequestParam(required = false) Integer size) {
+		return this.blocking(() -> this.configRequestHandler.getLabelList(prefix, page, size));
+	}
+
+	@GetMapping("/_versions")
+	public Mono<ResponseEntity<?>> getLabelVersions(@RequestParam(required = false) String prefix,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "100") int size) {
+		return this.blocking(() -> this.configRequestHandler.getLabelVersions(prefix, page, size));
+	}
+
+	@GetMapping("/{label}")
+	public Mono<ResponseEntity<?>> getConfig(@PathVariable String label, @RequestHeader HttpHeaders headers,
+			@RequestParam(required = false) Integer sinceVersion, @RequestParam(required = false) String prefix,
+			@RequestParam(required = false) List<String> keys) {
+		return this.blocking(() -> this.configRequestHandler.getConfig(label, headers, sinceVersion, prefix, keys));
+	}
+
+	@GetMapping("/{label}/resolved")
+	public Mono<ResponseEntity<?>> getResolvedConfig(@PathVariable String label, @RequestHeader HttpHeaders headers,
+			@RequestParam(required = false) String prefix, @RequestParam(required = false) List<String> keys) {
+		return this.blocking(() -> this.configRequestHandler.getResolvedConfig(label, headers, prefix, keys));
+	}
+
+	/**
+	 * Answer once the label moves past the given version, or with Not Modified
+	 * when the watch times out. The label stream is joined before the current
+	 * version is read, so a change in between is not missed. Changes of ancestors
+	 * on the stream carry the version of the ancestor and are skipped
+	 */
+	@GetMapping("/{label}/watch")
+	public Mono<ResponseEntity<?>> watchConfig(@PathVariable String label, @RequestParam int version) {
+		final Mono<ResponseEntity<?>> changed = this.reactiveConfigPushService.events(label)
+				.filter(event -> label.equals(event.getLabel()) && event.getConfigVersion() > version).next()
+				.<ResponseEntity<?>>map(ResponseEntity::ok);
+		final Mono<ResponseEntity<?>> answered = this
+				.blocking(() -> this.configRequestHandler.checkWatch(label, version).orElse(null));
+
+		return Flux.<ResponseEntity<?>>merge(changed, answered).next().timeout(this.properties.getWatch().getTimeout(),
+				Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build()));
+	}
+
+	@GetMapping("/{label}/versions")
+	public Mono<ResponseEntity<?>> getConfigVersions(@PathVariable String label,
+			@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+		return this.blocking(() -> this.configRequestHandler.getConfigVersions(label, page, size));
+	}
+
+	@GetMapping("/{label}/versions/{version}")
+	public Mono<ResponseEntity<?>> getConfigVersion(@PathVariable String label, @PathVariable int version) {
+		return this.blocking(() -> this.configRequestHandler.getConfigVersion(label, version));
+	}
+
+	@PostMapping("/_batch")
+	public Mono<ResponseEntity<?>> getConfigs(@RequestBody List<String> labels) {
+		return this.blocking(() -> this.configRequestHandler.getConfigs(labels));
+	}
+
+	@PostMapping("/{label}")
+	public Mono<ResponseEntity<?>> createConfig(@PathVariable String label,
+			@RequestBody List<ConfigMetaDAO> configs) {
+		return this.blocking(() -> this.configRequestHandler.createConfig(label, configs));
+	}
+
+	/**
+	 * The request body is spooled to a temporary file as it arrives, so that large
+	 * imports are not held in memory and no thread waits on the upload. The import
+	 * reads the file on the bounded scheduler once the body is complete
+	 */
+	@PostMapping("/{label}/_import")
+	public Mono<ResponseEntity<?>> importConfig(@PathVariable String label,
+			@RequestParam(defaultValue = "create") String mode, @RequestBody Flux<DataBuffer> body) {
+		return Mono.using(() -> Files.createTempFile(IMPORT_FILE_PREFIX, ".json"),
+				file -> DataBufferUtils.write(body, file).then(this.blocking(() -> {
+					try (InputStream input = Files.newInputStream(file)) {
+						return this.configRequestHandler.importConfig(label, mode, input);
+					}
+				})), ReactiveConfigController::deleteQuietly);
+	}
+
+	@PatchMapping("/{label}")
+	public Mono<ResponseEntity<?>> patchConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.blocking(() -> this.configRequestHandler.patchConfig(label, configs, ifMatch));
+	}
+
+	@PutMapping("/{label}")
+	public Mono<ResponseEntity<?>> updateConfig(@PathVariable String label, @RequestBody List<ConfigMetaDAO> configs,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.blocking(() -> this.configRequestHandler.updateConfig(label, configs, ifMatch));
+	}
+
+	@PostMapping("/feedback")
+	public Mono<ResponseEntity<?>> getFeedback(@RequestBody ClientFeedback clientFeedback) {
+		return this.blocking(() -> this.configRequestHandler.processFeedback(clientFeedback));
+	}
+
+	@PutMapping("/{label}/parent")
+	public Mono<ResponseEntity<?>> updateParent(@PathVariable String label, @RequestParam String parent,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.blocking(() -> this.configRequestHandler.setParent(label, parent, ifMatch));
+	}
+
+	@DeleteMapping("/{label}/parent")
+	public Mono<ResponseEntity<?>> removeParent(@PathVariable String label,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		return this.blocking(() -> this.configRequestHandler.setParent(label, null, ifMatch));
+	}
+
+	@GetMapping("/{label}/fleet")
+	public Mono<ResponseEntity<?>> getConfigFleet(@PathVariable String label) {
+		return this.blocking(() -> this.configRequestHandler.getConfigFleet(label));
+	}
+
+	@GetMapping(path = "/notification/{label}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<String>> doNotify(@PathVariable String label) {
+		return this.reactiveConfigPushService.subscribe(label);
+	}
+
+	/**
+	 * Run a blocking call on the bounded scheduler. Calls which can not be queued
+	 * are answered with Service Unavailable
+	 */
+	private Mono<ResponseEntity<?>> blocking(final Callable<ResponseEntity<?>> call) {
+		return Mono.fromCallable(call).subscribeOn(this.blockingScheduler).onErrorResume(
+				RejectedExecutionException.class,
+				e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ErrorDAO("Server Busy"))));
+	}
+
+	private static void deleteQuietly(final Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			log.warn("Unable to delete import file " + file);
+		}
+	}
+
+}
@@ -0,0 +1,263 @@
+package io.github.melangad.spring.config.server.reactive;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.ConfigPushChannel;
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.metrics.Stage;
+import io.github.melangad.spring.config.server.model.ConfigPushEvent;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * <h1>Reactive Config Push Service</h1> Push message service of the reactive
+ * endpoints. Each label with subscribers has one multicast processor, and every
+ * subscriber is a Server Sent Event stream fed from it without a servlet
+ * request or emitter of its own. An event is serialized once per change and
+ * shared by all subscribers.
+ * <p>
+ * The processor never waits for subscribers. Events for a subscriber which does
+ * not keep up are buffered up to the subscriber buffer size, after which the
+ * oldest are dropped, as only the latest version matters to a client. Heartbeat
+ * comments from a single shared timer keep idle connections open and are
+ * dropped rather than buffered.
+ * 
+ * @author melanga
+ *
+ */
+
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveConfigPushService implements ConfigPushChannel {
+
+	private static final String EVENT_NAME = "CONFIG-UPDATE-EVENT";
+
+	private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder().comment("heartbeat")
+			.build();
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@Autowired
+	private ConfigServerMetrics metrics;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final ConcurrentMap<String, LabelChannel> channelMap = new ConcurrentHashMap<>();
+
+	private final DirectProcessor<ServerSentEvent<String>> heartbeats = DirectProcessor.create();
+
+	private final FluxSink<ServerSentEvent<String>> heartbeatSink = this.heartbeats.sink();
+
+	private ScheduledExecutorService heartbeatScheduler;
+
+	private final LongAdder broadcastCount = new LongAdder();
+
+	private final LongAdder droppedCount = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		final long interval = this.properties.getReactive().getHeartbeatInterval().toMillis();
+
+		this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "config-push-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.heartbeatScheduler.scheduleAtFixedRate(() -> this.heartbeatSink.next(HEARTBEAT), interval, interval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		this.heartbeatScheduler.shutdownNow();
+		this.heartbeatSink.complete();
+		this.channelMap.values().forEach(channel -> channel.sink.complete());
+	}
+
+	/**
+	 * Server Sent Event stream of a label. The stream starts with a heartbeat so
+	 * that the response is sent right away, and ends after the configured emitter
+	 * timeout if one is set
+	 * 
+	 * @param label is a label
+	 * @return event stream
+	 */
+	public Flux<ServerSentEvent<String>> subscribe(final String label) {
+		return Flux.defer(() -> {
+			final LabelChannel channel = this.acquire(label);
+			channel.streams.incrementAndGet();
+
+			final Flux<ServerSentEvent<String>> events = channel.processor
+					.onBackpressureBuffer(this.properties.getReactive().getSubscriberBufferSize(),
+							dropped -> this.droppedCount.increment(), BufferOverflowStrategy.DROP_OLDEST)
+					.map(PushMessage::getServerSentEvent);
+
+			Flux<ServerSentEvent<String>> stream = Flux.merge(events, this.heartbeats.onBackpressureDrop())
+					.startWith(HEARTBEAT);
+
+			final Duration timeout = this.properties.getPush().getEmitterTimeout();
+			if (null != timeout) {
+				stream = stream.take(timeout);
+			}
+
+			return stream.doFinally(signal -> {
+				channel.streams.decrementAndGet();
+				this.release(label);
+			});
+		});
+	}
+
+	/**
+	 * Version changes of a label, for long polling watch requests
+	 * 
+	 * @param label is a label
+	 * @return changes of the label or of one of its ancestors
+	 */
+	public Flux<ConfigPushEvent> events(final String label) {
+		return Flux.defer(() -> this.acquire(label).processor.onBackpressureLatest().map(PushMessage::getEvent)
+				.doFinally(signal -> this.release(label)));
+	}
+
+	@Override
+	public void doNotify(final String label, final String changedLabel, final int configVersion,
+			final Date updateTime) {
+		final LabelChannel channel = this.channelMap.get(label);
+		if (null == channel) {
+			return;
+		}
+
+		final ConfigPushEvent configEvent = new ConfigPushEvent();
+		configEvent.setLabel(changedLabel);
+		configEvent.setConfigVersion(configVersion);
+		configEvent.setUpdateTime(updateTime);
+
+		final String data;
+		try {
+			data = this.mapper.writeValueAsString(configEvent);
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			return;
+		}
+
+		final ServerSentEvent<String> serverSentEvent = ServerSentEvent.builder(data)
+				.id(changedLabel + "-" + configVersion).event(EVENT_NAME)
+				.retry(this.properties.getPush().getReconnectTime()).build();
+
+		final long start = System.nanoTime();
+		channel.sink.next(new PushMessage(configEvent, serverSentEvent));
+		this.broadcastCount.increment();
+		this.metrics.record(Stage.SSE_BROADCAST, start);
+	}
+
+	/**
+	 * Number of connected clients for a label
+	 * 
+	 * @param label is a label
+	 * @return number of connected clients
+	 */
+	public int getSubscriberCount(final String label) {
+		final LabelChannel channel = this.channelMap.get(label);
+		return null == channel ? 0 : channel.streams.get();
+	}
+
+	@Override
+	public Map<String, Integer> getSubscriberCounts() {
+		final Map<String, Integer> counts = new HashMap<String, Integer>();
+		this.channelMap.forEach((label, channel) -> counts.put(label, channel.streams.get()));
+		return counts;
+	}
+
+	@Override
+	public long getBroadcastCount() {
+		return this.broadcastCount.sum();
+	}
+
+	@Override
+	public long getDroppedCount() {
+		return this.droppedCount.sum();
+	}
+
+	/**
+	 * Get the channel of a label, creating it for the first subscriber
+	 */
+	private LabelChannel acquire(final String label) {
+		return this.channelMap.compute(label, (k, channel) -> {
+			final LabelChannel acquired = null == channel ? this.createChannel(label) : channel;
+			acquired.references++;
+			return acquired;
+		});
+	}
+
+	/**
+	 * Drop the channel of a label once its last subscriber is gone
+	 */
+	private void release(final String label) {
+		this.channelMap.computeIfPresent(label, (k, channel) -> --channel.references == 0 ? null : channel);
+	}
+
+	private LabelChannel createChannel(final String label) {
+		this.metrics.registerLabelGauge("config.server.push.subscribers", label, this,
+				s -> s.getSubscriberCount(label));
+		return new LabelChannel();
+	}
+
+	private static final class LabelChannel {
+
+		private final DirectProcessor<PushMessage> processor = DirectProcessor.create();
+
+		private final FluxSink<PushMessage> sink = this.processor.sink();
+
+		private final AtomicInteger streams = new AtomicInteger();
+
+		// Streams and watches, only changed while the channel map entry is locked
+		private int references = 0;
+	}
+
+	private static final class PushMessage {
+
+		private final ConfigPushEvent event;
+
+		private final ServerSentEvent<String> serverSentEvent;
+
+		private PushMessage(final ConfigPushEvent event, final ServerSentEvent<String> serverSentEvent) {
+			this.event = event;
+			this.serverSentEvent = serverSentEvent;
+		}
+
+		private ConfigPushEvent getEvent() {
+			return this.event;
+		}
+
+		private ServerSentEvent<String> getServerSentEvent() {
+			return this.serverSentEvent;
+		}
+	}
+
+}
@@ -0,0 +1,30 @@
+package io.github.melangad.spring.config.server.repository;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import io.github.melangad.spring.config.server.entity.ClientFeedbackRecord;
+
+public interface ClientFeedbackRepository extends CrudRepository<ClientFeedbackRecord, Long> {
+
+	List<ClientFeedbackRecord> findByLabelAndClientIdIn(String label, Collection<String> clientIds);
+
+	Page<ClientFeedbackRecord> findByLabelAndLastSeenBeforeOrderByLastSeen(String label, Date lastSeen,
+			Pageable pageable);
+
+	Page<ClientFeedbackRecord> findByLabelAndClientVersionLessThanOrderByClientVersion(String label,
+			int clientVersion, Pageable pageable);
+
+	@Modifying
+	@Query("delete from ClientFeedbackRecord f where f.lastSeen < :lastSeen")
+	int deleteByLastSeenBefore(@Param("lastSeen") Date lastSeen);
+
+}
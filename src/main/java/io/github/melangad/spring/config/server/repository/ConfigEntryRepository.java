@@ -0,0 +1,23 @@
+package io.github.melangad.spring.config.server.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import io.github.melangad.spring.config.server.entity.ConfigEntry;
+
+public interface ConfigEntryRepository extends CrudRepository<ConfigEntry, Integer> {
+
+	List<ConfigEntry> findByLabelOrderByConfigKey(String label);
+
+	List<ConfigEntry> findByLabelAndConfigKeyIn(String label, Collection<String> configKeys);
+
+	@Modifying
+	@Query("delete from ConfigEntry e where e.label = :label")
+	int deleteByLabel(@Param("label") String label);
+
+}
@@ -2,9 +2,14 @@ package io.github.melangad.spring.config.server.repository;
 
 import java.util.List;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
 import io.github.melangad.spring.config.server.entity.ConfigHistory;
+import io.github.melangad.spring.config.server.entity.ConfigHistoryType;
 
 public interface ConfigHistoryRepository extends CrudRepository<ConfigHistory, Integer> {
 
@@ -12,4 +17,14 @@ public interface ConfigHistoryRepository extends CrudRepository<ConfigHistory, I
 
 	List<ConfigHistory> findByLabelAndConfigVersion(String application, int configVersion);
 
+	Page<ConfigVersionView> findVersionsByLabelOrderByConfigVersionDesc(String application, Pageable pageable);
+
+	List<ConfigHistory> findByLabelAndConfigVersionBetweenOrderByConfigVersionDesc(String application,
+			int fromVersion, int toVersion);
+
+	@Query("select h from ConfigHistory h where h.label = :label and h.configVersion >= :version"
+			+ " and (h.historyType is null or h.historyType = :snapshot) order by h.configVersion asc")
+	List<ConfigHistory> findSnapshotsFromVersion(@Param("label") String application, @Param("version") int version,
+			@Param("snapshot") ConfigHistoryType snapshot, Pageable pageable);
+
 }
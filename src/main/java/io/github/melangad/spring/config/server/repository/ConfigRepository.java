@@ -1,13 +1,39 @@
 package io.github.melangad.spring.config.server.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import io.github.melangad.spring.config.server.entity.Config;
 
-public interface ConfigRepository extends CrudRepository<Config, Integer> {
+public interface ConfigRepository extends JpaRepository<Config, Integer> {
 
 	List<Config> findByLabel(String label);
 
+	List<Config> findByLabelIn(Collection<String> labels);
+
+	Optional<ConfigVersionView> findVersionByLabel(String label);
+
+	@Query("select c.label as label, c.configVersion as configVersion, c.updateTime as updateTime, c.parentLabel as parentLabel from Config c")
+	List<ConfigStateView> findAllVersions();
+
+	@Query("select c.label from Config c")
+	List<String> findAllLabels();
+
+	Page<ConfigVersionView> findVersionsByLabelStartingWithOrderByLabel(String prefix, Pageable pageable);
+
+	@Query("select c.label from Config c where c.value is not null")
+	List<String> findLabelsWithValue();
+
+	@Query("select c.parentLabel from Config c where c.label = ?1")
+	Optional<String> findParentLabelByLabel(String label);
+
+	@Query("select c.label as label, c.parentLabel as parentLabel from Config c where c.parentLabel is not null")
+	List<LabelParentView> findAllParents();
+
 }
@@ -0,0 +1,13 @@
+package io.github.melangad.spring.config.server.repository;
+
+/**
+ * Projection of a configuration row with its parent but without its value
+ * 
+ * @author melanga
+ *
+ */
+public interface ConfigStateView extends ConfigVersionView {
+
+	String getParentLabel();
+
+}
@@ -0,0 +1,19 @@
+package io.github.melangad.spring.config.server.repository;
+
+import java.util.Date;
+
+/**
+ * Projection of a configuration row without its value
+ * 
+ * @author melanga
+ *
+ */
+public interface ConfigVersionView {
+
+	String getLabel();
+
+	Integer getConfigVersion();
+
+	Date getUpdateTime();
+
+}
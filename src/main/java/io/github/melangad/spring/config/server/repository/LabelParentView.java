@@ -0,0 +1,15 @@
+package io.github.melangad.spring.config.server.repository;
+
+/**
+ * Projection of the parent of a layered label
+ * 
+ * @author melanga
+ *
+ */
+public interface LabelParentView {
+
+	String getLabel();
+
+	String getParentLabel();
+
+}
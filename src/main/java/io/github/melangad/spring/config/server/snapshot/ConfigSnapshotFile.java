@@ -0,0 +1,332 @@
+package io.github.melangad.spring.config.server.snapshot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Snapshot File</h1> Append only file holding the serialized
+ * configuration of the latest version of every label. The file starts with a
+ * magic number and a format version, followed by records of
+ * <code>length, CRC32, label length, label, version, update time, body length,
+ * body</code> with all numbers big endian. A later record of a label replaces
+ * earlier ones.
+ * <p>
+ * The file is memory-mapped for reads. Records are appended and forced to
+ * disk one at a time, and a record cut short by a crash fails its length or
+ * checksum check and is dropped on the next open. Once most of the file holds
+ * replaced records, the latest records are written to a new file which
+ * atomically replaces the old one. Writes must come from a single thread.
+ *
+ * @author melanga
+ *
+ */
+@Slf4j
+public class ConfigSnapshotFile implements Closeable {
+
+	private static final int MAGIC = 0x43464753;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_BYTES = 8;
+
+	// Record length and checksum
+	private static final int RECORD_HEADER_BYTES = 8;
+
+	private static final long MIN_COMPACTION_BYTES = 1024 * 1024;
+
+	private final Path path;
+
+	private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+
+	private volatile ConcurrentMap<String, SnapshotRecord> index = new ConcurrentHashMap<>();
+
+	private FileChannel channel;
+
+	private volatile MappedByteBuffer mapped;
+
+	private final Object mapLock = new Object();
+
+	private volatile long size;
+
+	private long liveBytes;
+
+	/**
+	 * Open a snapshot file, creating it if it does not exist
+	 *
+	 * @param path is the snapshot file
+	 * @throws IOException if the file can not be read or created
+	 */
+	public ConfigSnapshotFile(final Path path) throws IOException {
+		this.path = path;
+		this.open();
+	}
+
+	/**
+	 * Get version and update time of the latest record of a label without
+	 * reading its serialized configuration
+	 *
+	 * @param label is a unique identifier for config set
+	 * @return record without body or null if the snapshot has no record of the
+	 *         label
+	 */
+	public SnapshotRecord get(final String label) {
+		return this.index.get(label);
+	}
+
+	/**
+	 * Get the latest record of a label including its serialized configuration
+	 *
+	 * @param label is a unique identifier for config set
+	 * @return record or null if the snapshot has no record of the label
+	 */
+	public SnapshotRecord read(final String label) {
+		this.compactionLock.readLock().lock();
+		try {
+			final SnapshotRecord record = this.index.get(label);
+			if (null == record) {
+				return null;
+			}
+
+			ByteBuffer buffer = this.mapped;
+			if (record.getBodyPosition() + record.getBodyLength() > buffer.capacity()) {
+				buffer = this.remap();
+			}
+
+			final byte[] body = new byte[record.getBodyLength()];
+			final ByteBuffer view = buffer.duplicate();
+			view.position((int) record.getBodyPosition());
+			view.get(body);
+			return record.withBody(body);
+		} finally {
+			this.compactionLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the latest version of every label in the snapshot
+	 *
+	 * @return versions by label
+	 */
+	public Map<String, Integer> getVersions() {
+		final Map<String, Integer> versions = new HashMap<>();
+		this.index.forEach((label, record) -> versions.put(label, record.getConfigVersion()));
+		return Collections.unmodifiableMap(versions);
+	}
+
+	public int size() {
+		return this.index.size();
+	}
+
+	/**
+	 * Append the latest version of a label. Older versions than the one in the
+	 * file are ignored
+	 *
+	 * @param label      is a unique identifier for config set
+	 * @param version    is the version
+	 * @param updateTime is the update time of the version
+	 * @param body       is the serialized configuration
+	 * @throws IOException if the record can not be written
+	 */
+	public synchronized void append(final String label, final int version, final Date updateTime,
+			final byte[] body) throws IOException {
+		final SnapshotRecord current = this.index.get(label);
+		if (null != current && current.getConfigVersion() >= version) {
+			return;
+		}
+
+		final ByteBuffer record = encode(label, version, null == updateTime ? 0 : updateTime.getTime(), body);
+		final long position = this.size;
+		while (record.hasRemaining()) {
+			this.channel.write(record, position + record.position());
+		}
+		this.channel.force(false);
+		this.size = position + record.limit();
+
+		final SnapshotRecord added = new SnapshotRecord(label, version,
+				null == updateTime ? null : new Date(updateTime.getTime()), this.size - body.length, body.length,
+				record.limit(), null);
+		this.liveBytes += added.getRecordLength() - (null == current ? 0 : current.getRecordLength());
+		this.index.put(label, added);
+
+		if (this.size - HEADER_BYTES > 2 * this.liveBytes + MIN_COMPACTION_BYTES) {
+			this.compact();
+		}
+	}
+
+	/**
+	 * Rewrite the file with the latest record of each label only
+	 *
+	 * @throws IOException if the file can not be rewritten
+	 */
+	public synchronized void compact() throws IOException {
+		final Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+
+		try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(out, header());
+			for (String label : this.index.keySet()) {
+				final SnapshotRecord record = this.read(label);
+				final Date updateTime = record.getUpdateTime();
+				writeFully(out, encode(label, record.getConfigVersion(),
+						null == updateTime ? 0 : updateTime.getTime(), record.getBody()));
+			}
+			out.force(true);
+		}
+
+		// Readers must not combine positions of one file with the mapping of the
+		// other
+		this.compactionLock.writeLock().lock();
+		try {
+			this.channel.close();
+			Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			this.open();
+		} finally {
+			this.compactionLock.writeLock().unlock();
+		}
+
+		log.info("Compacted config snapshot to " + this.index.size() + " labels, " + this.size + " bytes");
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.channel.close();
+	}
+
+	private synchronized void open() throws IOException {
+		this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		final ConcurrentMap<String, SnapshotRecord> records = new ConcurrentHashMap<>();
+		this.liveBytes = 0;
+
+		if (this.channel.size() < HEADER_BYTES) {
+			this.channel.truncate(0);
+			writeFully(this.channel, header());
+			this.channel.force(true);
+		}
+
+		final MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Not a config snapshot file: " + this.path);
+		}
+
+		long position = HEADER_BYTES;
+		while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+			final SnapshotRecord record = this.readRecord(buffer, (int) position);
+			if (null == record) {
+				break;
+			}
+			final SnapshotRecord replaced = records.put(record.getLabel(), record);
+			this.liveBytes += record.getRecordLength() - (null == replaced ? 0 : replaced.getRecordLength());
+			position += record.getRecordLength();
+		}
+
+		if (position < buffer.capacity()) {
+			log.warn("Dropping incomplete config snapshot record at " + position + " of " + this.path);
+			this.channel.truncate(position);
+		}
+
+		this.size = position;
+		this.mapped = buffer;
+		this.index = records;
+	}
+
+	/**
+	 * Map the records appended since the last mapping. Does not hold the file
+	 * monitor, since a compaction holding it waits for readers to finish
+	 */
+	private MappedByteBuffer remap() {
+		synchronized (this.mapLock) {
+			try {
+				if (this.mapped.capacity() < this.size) {
+					this.mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.size);
+				}
+				return this.mapped;
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to map config snapshot " + this.path, e);
+			}
+		}
+	}
+
+	/**
+	 * Read the record at a position, or null if it is cut short or corrupt
+	 */
+	private SnapshotRecord readRecord(final MappedByteBuffer buffer, final int position) {
+		final int length = buffer.getInt(position);
+		final int checksum = buffer.getInt(position + 4);
+		final int start = position + RECORD_HEADER_BYTES;
+
+		if (length < 20 || (long) start + length > buffer.capacity()) {
+			return null;
+		}
+
+		final ByteBuffer payload = buffer.duplicate();
+		payload.position(start);
+		payload.limit(start + length);
+
+		final CRC32 crc = new CRC32();
+		crc.update(payload.duplicate());
+		if ((int) crc.getValue() != checksum) {
+			return null;
+		}
+
+		final byte[] label = new byte[payload.getInt()];
+		payload.get(label);
+		final int version = payload.getInt();
+		final long updateTime = payload.getLong();
+		final int bodyLength = payload.getInt();
+
+		return new SnapshotRecord(new String(label, StandardCharsets.UTF_8), version,
+				0 == updateTime ? null : new Date(updateTime), payload.position(), bodyLength,
+				RECORD_HEADER_BYTES + length, null);
+	}
+
+	private static ByteBuffer encode(final String label, final int version, final long updateTime,
+			final byte[] body) {
+		final byte[] labelBytes = label.getBytes(StandardCharsets.UTF_8);
+		final int length = 4 + labelBytes.length + 4 + 8 + 4 + body.length;
+
+		final ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+		record.position(RECORD_HEADER_BYTES);
+		record.putInt(labelBytes.length).put(labelBytes).putInt(version).putLong(updateTime).putInt(body.length)
+				.put(body);
+
+		final CRC32 crc = new CRC32();
+		crc.update(record.array(), RECORD_HEADER_BYTES, length);
+		record.putInt(0, length).putInt(4, (int) crc.getValue());
+
+		record.flip();
+		return record;
+	}
+
+	private static ByteBuffer header() {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+		return header;
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+package io.github.melangad.spring.config.server.snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.ConfigService;
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import io.github.melangad.spring.config.server.repository.ConfigStateView;
+import io.github.melangad.spring.config.server.repository.ConfigVersionView;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Snapshot Service</h1> Keeps the latest version of every label in a
+ * local {@link ConfigSnapshotFile}. Each committed change is appended on a
+ * background thread, and the snapshot is compared with the database versions
+ * once the application is ready and at a fixed interval afterwards. While the
+ * database is unavailable, {@link ConfigService} serves reads from the
+ * snapshot. On startup, labels whose snapshot version matches the database are
+ * put into the config cache straight from the snapshot.
+ *
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.snapshot", name = "enabled", havingValue = "true")
+@Slf4j
+public class ConfigSnapshotService {
+
+	@Autowired
+	private ConfigService configService;
+
+	@Autowired
+	private ConfigRepository configRepository;
+
+	@Autowired
+	private ConfigCache configCache;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	private final ObjectMapper mapper = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final ConcurrentMap<String, CachedConfig> fallbackConfigs = new ConcurrentHashMap<>();
+
+	private final LongAdder fallbackReadCount = new LongAdder();
+
+	private final LongAdder writeFailureCount = new LongAdder();
+
+	private ConfigSnapshotFile snapshotFile;
+
+	private ScheduledExecutorService scheduler;
+
+	private volatile boolean seeded = false;
+
+	@PostConstruct
+	public void init() throws IOException {
+		final Path path = Paths.get(this.properties.getSnapshot().getPath()).toAbsolutePath();
+		final long start = System.nanoTime();
+		this.snapshotFile = new ConfigSnapshotFile(path);
+		log.info("Opened config snapshot " + path + " with " + this.snapshotFile.size() + " labels in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "config-snapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@PreDestroy
+	public void destroy() throws IOException {
+		this.scheduler.shutdown();
+		try {
+			this.scheduler.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.snapshotFile.close();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		final long interval = this.properties.getSnapshot().getReconcileInterval().toMillis();
+		this.scheduler.scheduleWithFixedDelay(this::reconcile, 0, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Write the current version of a changed label to the snapshot
+	 *
+	 * @param label   is a unique identifier for config set
+	 * @param version is the committed version
+	 */
+	public void onConfigChange(final String label, final int version) {
+		this.scheduler.execute(() -> {
+			final SnapshotRecord current = this.snapshotFile.get(label);
+			if (null != current && current.getConfigVersion() >= version) {
+				return;
+			}
+
+			try {
+				this.configService.getCachedConfig(label).ifPresent(this::write);
+			} catch (RuntimeException e) {
+				this.writeFailureCount.increment();
+				log.error("Unable to write label " + label + " to config snapshot: " + e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * Get the configuration of a label as of the snapshot
+	 *
+	 * @param label is a unique identifier for config set
+	 * @return cached configuration
+	 */
+	public Optional<CachedConfig> getCachedConfig(final String label) {
+		final SnapshotRecord record = this.snapshotFile.get(label);
+		if (null == record) {
+			return Optional.empty();
+		}
+
+		this.fallbackReadCount.increment();
+
+		final CachedConfig cached = this.fallbackConfigs.get(label);
+		if (null != cached && cached.getVersion() == record.getConfigVersion()) {
+			return Optional.of(cached);
+		}
+
+		return Optional.ofNullable(this.snapshotFile.read(label)).map(this::toCachedConfig).map(config -> {
+			this.fallbackConfigs.put(label, config);
+			return config;
+		});
+	}
+
+	/**
+	 * Get version and update time of a label as of the snapshot
+	 *
+	 * @param label is a unique identifier for config set
+	 * @return version details
+	 */
+	public Optional<ConfigVersionView> getConfigVersion(final String label) {
+		this.fallbackReadCount.increment();
+		return Optional.ofNullable(this.snapshotFile.get(label));
+	}
+
+	/**
+	 * Compare the snapshot with the database versions and write labels which
+	 * are missing or out of date. The first successful run also puts the labels
+	 * which are up to date into the config cache
+	 */
+	public void reconcile() {
+		try {
+			final long start = System.nanoTime();
+			final List<ConfigStateView> versions = this.configRepository.findAllVersions();
+			final Map<String, Integer> snapshotVersions = this.snapshotFile.getVersions();
+
+			final List<String> current = new ArrayList<>();
+			final List<String> stale = new ArrayList<>();
+			versions.forEach(version -> {
+				final Integer snapshotVersion = snapshotVersions.get(version.getLabel());
+				if (null != snapshotVersion && snapshotVersion.equals(version.getConfigVersion())) {
+					current.add(version.getLabel());
+				} else {
+					stale.add(version.getLabel());
+				}
+			});
+
+			if (!this.seeded) {
+				this.seedCache(current);
+				this.seeded = true;
+			}
+
+			for (String label : stale) {
+				this.configService.getCachedConfig(label).ifPresent(this::write);
+			}
+
+			this.fallbackConfigs.clear();
+
+			log.info("Reconciled config snapshot in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+					+ " ms, " + current.size() + " labels up to date, " + stale.size() + " labels written");
+		} catch (RuntimeException e) {
+			log.warn("Unable to reconcile config snapshot: " + e.getMessage());
+		}
+	}
+
+	public long getFallbackReadCount() {
+		return this.fallbackReadCount.sum();
+	}
+
+	public long getWriteFailureCount() {
+		return this.writeFailureCount.sum();
+	}
+
+	public int getLabelCount() {
+		return this.snapshotFile.size();
+	}
+
+	private void seedCache(final List<String> labels) {
+		if (!this.configCache.isEnabled() || labels.isEmpty()) {
+			return;
+		}
+
+		final int limit = this.properties.getCache().getMaxSize();
+		final Collection<String> seeded = this.configCache
+				.getAll(labels.size() > limit ? labels.subList(0, limit) : labels, this::readAll).keySet();
+
+		log.info("Loaded " + seeded.size() + " labels into the config cache from the snapshot");
+	}
+
+	private Map<String, CachedConfig> readAll(final Collection<String> labels) {
+		final Map<String, CachedConfig> configs = new HashMap<>();
+		labels.forEach(label -> Optional.ofNullable(this.snapshotFile.read(label)).map(this::toCachedConfig)
+				.ifPresent(config -> configs.put(label, config)));
+		return configs;
+	}
+
+	private void write(final CachedConfig config) {
+		try {
+			this.snapshotFile.append(config.getLabel(), config.getVersion(), config.getUpdateTime(),
+					config.getJsonBody());
+		} catch (IOException e) {
+			this.writeFailureCount.increment();
+			log.error("Unable to write label " + config.getLabel() + " to config snapshot: " + e.getMessage());
+		}
+	}
+
+	private CachedConfig toCachedConfig(final SnapshotRecord record) {
+		try {
+			final ConfigDetailDAO configDetails = this.mapper.readValue(record.getBody(), ConfigDetailDAO.class);
+			configDetails.setConfigData(Collections.unmodifiableList(configDetails.getConfigData()));
+
+			return new CachedConfig(record.getLabel(), record.getConfigVersion(), record.getUpdateTime(),
+					configDetails, record.getBody());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
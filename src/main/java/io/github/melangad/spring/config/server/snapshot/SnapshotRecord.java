@@ -0,0 +1,40 @@
+package io.github.melangad.spring.config.server.snapshot;
+
+import java.util.Date;
+
+import io.github.melangad.spring.config.server.repository.ConfigVersionView;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Location and version of the latest configuration of a label in the snapshot
+ * file. The serialized configuration is only present on records returned by
+ * {@link ConfigSnapshotFile#read(String)}
+ * 
+ * @author melanga
+ *
+ */
+@Getter
+@RequiredArgsConstructor
+public class SnapshotRecord implements ConfigVersionView {
+
+	private final String label;
+
+	private final Integer configVersion;
+
+	private final Date updateTime;
+
+	private final long bodyPosition;
+
+	private final int bodyLength;
+
+	private final int recordLength;
+
+	private final byte[] body;
+
+	SnapshotRecord withBody(final byte[] body) {
+		return new SnapshotRecord(this.label, this.configVersion, this.updateTime, this.bodyPosition,
+				this.bodyLength, this.recordLength, body);
+	}
+
+}
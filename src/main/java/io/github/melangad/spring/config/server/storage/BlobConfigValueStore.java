@@ -0,0 +1,125 @@
+package io.github.melangad.spring.config.server.storage;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.InvalidConfigException;
+import io.github.melangad.spring.config.server.entity.Config;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Blob Config Value Store</h1> Default storage mode. All configuration
+ * entries of a label are stored as a single JSON array in CONFIG.CONFIG_VALUE.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.storage", name = "mode", havingValue = "blob", matchIfMissing = true)
+@Slf4j
+public class BlobConfigValueStore implements ConfigValueStore {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Override
+	public List<ConfigMetaDAO> read(final Config config) throws InvalidConfigException {
+		try {
+			return this.mapper.readValue(config.getValue(), new TypeReference<List<ConfigMetaDAO>>() {
+			});
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			throw new InvalidConfigException();
+		}
+	}
+
+	@Override
+	public String readAsJson(final Config config) {
+		return config.getValue();
+	}
+
+	@Override
+	public void replace(final Config config, final List<ConfigMetaDAO> configs) throws InvalidConfigException {
+		try {
+			config.setValue(this.mapper.writeValueAsString(configs));
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			throw new InvalidConfigException();
+		}
+	}
+
+	@Override
+	public List<ConfigMetaDAO> patch(final Config config, final List<ConfigMetaDAO> configs)
+			throws InvalidConfigException {
+		final Map<String, ConfigMetaDAO> currentConfigMap = new LinkedHashMap<>();
+		this.read(config).forEach(v -> currentConfigMap.put(v.getKey(), v));
+
+		final List<ConfigMetaDAO> replaced = new ArrayList<>();
+		configs.forEach(v -> {
+			ConfigMetaDAO previous = currentConfigMap.put(v.getKey(), v);
+			if (null != previous) {
+				replaced.add(previous);
+			}
+		});
+
+		this.replace(config, new ArrayList<>(currentConfigMap.values()));
+
+		return replaced;
+	}
+
+	/**
+	 * Entries are serialized straight into the JSON value, so only the resulting
+	 * value is held in memory
+	 */
+	@Override
+	public ConfigValueWriter openWriter(final Config config) throws InvalidConfigException {
+		final StringWriter json = new StringWriter();
+
+		try {
+			final JsonGenerator generator = this.mapper.getFactory().createGenerator(json);
+			generator.writeStartArray();
+
+			return new ConfigValueWriter() {
+
+				@Override
+				public void write(final ConfigMetaDAO meta) throws InvalidConfigException {
+					try {
+						generator.writeObject(meta);
+					} catch (IOException e) {
+						log.error(e.getMessage());
+						throw new InvalidConfigException();
+					}
+				}
+
+				@Override
+				public void finish() throws InvalidConfigException {
+					try {
+						generator.writeEndArray();
+						generator.close();
+					} catch (IOException e) {
+						log.error(e.getMessage());
+						throw new InvalidConfigException();
+					}
+					config.setValue(json.toString());
+				}
+			};
+		} catch (IOException e) {
+			log.error(e.getMessage());
+			throw new InvalidConfigException();
+		}
+	}
+
+}
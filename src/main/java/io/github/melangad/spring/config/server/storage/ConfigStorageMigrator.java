@@ -0,0 +1,90 @@
+package io.github.melangad.spring.config.server.storage;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.InvalidConfigException;
+import io.github.melangad.spring.config.server.entity.Config;
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Config Storage Migrator</h1> Moves labels stored as a JSON value in
+ * CONFIG.CONFIG_VALUE to CONFIG_ENTRY rows. Each label is migrated in its own
+ * transaction and its version is left unchanged.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.storage", name = "mode", havingValue = "entry")
+@Slf4j
+public class ConfigStorageMigrator {
+
+	@Autowired
+	private ConfigRepository configRepository;
+
+	@Autowired
+	private EntryConfigValueStore entryConfigValueStore;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if (this.properties.getStorage().isMigrateOnStartup()) {
+			this.migrateToEntries();
+		}
+	}
+
+	/**
+	 * Migrate all labels still stored as a JSON value
+	 * 
+	 * @return number of migrated labels
+	 */
+	public int migrateToEntries() {
+		final TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		final List<String> labels = this.configRepository.findLabelsWithValue();
+
+		int migrated = 0;
+		for (String label : labels) {
+			Boolean result = transactionTemplate.execute(status -> {
+				final List<Config> list = this.configRepository.findByLabel(label);
+				if (!list.stream().findFirst().isPresent() || null == list.get(0).getValue()) {
+					return false;
+				}
+
+				final Config config = list.get(0);
+				try {
+					this.entryConfigValueStore.migrate(config);
+				} catch (InvalidConfigException e) {
+					log.error("Unable to migrate label " + label);
+					status.setRollbackOnly();
+					return false;
+				}
+				this.configRepository.save(config);
+				return true;
+			});
+
+			if (Boolean.TRUE.equals(result)) {
+				migrated++;
+			}
+		}
+
+		log.info("Migrated " + migrated + " labels to entry storage");
+		return migrated;
+	}
+
+}
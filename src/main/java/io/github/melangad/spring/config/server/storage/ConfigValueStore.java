@@ -0,0 +1,84 @@
+package io.github.melangad.spring.config.server.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.melangad.spring.config.server.InvalidConfigException;
+import io.github.melangad.spring.config.server.entity.Config;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+
+/**
+ * Storage strategy for the configuration entries of a label. The label row
+ * itself, including its version, is always stored in the CONFIG table and is
+ * saved by the caller within the same transaction.
+ * 
+ * @author melanga
+ *
+ */
+public interface ConfigValueStore {
+
+	/**
+	 * Read all configuration entries of a label
+	 * 
+	 * @param config is the label row
+	 * @return configuration entries in no particular order
+	 * @throws InvalidConfigException if stored configuration can not be read
+	 */
+	public List<ConfigMetaDAO> read(Config config) throws InvalidConfigException;
+
+	/**
+	 * Read all configuration entries of a label as a JSON array
+	 * 
+	 * @param config is the label row
+	 * @return JSON array of configuration entries
+	 * @throws InvalidConfigException if stored configuration can not be read
+	 */
+	public String readAsJson(Config config) throws InvalidConfigException;
+
+	/**
+	 * Replace all configuration entries of a label
+	 * 
+	 * @param config  is the label row
+	 * @param configs is the new set of configuration entries
+	 * @throws InvalidConfigException if configuration can not be stored
+	 */
+	public void replace(Config config, List<ConfigMetaDAO> configs) throws InvalidConfigException;
+
+	/**
+	 * Add or update the given configuration entries of a label
+	 * 
+	 * @param config  is the label row
+	 * @param configs is the set of configuration entries to add or update
+	 * @return previous values of the updated entries which already existed
+	 * @throws InvalidConfigException if configuration can not be stored
+	 */
+	public List<ConfigMetaDAO> patch(Config config, List<ConfigMetaDAO> configs) throws InvalidConfigException;
+
+	/**
+	 * Replace all configuration entries of a label with entries written one at a
+	 * time. The default implementation collects the entries and calls
+	 * {@link #replace(Config, List)} when finished.
+	 * 
+	 * @param config is the label row
+	 * @return writer for the new set of configuration entries
+	 * @throws InvalidConfigException if configuration can not be stored
+	 */
+	public default ConfigValueWriter openWriter(final Config config) throws InvalidConfigException {
+		final ConfigValueStore store = this;
+		final List<ConfigMetaDAO> configs = new ArrayList<>();
+
+		return new ConfigValueWriter() {
+
+			@Override
+			public void write(final ConfigMetaDAO meta) {
+				configs.add(meta);
+			}
+
+			@Override
+			public void finish() throws InvalidConfigException {
+				store.replace(config, configs);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,32 @@
+package io.github.melangad.spring.config.server.storage;
+
+import io.github.melangad.spring.config.server.InvalidConfigException;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+
+/**
+ * Streaming replacement of all configuration entries of a label. Entries are
+ * handed over one at a time so that an implementation does not have to hold
+ * the whole configuration in memory.
+ * 
+ * @author melanga
+ *
+ */
+public interface ConfigValueWriter {
+
+	/**
+	 * Write the next configuration entry
+	 * 
+	 * @param config is a configuration entry with a key not written before
+	 * @throws InvalidConfigException if the entry can not be stored
+	 */
+	public void write(ConfigMetaDAO config) throws InvalidConfigException;
+
+	/**
+	 * Complete the replacement after the last entry. The caller has to save the
+	 * label row.
+	 * 
+	 * @throws InvalidConfigException if configuration can not be stored
+	 */
+	public void finish() throws InvalidConfigException;
+
+}
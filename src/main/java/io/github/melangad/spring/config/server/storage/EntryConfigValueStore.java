@@ -0,0 +1,197 @@
+package io.github.melangad.spring.config.server.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.InvalidConfigException;
+import io.github.melangad.spring.config.server.entity.Config;
+import io.github.melangad.spring.config.server.entity.ConfigEntry;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.repository.ConfigEntryRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * <h1>Entry Config Value Store</h1> Stores every configuration entry of a
+ * label as its own row in CONFIG_ENTRY keyed by label and key, so that a patch
+ * only touches the patched keys. Labels still holding a JSON value in
+ * CONFIG.CONFIG_VALUE are read from it and are moved to entries on their next
+ * write.
+ * 
+ * @author melanga
+ *
+ */
+
+@Component
+@ConditionalOnProperty(prefix = "config.server.storage", name = "mode", havingValue = "entry")
+@Slf4j
+public class EntryConfigValueStore implements ConfigValueStore {
+
+	@Autowired
+	private ConfigEntryRepository configEntryRepository;
+
+	@Autowired
+	private ConfigServerProperties properties;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Override
+	public List<ConfigMetaDAO> read(final Config config) throws InvalidConfigException {
+		if (null != config.getValue()) {
+			return this.readBlob(config);
+		}
+
+		return this.configEntryRepository.findByLabelOrderByConfigKey(config.getLabel()).stream()
+				.map(this::convertToConfigMetaDAO).collect(Collectors.toList());
+	}
+
+	@Override
+	public String readAsJson(final Config config) throws InvalidConfigException {
+		if (null != config.getValue()) {
+			return config.getValue();
+		}
+
+		try {
+			return this.mapper.writeValueAsString(this.read(config));
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			throw new InvalidConfigException();
+		}
+	}
+
+	@Override
+	public void replace(final Config config, final List<ConfigMetaDAO> configs) throws InvalidConfigException {
+		this.configEntryRepository.deleteByLabel(config.getLabel());
+		this.configEntryRepository.saveAll(configs.stream().map(c -> this.convertToConfigEntry(config.getLabel(), c))
+				.collect(Collectors.toList()));
+		config.setValue(null);
+	}
+
+	@Override
+	public List<ConfigMetaDAO> patch(final Config config, final List<ConfigMetaDAO> configs)
+			throws InvalidConfigException {
+		if (null != config.getValue()) {
+			this.migrate(config);
+		}
+
+		final Map<String, ConfigEntry> existing = this.configEntryRepository
+				.findByLabelAndConfigKeyIn(config.getLabel(),
+						configs.stream().map(ConfigMetaDAO::getKey).collect(Collectors.toList()))
+				.stream().collect(Collectors.toMap(ConfigEntry::getConfigKey, Function.identity()));
+
+		final List<ConfigMetaDAO> replaced = new ArrayList<>(existing.size());
+		final List<ConfigEntry> entries = new ArrayList<>(configs.size());
+		configs.forEach(c -> {
+			ConfigEntry entry = existing.get(c.getKey());
+			if (null == entry) {
+				entry = this.convertToConfigEntry(config.getLabel(), c);
+			} else {
+				replaced.add(this.convertToConfigMetaDAO(entry));
+				entry.setConfigValue(c.getValue());
+				entry.setDescription(c.getDescription());
+			}
+			entries.add(entry);
+		});
+
+		this.configEntryRepository.saveAll(entries);
+
+		return replaced;
+	}
+
+	/**
+	 * Entries are saved in batches and the persistence context is cleared after
+	 * each batch. Entities loaded before, including the label row, are detached
+	 * and the caller has to save the label row again.
+	 */
+	@Override
+	public ConfigValueWriter openWriter(final Config config) throws InvalidConfigException {
+		final int batchSize = Math.max(1, this.properties.getStorage().getImportBatchSize());
+		final List<ConfigEntry> batch = new ArrayList<>(batchSize);
+
+		this.configEntryRepository.deleteByLabel(config.getLabel());
+
+		return new ConfigValueWriter() {
+
+			@Override
+			public void write(final ConfigMetaDAO meta) {
+				batch.add(convertToConfigEntry(config.getLabel(), meta));
+				if (batch.size() >= batchSize) {
+					this.flush();
+				}
+			}
+
+			@Override
+			public void finish() {
+				if (!batch.isEmpty()) {
+					this.flush();
+				}
+				config.setValue(null);
+			}
+
+			private void flush() {
+				configEntryRepository.saveAll(batch);
+				entityManager.flush();
+				entityManager.clear();
+				batch.clear();
+			}
+		};
+	}
+
+	/**
+	 * Move the JSON value of a label into CONFIG_ENTRY rows. The caller has to
+	 * save the label row.
+	 * 
+	 * @param config is the label row
+	 * @throws InvalidConfigException if the JSON value can not be read
+	 */
+	public void migrate(final Config config) throws InvalidConfigException {
+		this.replace(config, this.readBlob(config));
+	}
+
+	private List<ConfigMetaDAO> readBlob(final Config config) throws InvalidConfigException {
+		try {
+			return this.mapper.readValue(config.getValue(), new TypeReference<List<ConfigMetaDAO>>() {
+			});
+		} catch (JsonProcessingException e) {
+			log.error(e.getMessage());
+			throw new InvalidConfigException();
+		}
+	}
+
+	private ConfigMetaDAO convertToConfigMetaDAO(final ConfigEntry entry) {
+		final ConfigMetaDAO meta = new ConfigMetaDAO();
+		meta.setKey(entry.getConfigKey());
+		meta.setValue(entry.getConfigValue());
+		meta.setDescription(entry.getDescription());
+
+		return meta;
+	}
+
+	private ConfigEntry convertToConfigEntry(final String label, final ConfigMetaDAO meta) {
+		final ConfigEntry entry = new ConfigEntry();
+		entry.setLabel(label);
+		entry.setConfigKey(meta.getKey());
+		entry.setConfigValue(meta.getValue());
+		entry.setDescription(meta.getDescription());
+
+		return entry;
+	}
+
+}
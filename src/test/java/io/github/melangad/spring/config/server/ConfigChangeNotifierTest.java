@@ -0,0 +1,134 @@
+package io.github.melangad.spring.config.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.cache.LabelHierarchy;
+import io.github.melangad.spring.config.server.cache.LabelIndex;
+import io.github.melangad.spring.config.server.model.ConfigChange;
+
+public class ConfigChangeNotifierTest {
+
+	private ConfigCache configCache;
+
+	private ConfigPushChannel pushChannel;
+
+	private ConfigChangePropagator propagator;
+
+	private ConfigChangeNotifier notifier;
+
+	private ExecutorService threads;
+
+	@Before
+	public void setUp() {
+		configCache = Mockito.mock(ConfigCache.class);
+		pushChannel = Mockito.mock(ConfigPushChannel.class);
+		propagator = Mockito.mock(ConfigChangePropagator.class);
+		LabelHierarchy labelHierarchy = Mockito.mock(LabelHierarchy.class);
+		Mockito.when(labelHierarchy.getDescendants(Mockito.anyString())).thenReturn(Collections.emptyList());
+
+		ConfigWatchService configWatchService = new ConfigWatchService();
+		ReflectionTestUtils.setField(configWatchService, "properties", new ConfigServerProperties());
+
+		notifier = new ConfigChangeNotifier();
+		ReflectionTestUtils.setField(notifier, "configCache", configCache);
+		ReflectionTestUtils.setField(notifier, "labelIndex", Mockito.mock(LabelIndex.class));
+		ReflectionTestUtils.setField(notifier, "labelHierarchy", labelHierarchy);
+		ReflectionTestUtils.setField(notifier, "configWatchService", configWatchService);
+		ReflectionTestUtils.setField(notifier, "configPushChannels", Arrays.asList(pushChannel));
+		ReflectionTestUtils.setField(notifier, "configChangePropagator", propagator);
+		notifier.init();
+
+		threads = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void eachVersionIsAppliedOnce() {
+		notifier.onConfigChange(change("APP1", 2));
+		notifier.onConfigChange(change("APP1", 2));
+		notifier.onConfigChange(change("APP1", 3));
+
+		Mockito.verify(configCache, Mockito.times(2)).evict("APP1");
+		Mockito.verify(pushChannel).doNotify(Mockito.eq("APP1"), Mockito.eq("APP1"), Mockito.eq(2),
+				Mockito.any());
+		Mockito.verify(pushChannel).doNotify(Mockito.eq("APP1"), Mockito.eq("APP1"), Mockito.eq(3),
+				Mockito.any());
+	}
+
+	@Test
+	public void olderVersionIsIgnored() {
+		notifier.onConfigChange(change("APP1", 5));
+		notifier.onConfigChange(change("APP1", 4));
+		notifier.onConfigChange(change("APP2", 1));
+
+		Mockito.verify(configCache).evict("APP1");
+		Mockito.verify(configCache).evict("APP2");
+		Mockito.verify(pushChannel, Mockito.never()).doNotify(Mockito.anyString(), Mockito.anyString(),
+				Mockito.eq(4), Mockito.any());
+	}
+
+	@Test
+	public void concurrentDeliveriesOfAVersionAreAppliedOnce() throws Exception {
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> deliveries = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			deliveries.add(threads.submit(() -> {
+				start.await(5, TimeUnit.SECONDS);
+				for (int version = 1; version <= 50; version++) {
+					notifier.onConfigChange(change("APP1", version));
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> delivery : deliveries) {
+			delivery.get(5, TimeUnit.SECONDS);
+		}
+
+		// Versions may be skipped by a faster thread, but none is applied twice
+		Mockito.verify(configCache, Mockito.atMost(50)).evict("APP1");
+		for (int version = 1; version <= 50; version++) {
+			Mockito.verify(pushChannel, Mockito.atMost(1)).doNotify(Mockito.eq("APP1"), Mockito.eq("APP1"),
+					Mockito.eq(version), Mockito.any());
+		}
+		Mockito.verify(pushChannel).doNotify(Mockito.eq("APP1"), Mockito.eq("APP1"), Mockito.eq(50),
+				Mockito.any());
+	}
+
+	@Test
+	public void localChangeIsAppliedAndPublished() {
+		ConfigChange change = change("APP1", 2);
+
+		notifier.onLocalChange(change);
+
+		Mockito.verify(configCache).evict("APP1");
+		Mockito.verify(propagator).subscribe(notifier);
+		Mockito.verify(propagator).publish(change);
+	}
+
+	private static ConfigChange change(final String label, final int version) {
+		return new ConfigChange(label, version, new Date(), null);
+	}
+
+}
@@ -0,0 +1,312 @@
+package io.github.melangad.spring.config.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.AsyncListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.repository.ConfigVersionView;
+
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+public class ConfigControllerTest {
+
+	private static final Date UPDATE_TIME = new Date(1600000000000L);
+
+	private static final String JSON_BODY = "{\"version\":3,\"configData\":[{\"key\":\"db.url\",\"value\":\"url\"}]}";
+
+	@TestConfiguration
+	@EnableWebMvc
+	static class ConfigControllerTestContextConfiguration {
+
+		@Bean
+		public ConfigController configController() {
+			return new ConfigController();
+		}
+
+		@Bean
+		public ConfigRequestHandler configRequestHandler() {
+			return new ConfigRequestHandler();
+		}
+
+		@Bean
+		public ConfigWatchService configWatchService() {
+			return new ConfigWatchService();
+		}
+
+		@Bean
+		public ConfigServerMetrics configServerMetrics() {
+			return new ConfigServerMetrics();
+		}
+
+		@Bean
+		public ConfigServerProperties configServerProperties() {
+			return new ConfigServerProperties();
+		}
+	}
+
+	@Autowired
+	private WebApplicationContext context;
+
+	@Autowired
+	private ConfigServerProperties configServerProperties;
+
+	@Autowired
+	private ConfigWatchService configWatchService;
+
+	@MockBean
+	private ConfigService configService;
+
+	@MockBean
+	private ConfigPushService configPushService;
+
+	private MockMvc mockMvc;
+
+	@Before
+	public void setUp() {
+		mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+		configServerProperties.getResponse().setCompressionMinSize(1024);
+	}
+
+	@Test
+	public void getConfigAnswersNotModifiedForCurrentETag() throws Exception {
+		givenVersion("APP1", 3);
+
+		mockMvc.perform(get("/config/APP1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+				.andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+
+		mockMvc.perform(get("/config/APP1").header(HttpHeaders.IF_NONE_MATCH, "W/\"3\""))
+				.andExpect(status().isNotModified());
+
+		Mockito.verify(configService, Mockito.never()).getCachedConfig("APP1");
+	}
+
+	@Test
+	public void getConfigAnswersBodyForStaleETag() throws Exception {
+		givenVersion("APP1", 3);
+		givenConfig("APP1", 3);
+
+		mockMvc.perform(get("/config/APP1").header(HttpHeaders.IF_NONE_MATCH, "\"2\"")).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+	}
+
+	@Test
+	public void getConfigAnswersNotModifiedSinceUpdateTime() throws Exception {
+		givenVersion("APP1", 3);
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfModifiedSince(UPDATE_TIME.getTime());
+		mockMvc.perform(get("/config/APP1").headers(headers)).andExpect(status().isNotModified());
+
+		headers.setIfModifiedSince(UPDATE_TIME.getTime() - 60000);
+		givenConfig("APP1", 3);
+		mockMvc.perform(get("/config/APP1").headers(headers)).andExpect(status().isOk());
+	}
+
+	@Test
+	public void filteredConfigHasItsOwnETag() throws Exception {
+		givenVersion("APP1", 3);
+		givenConfig("APP1", 3);
+
+		String eTag = mockMvc.perform(get("/config/APP1").param("prefix", "db."))
+				.andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		assertThat(eTag).startsWith("\"3-").isNotEqualTo("\"3\"");
+
+		mockMvc.perform(get("/config/APP1").param("prefix", "db.").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.ETAG, eTag));
+		mockMvc.perform(get("/config/APP1").param("prefix", "db.").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	public void getConfigServesGzipToClientsAcceptingIt() throws Exception {
+		configServerProperties.getResponse().setCompressionMinSize(0);
+		givenConfig("APP1", 3);
+
+		mockMvc.perform(get("/config/APP1").header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8"))
+				.andExpect(status().isOk()).andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"3-gzip\""))
+				.andExpect(result -> assertThat(result.getResponse().getHeaders(HttpHeaders.VARY))
+						.contains(HttpHeaders.ACCEPT_ENCODING))
+				.andExpect(content().bytes(gzip(JSON_BODY)));
+
+		mockMvc.perform(get("/config/APP1")).andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"3\"")).andExpect(content().string(JSON_BODY));
+
+		mockMvc.perform(get("/config/APP1").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+	}
+
+	@Test
+	public void getConfigSkipsGzipForSmallBodies() throws Exception {
+		givenConfig("APP1", 3);
+
+		mockMvc.perform(get("/config/APP1").header(HttpHeaders.ACCEPT_ENCODING, "gzip")).andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+	}
+
+	@Test
+	public void getConfigAcceptsGzipETag() throws Exception {
+		givenVersion("APP1", 3);
+
+		mockMvc.perform(get("/config/APP1").header(HttpHeaders.IF_NONE_MATCH, "\"3-gzip\""))
+				.andExpect(status().isNotModified()).andExpect(header().string(HttpHeaders.ETAG, "\"3-gzip\""));
+	}
+
+	private void givenVersion(final String label, final int version) {
+		ConfigVersionView view = Mockito.mock(ConfigVersionView.class);
+		Mockito.when(view.getConfigVersion()).thenReturn(version);
+		Mockito.when(view.getUpdateTime()).thenReturn(UPDATE_TIME);
+		Mockito.when(configService.getConfigVersion(label)).thenReturn(Optional.of(view));
+	}
+
+	@Test
+	public void patchConfigAnswersPreconditionFailedOnVersionMismatch() throws Exception {
+		Mockito.when(configService.patchConfig(Mockito.eq("APP1"), Mockito.anyList(), Mockito.eq(2)))
+				.thenThrow(new VersionMismatchException());
+
+		mockMvc.perform(patch("/config/APP1").header(HttpHeaders.IF_MATCH, "\"2\"")
+				.contentType(MediaType.APPLICATION_JSON).content("[{\"key\":\"db.url\",\"value\":\"url\"}]"))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(patch("/config/APP1").header(HttpHeaders.IF_MATCH, "\"2-gzip\"")
+				.contentType(MediaType.APPLICATION_JSON).content("[]")).andExpect(status().isPreconditionFailed());
+	}
+
+	@Test
+	public void patchConfigAnswersServiceUnavailableWhenCoalescedWriteTimesOut() throws Exception {
+		Mockito.when(configService.patchConfig(Mockito.eq("APP1"), Mockito.anyList(), Mockito.isNull()))
+				.thenThrow(new WriteTimeoutException());
+
+		mockMvc.perform(patch("/config/APP1").contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isServiceUnavailable());
+	}
+
+	@Test
+	public void updateConfigAnswersConflictWhenRetriesRunOut() throws Exception {
+		Mockito.when(configService.updateConfig(Mockito.eq("APP1"), Mockito.anyList(), Mockito.isNull()))
+				.thenThrow(new ConfigConflictException());
+
+		mockMvc.perform(put("/config/APP1").contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isConflict());
+	}
+
+	@Test
+	public void updateConfigReturnsNewVersionAsETag() throws Exception {
+		ConfigDetailDAO detail = new ConfigDetailDAO();
+		detail.setVersion(5);
+		Mockito.when(configService.updateConfig(Mockito.eq("APP1"), Mockito.anyList(), Mockito.eq(4)))
+				.thenReturn(detail);
+
+		mockMvc.perform(put("/config/APP1").header(HttpHeaders.IF_MATCH, "\"4\"")
+				.contentType(MediaType.APPLICATION_JSON).content("[]")).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+	}
+
+	@Test
+	public void watchAnswersRightAwayWhenClientIsBehind() throws Exception {
+		givenVersion("APP1", 3);
+
+		MvcResult result = mockMvc.perform(get("/config/APP1/watch").param("version", "2"))
+				.andExpect(request().asyncStarted()).andReturn();
+
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.configVersion").value(3));
+	}
+
+	@Test
+	public void watchIsReleasedByVersionChange() throws Exception {
+		givenVersion("WATCH-APP", 3);
+
+		MvcResult result = mockMvc.perform(get("/config/WATCH-APP/watch").param("version", "3"))
+				.andExpect(request().asyncStarted()).andReturn();
+		assertThat(configWatchService.getWatcherCount("WATCH-APP")).isEqualTo(1);
+
+		configWatchService.release("WATCH-APP", 4, UPDATE_TIME);
+
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.label").value("WATCH-APP")).andExpect(jsonPath("$.configVersion").value(4));
+		assertThat(configWatchService.getWatcherCount("WATCH-APP")).isEqualTo(0);
+	}
+
+	@Test
+	public void watchAnswersNotModifiedOnTimeout() throws Exception {
+		givenVersion("IDLE-APP", 3);
+
+		MvcResult result = mockMvc.perform(get("/config/IDLE-APP/watch").param("version", "3"))
+				.andExpect(request().asyncStarted()).andReturn();
+
+		MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+		assertThat(asyncContext.getTimeout()).isEqualTo(configServerProperties.getWatch().getTimeout().toMillis());
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onTimeout(null);
+		}
+
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isNotModified());
+		assertThat(configWatchService.getWatcherCount("IDLE-APP")).isEqualTo(0);
+	}
+
+	private static byte[] gzip(final String body) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+		return bytes.toByteArray();
+	}
+
+	private void givenConfig(final String label, final int version) {
+		ConfigMetaDAO meta = new ConfigMetaDAO();
+		meta.setKey("db.url");
+		meta.setValue("url");
+
+		ConfigDetailDAO detail = new ConfigDetailDAO();
+		detail.setVersion(version);
+		detail.setConfigData(Collections.singletonList(meta));
+
+		Mockito.when(configService.getCachedConfig(label)).thenReturn(Optional
+				.of(new CachedConfig(label, version, UPDATE_TIME, detail, JSON_BODY.getBytes(StandardCharsets.UTF_8))));
+	}
+
+}
@@ -0,0 +1,160 @@
+package io.github.melangad.spring.config.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConfigPushServiceTest {
+
+	private ConfigServerProperties properties;
+
+	private ConfigPushService pushService;
+
+	@Before
+	public void setUp() {
+		properties = new ConfigServerProperties();
+		properties.getPush().setSendThreads(2);
+	}
+
+	@After
+	public void tearDown() {
+		if (null != pushService) {
+			pushService.destroy();
+		}
+	}
+
+	@Test
+	public void broadcastBeyondTheSendQueueDropsTheRemainingClients() throws Exception {
+		// One send thread and one queued send, the third client is rejected
+		properties.getPush().setSendThreads(1);
+		properties.getPush().setSendQueueSize(1);
+		init();
+		CountDownLatch release = new CountDownLatch(1);
+		BlockingEmitter first = new BlockingEmitter(release);
+		BlockingEmitter second = new BlockingEmitter(release);
+		BlockingEmitter third = new BlockingEmitter(release);
+		pushService.addEmitter("APP1", first);
+		pushService.addEmitter("APP1", second);
+		pushService.addEmitter("APP1", third);
+
+		pushService.doNotify("APP1", 2, new Date());
+
+		assertThat(pushService.getDroppedCount()).isEqualTo(1);
+		assertThat(pushService.getSubscriberCount("APP1")).isEqualTo(2);
+
+		release.countDown();
+		awaitBroadcasts(1);
+		assertThat(first.sent.get() + second.sent.get() + third.sent.get()).isEqualTo(2);
+		assertThat(pushService.getSubscriberCount("APP1")).isEqualTo(2);
+	}
+
+	@Test
+	public void clientNotAcceptingTheEventInTimeIsAborted() throws Exception {
+		properties.getPush().setSendTimeout(Duration.ofMillis(100));
+		init();
+		CountDownLatch aborted = new CountDownLatch(1);
+		BlockingEmitter slow = new BlockingEmitter(aborted);
+		BlockingEmitter fast = new BlockingEmitter(new CountDownLatch(0));
+		pushService.addEmitter("APP1", slow, aborted::countDown);
+		pushService.addEmitter("APP1", fast);
+
+		pushService.doNotify("APP1", 2, new Date());
+
+		assertThat(aborted.await(5, TimeUnit.SECONDS)).isTrue();
+		awaitBroadcasts(1);
+		assertThat(fast.sent.get()).isEqualTo(1);
+		assertThat(pushService.getDroppedCount()).isEqualTo(1);
+		assertThat(pushService.getSubscriberCount("APP1")).isEqualTo(1);
+		assertThat(pushService.removeEmitter("APP1", slow)).isFalse();
+	}
+
+	@Test
+	public void labelWithoutClientsIsRemoved() throws Exception {
+		init();
+		SseEmitter removed = new SseEmitter();
+		FailingEmitter failing = new FailingEmitter();
+		pushService.addEmitter("APP1", removed);
+		pushService.addEmitter("APP2", failing);
+		assertThat(pushService.getSubscriberCounts()).containsOnlyKeys("APP1", "APP2");
+
+		assertThat(pushService.removeEmitter("APP1", removed)).isTrue();
+		pushService.doNotify("APP2", 2, new Date());
+		awaitBroadcasts(1);
+
+		assertThat(pushService.getDroppedCount()).isEqualTo(1);
+		assertThat(pushService.getSubscriberCounts()).isEmpty();
+
+		// A label added again after its removal is registered anew
+		pushService.addEmitter("APP1", removed);
+		assertThat(pushService.getSubscriberCounts()).containsEntry("APP1", 1);
+	}
+
+	private void awaitBroadcasts(final long count) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (pushService.getBroadcastCount() < count && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(pushService.getBroadcastCount()).isEqualTo(count);
+	}
+
+	private void init() {
+		ConfigServerMetrics metrics = new ConfigServerMetrics();
+		ReflectionTestUtils.setField(metrics, "properties", properties);
+		ReflectionTestUtils.setField(metrics, "meterRegistry", new SimpleMeterRegistry());
+		metrics.init();
+
+		pushService = new ConfigPushService();
+		ReflectionTestUtils.setField(pushService, "properties", properties);
+		ReflectionTestUtils.setField(pushService, "metrics", metrics);
+		pushService.init();
+	}
+
+	/**
+	 * Emitter holding the send until released, failing it as an aborted
+	 * connection would when released by an abort
+	 */
+	private static class BlockingEmitter extends SseEmitter {
+
+		private final CountDownLatch release;
+
+		private final AtomicInteger sent = new AtomicInteger();
+
+		BlockingEmitter(final CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void send(final SseEventBuilder builder) throws IOException {
+			try {
+				this.release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Send interrupted");
+			}
+			this.sent.incrementAndGet();
+		}
+	}
+
+	private static class FailingEmitter extends SseEmitter {
+
+		@Override
+		public void send(final SseEventBuilder builder) throws IOException {
+			throw new IOException("Connection reset");
+		}
+	}
+
+}
@@ -2,28 +2,66 @@ package io.github.melangad.spring.config.server;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.cache.LabelHierarchy;
+import io.github.melangad.spring.config.server.cache.LabelIndex;
 import io.github.melangad.spring.config.server.entity.Config;
+import io.github.melangad.spring.config.server.entity.ConfigHistory;
+import io.github.melangad.spring.config.server.entity.ConfigHistoryType;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.model.ClientFeedback;
+import io.github.melangad.spring.config.server.model.ConfigBatchDAO;
+import io.github.melangad.spring.config.server.model.ConfigDeltaDAO;
 import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.model.ConfigEvent;
+import io.github.melangad.spring.config.server.model.ConfigEventType;
+import io.github.melangad.spring.config.server.model.ConfigFleetDAO;
+import io.github.melangad.spring.config.server.model.ConfigImportDAO;
 import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.model.ConfigPushEvent;
+import io.github.melangad.spring.config.server.model.LabelVersionDAO;
+import io.github.melangad.spring.config.server.model.ResolvedConfigDAO;
 import io.github.melangad.spring.config.server.repository.ConfigHistoryRepository;
 import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import io.github.melangad.spring.config.server.repository.ConfigVersionView;
+import io.github.melangad.spring.config.server.repository.LabelParentView;
+import io.github.melangad.spring.config.server.storage.BlobConfigValueStore;
+import io.github.melangad.spring.config.server.storage.ConfigValueStore;
 
 @RunWith(SpringRunner.class)
 public class ConfigServiceTest {
@@ -35,17 +73,123 @@ public class ConfigServiceTest {
 		public ConfigService configService() {
 			return new ConfigService();
 		}
+
+		@Bean
+		public ConfigCache configCache() {
+			return new ConfigCache();
+		}
+
+		@Bean
+		public LabelIndex labelIndex() {
+			return new LabelIndex();
+		}
+
+		@Bean
+		public LabelHierarchy labelHierarchy() {
+			return new LabelHierarchy();
+		}
+
+		@Bean
+		public ConfigWatchService configWatchService() {
+			return new ConfigWatchService();
+		}
+
+		@Bean
+		public ConfigPushService configPushService() {
+			return new ConfigPushService();
+		}
+
+		@Bean
+		public ConfigChangeNotifier configChangeNotifier() {
+			return new ConfigChangeNotifier();
+		}
+
+		@Bean
+		public ConfigWriteExecutor configWriteExecutor() {
+			return new ConfigWriteExecutor();
+		}
+
+		@Bean
+		public ConfigEventDispatcher configEventDispatcher() {
+			return new ConfigEventDispatcher();
+		}
+
+		@Bean
+		public RecordingEventHandler recordingEventHandler() {
+			return new RecordingEventHandler();
+		}
+
+		@Bean
+		public ClientFeedbackService clientFeedbackService() {
+			return new ClientFeedbackService();
+		}
+
+		@Bean
+		public ConfigValueStore configValueStore() {
+			return new BlobConfigValueStore();
+		}
+
+		@Bean
+		public ConfigHistoryService configHistoryService() {
+			return new ConfigHistoryService();
+		}
+
+		@Bean
+		public ConfigServerMetrics configServerMetrics() {
+			return new ConfigServerMetrics();
+		}
+
+		@Bean
+		public ConfigServerProperties configServerProperties() {
+			return new ConfigServerProperties();
+		}
+	}
+
+	static class RecordingEventHandler implements ConfigEventHandler {
+
+		private final BlockingQueue<ConfigEvent> events = new LinkedBlockingQueue<>();
+
+		@Override
+		public void onEvent(ConfigEvent configEvent) {
+			this.events.add(configEvent);
+		}
 	}
 
 	@Autowired
 	private ConfigService configService;
 
+	@Autowired
+	private ConfigCache configCache;
+
+	@Autowired
+	private LabelIndex labelIndex;
+
+	@Autowired
+	private LabelHierarchy labelHierarchy;
+
+	@Autowired
+	private ConfigServerProperties configServerProperties;
+
+	@Autowired
+	private RecordingEventHandler recordingEventHandler;
+
+	@Autowired
+	private ConfigWatchService configWatchService;
+
 	@MockBean
 	private ConfigRepository configRepository;
 
 	@MockBean
 	private ConfigHistoryRepository configHistoryRepository;
 
+	@Before
+	public void setUp() {
+		configCache.evictAll();
+		labelIndex.reload();
+		labelHierarchy.reload();
+		recordingEventHandler.events.clear();
+	}
+
 	@Test
 	public void createConfigSuccessful() throws LabelAlreadyExisitException, InvalidConfigException, DuplicateKeysException {
 
@@ -119,4 +263,425 @@ public class ConfigServiceTest {
 		assertThat(result.isPresent()).isFalse();
 	}
 
+	@Test
+	public void getConfigServedFromCache() {
+
+		String json = "[{\"key\": \"SOME-KEY\", \"value\":\"val1\",\"description\":\"desc1\"}]";
+
+		Config config = new Config();
+		config.setConfigVersion(3);
+		config.setLabel("APP1");
+		config.setValue(json);
+
+		List<Config> list = new ArrayList<Config>();
+		list.add(config);
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(list);
+
+		configService.getConfig("APP1");
+		Optional<ConfigDetailDAO> result = configService.getConfig("APP1");
+
+		assertThat(result.get().getVersion()).isEqualTo(3);
+		Mockito.verify(configRepository, Mockito.times(1)).findByLabel("APP1");
+	}
+
+	@Test
+	public void patchConfigInvalidatesCache()
+			throws InvalidLabelException, InvalidConfigException, DuplicateKeysException, ConfigConflictException,
+			WriteTimeoutException {
+
+		String json = "[{\"key\": \"SOME-KEY\", \"value\":\"val1\",\"description\":\"desc1\"}]";
+
+		Config config = new Config();
+		config.setConfigVersion(3);
+		config.setLabel("APP1");
+		config.setValue(json);
+
+		List<Config> list = new ArrayList<Config>();
+		list.add(config);
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(list);
+		Mockito.when(configRepository.save(Mockito.any())).thenReturn(config);
+
+		configService.getConfig("APP1");
+
+		ConfigMetaDAO meta = new ConfigMetaDAO();
+		meta.setKey("SOME-KEY");
+		meta.setValue("val2");
+
+		List<ConfigMetaDAO> configList = new ArrayList<>();
+		configList.add(meta);
+
+		configService.patchConfig("APP1", configList);
+		Optional<ConfigDetailDAO> result = configService.getConfig("APP1");
+
+		assertThat(result.get().getVersion()).isEqualTo(4);
+		assertThat(result.get().getConfigData().get(0).getValue()).isEqualTo("val2");
+	}
+
+	@Test
+	public void getConfigDeltaSuccessful() throws InvalidVersionException {
+
+		String json = "[{\"key\": \"KEY1\", \"value\":\"val1\"},{\"key\": \"KEY2\", \"value\":\"val2-new\"},"
+				+ "{\"key\": \"KEY4\", \"value\":\"val4\"}]";
+		String previousJson = "[{\"key\": \"KEY1\", \"value\":\"val1\"},{\"key\": \"KEY2\", \"value\":\"val2\"},"
+				+ "{\"key\": \"KEY3\", \"value\":\"val3\"}]";
+
+		Config config = new Config();
+		config.setConfigVersion(3);
+		config.setLabel("APP1");
+		config.setValue(json);
+
+		ConfigHistory history = new ConfigHistory();
+		history.setConfigVersion(2);
+		history.setLabel("APP1");
+		history.setValue(previousJson);
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.singletonList(config));
+		Mockito.when(configHistoryRepository.findByLabelAndConfigVersion("APP1", 2))
+				.thenReturn(Collections.singletonList(history));
+
+		Optional<ConfigDeltaDAO> result = configService.getConfigDelta("APP1", 2);
+
+		assertThat(result.get().getFromVersion()).isEqualTo(2);
+		assertThat(result.get().getToVersion()).isEqualTo(3);
+		assertThat(result.get().getAdded()).extracting(ConfigMetaDAO::getKey).containsExactly("KEY4");
+		assertThat(result.get().getChanged()).extracting(ConfigMetaDAO::getKey).containsExactly("KEY2");
+		assertThat(result.get().getRemoved()).extracting(ConfigMetaDAO::getKey).containsExactly("KEY3");
+	}
+
+	@Test
+	public void getConfigVersionFromDeltaHistory() throws InvalidVersionException {
+
+		String json = "[{\"key\": \"KEY1\", \"value\":\"val1\"},{\"key\": \"KEY2\", \"value\":\"val2-new\"},"
+				+ "{\"key\": \"KEY4\", \"value\":\"val4\"}]";
+		String deltaJson = "{\"upserts\":[{\"key\": \"KEY2\", \"value\":\"val2\"}],\"removals\":[\"KEY4\"]}";
+
+		Config config = new Config();
+		config.setConfigVersion(3);
+		config.setLabel("APP1");
+		config.setValue(json);
+
+		ConfigHistory history = new ConfigHistory();
+		history.setConfigVersion(2);
+		history.setLabel("APP1");
+		history.setValue(deltaJson);
+		history.setHistoryType(ConfigHistoryType.DELTA);
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.singletonList(config));
+		Mockito.when(configHistoryRepository.findByLabelAndConfigVersion("APP1", 2))
+				.thenReturn(Collections.singletonList(history));
+		Mockito.when(configHistoryRepository.findByLabelAndConfigVersionBetweenOrderByConfigVersionDesc("APP1", 2, 2))
+				.thenReturn(Collections.singletonList(history));
+
+		Optional<ConfigDetailDAO> result = configService.getConfig("APP1", 2);
+
+		assertThat(result.get().getVersion()).isEqualTo(2);
+		assertThat(result.get().getConfigData()).extracting(ConfigMetaDAO::getKey).containsExactly("KEY1", "KEY2");
+		assertThat(result.get().getConfigData().get(1).getValue()).isEqualTo("val2");
+	}
+
+	@Test
+	public void getConfigsLoadsMissesInOneQuery() {
+
+		String json = "[{\"key\": \"SOME-KEY\", \"value\":\"val1\",\"description\":\"desc1\"}]";
+
+		Config app1 = new Config();
+		app1.setConfigVersion(3);
+		app1.setLabel("APP1");
+		app1.setValue(json);
+
+		Config app2 = new Config();
+		app2.setConfigVersion(5);
+		app2.setLabel("APP2");
+		app2.setValue(json);
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.singletonList(app1));
+		Mockito.when(configRepository.findByLabelIn(Mockito.anyCollection())).thenReturn(Collections.singletonList(app2));
+
+		configService.getConfig("APP1");
+		ConfigBatchDAO result = configService.getConfigs(Arrays.asList("APP1", "APP2", "APP3"));
+
+		assertThat(result.getConfigs().get("APP1").getVersion()).isEqualTo(3);
+		assertThat(result.getConfigs().get("APP2").getVersion()).isEqualTo(5);
+		assertThat(result.getNotFound()).containsExactly("APP3");
+		Mockito.verify(configRepository, Mockito.times(1)).findByLabelIn(Arrays.asList("APP2", "APP3"));
+	}
+
+	@Test
+	public void getLabelListFromIndex() {
+
+		Mockito.when(configRepository.findAllLabels()).thenReturn(Arrays.asList("beta", "APP2", "app1", "Alpha"));
+
+		assertThat(configService.getLabelList()).containsExactly("Alpha", "app1", "APP2", "beta");
+		assertThat(configService.getLabelList("ap", 0, 10)).containsExactly("app1", "APP2");
+		assertThat(configService.getLabelList("ap", 1, 1)).containsExactly("APP2");
+		Mockito.verify(configRepository, Mockito.times(1)).findAllLabels();
+	}
+
+	@Test
+	public void importConfigStreamsEntries() throws Exception {
+
+		String json = "[{\"key\": \"KEY1\", \"value\":\"val1\"},{\"key\": \"KEY2\", \"value\":2}]";
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.emptyList());
+		Mockito.when(configRepository.save(Mockito.any())).thenAnswer(i -> i.getArgument(0));
+
+		ConfigImportDAO result = configService.importConfig("APP1",
+				new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), false);
+
+		assertThat(result.getEntryCount()).isEqualTo(2);
+		assertThat(result.getVersion()).isEqualTo(1);
+		Mockito.verify(configRepository).save(Mockito.argThat(
+				(Config c) -> c.getValue().contains("\"KEY2\"") && c.getValue().contains("\"2\"")));
+	}
+
+	@Test(expected = InvalidImportException.class)
+	public void importConfigDuplicateKeys() throws Exception {
+
+		String json = "[{\"key\": \"KEY1\", \"value\":\"val1\"},{\"key\": \"KEY1\", \"value\":\"val2\"}]";
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.emptyList());
+
+		configService.importConfig("APP1", new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), false);
+	}
+
+	@Test
+	public void patchConfigNotifiesTheFlushedUpdateTime() throws Exception {
+		final Date flushedTime = new Date(1600000000000L);
+
+		Config config = new Config();
+		config.setConfigVersion(3);
+		config.setLabel("FLUSH-APP");
+		config.setValue("[]");
+
+		Mockito.when(configRepository.findByLabel("FLUSH-APP")).thenReturn(Collections.singletonList(config));
+		Mockito.when(configRepository.save(Mockito.any())).thenReturn(config);
+		// Stands in for @PreUpdate, which runs when the row is flushed
+		Mockito.doAnswer(invocation -> {
+			config.setUpdateTime(flushedTime);
+			return null;
+		}).when(configRepository).flush();
+
+		DeferredResult<ResponseEntity<?>> watch = configWatchService.watch("FLUSH-APP", 3);
+
+		ConfigMetaDAO meta = new ConfigMetaDAO();
+		meta.setKey("SOME-KEY");
+		meta.setValue("val2");
+		configService.patchConfig("FLUSH-APP", Collections.singletonList(meta));
+
+		ConfigPushEvent event = (ConfigPushEvent) ((ResponseEntity<?>) watch.getResult()).getBody();
+		assertThat(event.getConfigVersion()).isEqualTo(4);
+		assertThat(event.getUpdateTime()).isEqualTo(flushedTime);
+	}
+
+	@Test(expected = VersionMismatchException.class)
+	public void patchConfigVersionMismatch() throws Exception {
+
+		String json = "[{\"key\": \"SOME-KEY\", \"value\":\"val1\",\"description\":\"desc1\"}]";
+
+		Config config = new Config();
+		config.setConfigVersion(3);
+		config.setLabel("APP1");
+		config.setValue(json);
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.singletonList(config));
+
+		ConfigMetaDAO meta = new ConfigMetaDAO();
+		meta.setKey("SOME-KEY");
+		meta.setValue("val2");
+
+		configService.patchConfig("APP1", Collections.singletonList(meta), 2);
+	}
+
+	@Test
+	public void concurrentPatchesDoNotLoseUpdates() throws Exception {
+
+		Config config = new Config();
+		config.setConfigVersion(1);
+		config.setLabel("APP1");
+		config.setValue("[]");
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.singletonList(config));
+		Mockito.when(configRepository.save(Mockito.any())).thenReturn(config);
+
+		int writers = 8;
+		int patchesPerWriter = 25;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int w = 0; w < writers; w++) {
+			final int writer = w;
+			futures.add(executor.submit(() -> {
+				for (int i = 0; i < patchesPerWriter; i++) {
+					ConfigMetaDAO meta = new ConfigMetaDAO();
+					meta.setKey("KEY-" + writer + "-" + i);
+					meta.setValue("val");
+					configService.patchConfig("APP1", Collections.singletonList(meta));
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		ArgumentCaptor<ConfigHistory> history = ArgumentCaptor.forClass(ConfigHistory.class);
+		Mockito.verify(configHistoryRepository, Mockito.times(writers * patchesPerWriter)).save(history.capture());
+
+		assertThat(config.getConfigVersion()).isEqualTo(1 + writers * patchesPerWriter);
+		assertThat(history.getAllValues()).extracting(ConfigHistory::getConfigVersion).doesNotHaveDuplicates();
+		assertThat(configService.getConfig("APP1").get().getConfigData()).hasSize(writers * patchesPerWriter);
+	}
+
+	@Test
+	public void coalescedPatchesShareOneVersion() throws Exception {
+
+		Config config = new Config();
+		config.setConfigVersion(3);
+		config.setLabel("APP1");
+		config.setValue("[]");
+
+		Mockito.when(configRepository.findByLabel("APP1")).thenReturn(Collections.singletonList(config));
+		Mockito.when(configRepository.save(Mockito.any())).thenReturn(config);
+
+		configServerProperties.getWrite().setCoalesceWindow(Duration.ofMillis(500));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<ConfigDetailDAO>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				final ConfigMetaDAO meta = new ConfigMetaDAO();
+				meta.setKey("KEY-" + i);
+				meta.setValue("val");
+				futures.add(executor.submit(() -> {
+					start.await();
+					return configService.patchConfig("APP1", Collections.singletonList(meta));
+				}));
+			}
+			start.countDown();
+
+			for (Future<ConfigDetailDAO> future : futures) {
+				assertThat(future.get().getVersion()).isEqualTo(4);
+				assertThat(future.get().getConfigData()).hasSize(4);
+			}
+			Mockito.verify(configHistoryRepository, Mockito.times(1)).save(Mockito.any());
+		} finally {
+			configServerProperties.getWrite().setCoalesceWindow(Duration.ZERO);
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void eventsDispatchedAfterWrite() throws Exception {
+
+		configService.createConfig("EVENT-APP", new ArrayList<>());
+
+		ConfigEvent event = recordingEventHandler.events.poll(5, TimeUnit.SECONDS);
+		while (null != event && !"EVENT-APP".equals(event.getLabel())) {
+			event = recordingEventHandler.events.poll(5, TimeUnit.SECONDS);
+		}
+		assertThat(event).isNotNull();
+		assertThat(event.getEventType()).isEqualTo(ConfigEventType.CONFIG_CREATE);
+	}
+
+	@Test
+	public void configFleetCountsClientsPerVersion() throws Exception {
+
+		ConfigVersionView version = Mockito.mock(ConfigVersionView.class);
+		Mockito.when(version.getConfigVersion()).thenReturn(3);
+		Mockito.when(configRepository.findVersionByLabel("FLEET-APP")).thenReturn(Optional.of(version));
+		labelIndex.add("FLEET-APP");
+
+		String[] clients = { "C1", "C2", "C3", "C1" };
+		int[] versions = { 2, 3, 3, 3 };
+		for (int i = 0; i < clients.length; i++) {
+			ClientFeedback feedback = new ClientFeedback();
+			feedback.setLabel("FLEET-APP");
+			feedback.setClientId(clients[i]);
+			feedback.setClientVersion(versions[i]);
+			assertThat(configService.processClientFeedback(feedback)).isTrue();
+		}
+
+		ConfigFleetDAO fleet = configService.getConfigFleet("FLEET-APP").get();
+		for (int i = 0; i < 50 && fleet.getVersionCounts().getOrDefault(3, 0L) < 3; i++) {
+			Thread.sleep(100);
+			fleet = configService.getConfigFleet("FLEET-APP").get();
+		}
+
+		assertThat(fleet.getCurrentVersion()).isEqualTo(3);
+		assertThat(fleet.getClientCount()).isEqualTo(3);
+		assertThat(fleet.getVersionCounts()).containsOnlyKeys(3).containsEntry(3, 3L);
+	}
+
+	@Test
+	public void resolvedConfigMergesLayers() {
+
+		Config base = new Config();
+		base.setConfigVersion(2);
+		base.setLabel("BASE");
+		base.setValue("[{\"key\": \"A\", \"value\":\"base-a\"}, {\"key\": \"B\", \"value\":\"base-b\"}]");
+
+		Config service = new Config();
+		service.setConfigVersion(5);
+		service.setLabel("SERVICE");
+		service.setParentLabel("BASE");
+		service.setValue("[{\"key\": \"C\", \"value\":\"service-c\"}, {\"key\": \"B\", \"value\":\"service-b\"}]");
+
+		LabelParentView parent = Mockito.mock(LabelParentView.class);
+		Mockito.when(parent.getLabel()).thenReturn("SERVICE");
+		Mockito.when(parent.getParentLabel()).thenReturn("BASE");
+
+		Mockito.when(configRepository.findByLabel("BASE")).thenReturn(Collections.singletonList(base));
+		Mockito.when(configRepository.findByLabel("SERVICE")).thenReturn(Collections.singletonList(service));
+		Mockito.when(configRepository.findAllParents()).thenReturn(Collections.singletonList(parent));
+
+		CachedConfig result = configService.getResolvedConfig("SERVICE").get();
+		ResolvedConfigDAO resolved = (ResolvedConfigDAO) result.getConfigDetail();
+
+		assertThat(resolved.getVersion()).isEqualTo(5);
+		assertThat(resolved.getConfigData()).extracting(ConfigMetaDAO::getKey).containsExactly("A", "B", "C");
+		assertThat(resolved.getConfigData()).extracting(ConfigMetaDAO::getValue).containsExactly("base-a",
+				"service-b", "service-c");
+		assertThat(resolved.getLayers()).extracting(LabelVersionDAO::getLabel).containsExactly("BASE", "SERVICE");
+		assertThat(configService.getResolvedConfig("SERVICE").get()).isSameAs(result);
+	}
+
+	@Test
+	public void cachedConfigFindsKeysAndPrefix() {
+
+		Config config = new Config();
+		config.setConfigVersion(1);
+		config.setLabel("FILTER-APP");
+		config.setValue("[{\"key\": \"feature.b\"}, {\"key\": \"db.url\"}, {\"key\": \"dbx\"},"
+				+ " {\"key\": \"db.user\"}, {\"key\": \"feature.a\"}, {\"key\": \"cache.ttl\"}]");
+
+		Mockito.when(configRepository.findByLabel("FILTER-APP")).thenReturn(Collections.singletonList(config));
+
+		CachedConfig cached = configService.getCachedConfig("FILTER-APP").get();
+
+		assertThat(cached.find("db.", null)).extracting(ConfigMetaDAO::getKey).containsExactly("db.url", "db.user");
+		assertThat(cached.find("db.", Arrays.asList("feature.b", "db.url", "missing")))
+				.extracting(ConfigMetaDAO::getKey).containsExactly("db.url", "db.user", "feature.b");
+		assertThat(cached.find(null, Arrays.asList("feature.a"))).extracting(ConfigMetaDAO::getKey)
+				.containsExactly("feature.a");
+		assertThat(cached.find("zzz", null)).isEmpty();
+	}
+
+	@Test
+	public void preloadConfigsFillsCache() {
+
+		Config config = new Config();
+		config.setConfigVersion(4);
+		config.setLabel("WARM-APP");
+		config.setValue("[{\"key\": \"SOME-KEY\", \"value\":\"val1\"}]");
+
+		assertThat(configService.preloadConfigs(Collections.singletonList(config))).hasSize(1);
+
+		Optional<ConfigDetailDAO> result = configService.getConfig("WARM-APP");
+
+		assertThat(result.get().getVersion()).isEqualTo(4);
+		Mockito.verify(configRepository, Mockito.never()).findByLabel("WARM-APP");
+	}
+
 }
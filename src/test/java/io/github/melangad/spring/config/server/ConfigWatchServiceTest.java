@@ -0,0 +1,62 @@
+package io.github.melangad.spring.config.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import io.github.melangad.spring.config.server.model.ConfigPushEvent;
+
+public class ConfigWatchServiceTest {
+
+	private ConfigWatchService configWatchService;
+
+	@Before
+	public void setUp() {
+		configWatchService = new ConfigWatchService();
+		ReflectionTestUtils.setField(configWatchService, "properties", new ConfigServerProperties());
+	}
+
+	@Test
+	public void releaseCompletesWatchersBehindTheVersion() {
+		DeferredResult<ResponseEntity<?>> behind = configWatchService.watch("APP1", 2);
+		DeferredResult<ResponseEntity<?>> current = configWatchService.watch("APP1", 3);
+
+		configWatchService.release("APP1", 3, new Date());
+
+		assertThat(behind.hasResult()).isTrue();
+		ResponseEntity<?> response = (ResponseEntity<?>) behind.getResult();
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(((ConfigPushEvent) response.getBody()).getConfigVersion()).isEqualTo(3);
+
+		assertThat(current.hasResult()).isFalse();
+		assertThat(configWatchService.getWatcherCount("APP1")).isEqualTo(1);
+	}
+
+	@Test
+	public void watchAfterReleaseCompletesRightAway() {
+		configWatchService.release("APP1", 4, new Date());
+
+		DeferredResult<ResponseEntity<?>> result = configWatchService.watch("APP1", 3);
+
+		assertThat(result.hasResult()).isTrue();
+		assertThat(configWatchService.watch("APP1", 4).hasResult()).isFalse();
+	}
+
+	@Test
+	public void releaseOfOtherLabelKeepsWatchers() {
+		DeferredResult<ResponseEntity<?>> result = configWatchService.watch("APP1", 1);
+
+		configWatchService.release("APP2", 5, new Date());
+
+		assertThat(result.hasResult()).isFalse();
+		assertThat(configWatchService.getWatcherCount("APP1")).isEqualTo(1);
+	}
+
+}
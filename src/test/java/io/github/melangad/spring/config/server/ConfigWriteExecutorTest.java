@@ -0,0 +1,107 @@
+package io.github.melangad.spring.config.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class ConfigWriteExecutorTest {
+
+	private ConfigServerProperties properties;
+
+	private ConfigWriteExecutor executor;
+
+	private ExecutorService threads;
+
+	@Before
+	public void setUp() {
+		properties = new ConfigServerProperties();
+		properties.getWrite().setRetryBackOff(Duration.ZERO);
+
+		threads = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void writeIsRetriedOnConcurrentUpdate() throws Exception {
+		init();
+		AtomicInteger attempts = new AtomicInteger();
+
+		String result = executor.execute("APP1", () -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new OptimisticLockingFailureException("Row was updated");
+			}
+			return "written";
+		});
+
+		assertThat(result).isEqualTo("written");
+		assertThat(executor.getRetryCount()).isEqualTo(2);
+		assertThat(executor.getConflictCount()).isEqualTo(0);
+	}
+
+	@Test(expected = ConfigConflictException.class)
+	public void writeGivesUpAfterMaxAttempts() throws Exception {
+		init();
+		AtomicInteger attempts = new AtomicInteger();
+
+		try {
+			executor.execute("APP1", () -> {
+				attempts.incrementAndGet();
+				throw new OptimisticLockingFailureException("Row was updated");
+			});
+		} finally {
+			assertThat(attempts.get()).isEqualTo(3);
+			assertThat(executor.getConflictCount()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void writesSharingALockRunOneAtATime() throws Exception {
+		properties.getWrite().setLockStripes(1);
+		init();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> first = threads.submit(() -> executor.execute("APP1", () -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return "first";
+		}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		Future<String> second = threads.submit(() -> executor.execute("APP2", () -> "second"));
+		try {
+			second.get(200, TimeUnit.MILLISECONDS);
+			throw new AssertionError("Write ran while the lock was held");
+		} catch (TimeoutException e) {
+			// Expected, the only lock is held by the first write
+		}
+
+		release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("second");
+	}
+
+	private void init() {
+		executor = new ConfigWriteExecutor();
+		ReflectionTestUtils.setField(executor, "properties", properties);
+		executor.init();
+	}
+
+}
@@ -0,0 +1,123 @@
+package io.github.melangad.spring.config.server.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpiringLruCacheTest {
+
+	private ExecutorService threads;
+
+	@Before
+	public void setUp() {
+		threads = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void tearDown() {
+		threads.shutdownNow();
+	}
+
+	@Test
+	public void leastRecentlyReadEntryIsEvicted() throws Exception {
+		ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, null);
+
+		cache.put("A", "a");
+		cache.put("B", "b");
+		Thread.sleep(5);
+		assertThat(cache.getIfPresent("A")).isEqualTo("a");
+
+		cache.put("C", "c");
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.getEvictionCount()).isEqualTo(1);
+		assertThat(cache.getIfPresent("B")).isNull();
+		assertThat(cache.getIfPresent("A")).isEqualTo("a");
+		assertThat(cache.getIfPresent("C")).isEqualTo("c");
+	}
+
+	@Test
+	public void expiredEntryIsLoadedAgain() throws Exception {
+		ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofMillis(20));
+
+		cache.put("A", "a");
+		Thread.sleep(40);
+
+		assertThat(cache.getIfPresent("A")).isNull();
+		assertThat(cache.get("A", key -> "reloaded")).isEqualTo("reloaded");
+	}
+
+	@Test
+	public void concurrentMissesShareOneLoad() throws Exception {
+		ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, null);
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+
+		Future<String> first = threads.submit(() -> cache.get("A", key -> {
+			loads.incrementAndGet();
+			loading.countDown();
+			await(release);
+			return "a";
+		}));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+		Future<String> second = threads.submit(() -> cache.get("A", key -> {
+			loads.incrementAndGet();
+			return "other";
+		}));
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+		assertThat(loads.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void invalidationDiscardsOnlyLoadsOfItsKey() throws Exception {
+		ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, null);
+		CountDownLatch loading = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> stale = threads.submit(() -> cache.get("A", key -> {
+			loading.countDown();
+			await(release);
+			return "stale";
+		}));
+		Future<?> other = threads.submit(() -> cache.getAll(Arrays.asList("B"), keys -> {
+			loading.countDown();
+			await(release);
+			return Collections.singletonMap("B", "b");
+		}));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+		cache.invalidate("A");
+		release.countDown();
+		stale.get(5, TimeUnit.SECONDS);
+		other.get(5, TimeUnit.SECONDS);
+
+		assertThat(cache.getIfPresent("A")).isNull();
+		assertThat(cache.getIfPresent("B")).isEqualTo("b");
+	}
+
+	private static void await(final CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
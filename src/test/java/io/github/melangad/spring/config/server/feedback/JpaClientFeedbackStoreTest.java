@@ -0,0 +1,172 @@
+package io.github.melangad.spring.config.server.feedback;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.entity.ClientFeedbackRecord;
+import io.github.melangad.spring.config.server.model.ClientFeedback;
+import io.github.melangad.spring.config.server.repository.ClientFeedbackRepository;
+
+public class JpaClientFeedbackStoreTest {
+
+	private ConfigServerProperties properties;
+
+	private ClientFeedbackRepository repository;
+
+	private JpaClientFeedbackStore store;
+
+	private final List<List<ClientFeedbackRecord>> savedRows = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		properties = new ConfigServerProperties();
+		properties.getFeedback().getStore().setFlushInterval(Duration.ofHours(1));
+		properties.getFeedback().getStore().setPruneInterval(Duration.ofHours(1));
+
+		repository = Mockito.mock(ClientFeedbackRepository.class);
+		Mockito.doAnswer(this::save).when(repository).saveAll(Mockito.anyIterable());
+
+		store = new JpaClientFeedbackStore();
+		ReflectionTestUtils.setField(store, "clientFeedbackRepository", repository);
+		ReflectionTestUtils.setField(store, "transactionManager", Mockito.mock(PlatformTransactionManager.class));
+		ReflectionTestUtils.setField(store, "properties", properties);
+		store.init();
+	}
+
+	@After
+	public void tearDown() {
+		Mockito.reset(repository);
+		store.destroy();
+	}
+
+	@Test
+	public void flushUpdatesKnownClientsAndInsertsNewOnes() {
+		ClientFeedbackRecord existing = record("APP1", "client-1", 2);
+		existing.setId(10L);
+		Mockito.when(repository.findByLabelAndClientIdIn(Mockito.eq("APP1"), Mockito.anyCollection()))
+				.thenReturn(Collections.singletonList(existing));
+
+		store.onClientFeedback(feedback("APP1", "client-1", 3));
+		store.onClientFeedback(feedback("APP1", "client-2", 3));
+
+		assertThat(store.flush()).isEqualTo(2);
+
+		assertThat(savedRows).hasSize(1);
+		assertThat(savedRows.get(0)).contains(existing);
+		assertThat(existing.getClientVersion()).isEqualTo(3);
+		assertThat(savedRows.get(0)).filteredOn(r -> "client-2".equals(r.getClientId()))
+				.extracting(ClientFeedbackRecord::getId).containsExactly((Long) null);
+		assertThat(store.getPendingCount()).isEqualTo(0);
+		assertThat(store.getWrittenCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void chunkWithConcurrentInsertIsWrittenRowByRow() {
+		Mockito.doThrow(new DataIntegrityViolationException("Duplicate client")).doAnswer(this::save).when(repository)
+				.saveAll(Mockito.anyIterable());
+
+		store.onClientFeedback(feedback("APP1", "client-1", 3));
+		store.onClientFeedback(feedback("APP1", "client-2", 3));
+
+		assertThat(store.flush()).isEqualTo(2);
+		assertThat(savedRows).hasSize(2).allSatisfy(rows -> assertThat(rows).hasSize(1));
+	}
+
+	@Test
+	public void failedFlushKeepsFeedbackUnlessNewerArrived() {
+		Mockito.doAnswer(invocation -> {
+			// The client reports again while the database is down
+			store.onClientFeedback(feedback("APP1", "client-1", 4));
+			throw new DataAccessResourceFailureException("Database down");
+		}).when(repository).saveAll(Mockito.anyIterable());
+
+		store.onClientFeedback(feedback("APP1", "client-1", 3));
+		store.onClientFeedback(feedback("APP1", "client-2", 3));
+
+		assertThatThrownBy(store::flush).isInstanceOf(DataAccessResourceFailureException.class);
+		assertThat(store.getPendingCount()).isEqualTo(2);
+
+		Mockito.doAnswer(this::save).when(repository).saveAll(Mockito.anyIterable());
+
+		assertThat(store.flush()).isEqualTo(2);
+		assertThat(savedRows.get(0)).filteredOn(r -> "client-1".equals(r.getClientId()))
+				.extracting(ClientFeedbackRecord::getClientVersion).containsExactly(4);
+	}
+
+	@Test
+	public void pruneRemovesClientsNotSeenWithinRetention() {
+		properties.getFeedback().getStore().setRetention(Duration.ofDays(1));
+		Mockito.when(repository.deleteByLastSeenBefore(Mockito.any())).thenReturn(3);
+
+		long start = System.currentTimeMillis();
+		assertThat(store.prune()).isEqualTo(3);
+
+		ArgumentCaptor<Date> lastSeen = ArgumentCaptor.forClass(Date.class);
+		Mockito.verify(repository).deleteByLastSeenBefore(lastSeen.capture());
+		assertThat(lastSeen.getValue().getTime()).isBetween(start - Duration.ofDays(1).toMillis(),
+				System.currentTimeMillis() - Duration.ofDays(1).toMillis());
+		assertThat(store.getPrunedCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void queriesReturnFeedbackPages() {
+		Date lastSeen = new Date();
+		Mockito.when(repository.findByLabelAndLastSeenBeforeOrderByLastSeen("APP1", lastSeen, PageRequest.of(1, 20)))
+				.thenReturn(new PageImpl<>(Collections.singletonList(record("APP1", "idle", 1))));
+		Mockito.when(repository.findByLabelAndClientVersionLessThanOrderByClientVersion("APP1", 5,
+				PageRequest.of(0, 10))).thenReturn(new PageImpl<>(Collections.singletonList(record("APP1", "old", 2))));
+
+		List<ClientFeedback> stale = store.findStaleClients("APP1", lastSeen, 1, 20);
+		List<ClientFeedback> behind = store.findClientsBehind("APP1", 5, 0, 10);
+
+		assertThat(stale).extracting(ClientFeedback::getLabel, ClientFeedback::getClientId)
+				.containsExactly(tuple("APP1", "idle"));
+		assertThat(behind).extracting(ClientFeedback::getClientVersion).containsExactly(2);
+	}
+
+	private Object save(final InvocationOnMock invocation) {
+		savedRows.add(new ArrayList<>(invocation.<Collection<ClientFeedbackRecord>>getArgument(0)));
+		return invocation.getArgument(0);
+	}
+
+	private static ClientFeedback feedback(final String label, final String clientId, final int version) {
+		ClientFeedback feedback = new ClientFeedback();
+		feedback.setLabel(label);
+		feedback.setClientId(clientId);
+		feedback.setClientVersion(version);
+		feedback.setLastUpdateTime(new Date());
+		return feedback;
+	}
+
+	private static ClientFeedbackRecord record(final String label, final String clientId, final int version) {
+		ClientFeedbackRecord record = new ClientFeedbackRecord();
+		record.setLabel(label);
+		record.setClientId(clientId);
+		record.setClientVersion(version);
+		record.setLastSeen(new Date());
+		return record;
+	}
+
+}
@@ -0,0 +1,93 @@
+package io.github.melangad.spring.config.server.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConfigServerMetricsTest {
+
+	private ConfigServerProperties properties;
+
+	private SimpleMeterRegistry registry;
+
+	private ConfigServerMetrics metrics;
+
+	@Before
+	public void setUp() {
+		properties = new ConfigServerProperties();
+		registry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	public void stagesAreTimedByStageTag() {
+		init();
+
+		metrics.record(Stage.DB_FETCH, System.nanoTime());
+
+		assertThat(registry.get("config.server.stage").tag("stage", "db_fetch").timer().count()).isEqualTo(1);
+		assertThat(registry.get("config.server.stage").timers()).hasSize(Stage.values().length);
+	}
+
+	@Test
+	public void responsesAreCountedByTypeTag() {
+		init();
+
+		metrics.countResponse("gzip");
+		metrics.countResponse("gzip");
+		metrics.countResponse("not_modified");
+
+		assertThat(registry.get("config.server.responses").tag("type", "gzip").counter().count()).isEqualTo(2);
+		assertThat(registry.get("config.server.responses").tag("type", "not_modified").counter().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	public void labelsBeyondTheMaximumShareTheOtherTag() {
+		properties.getMetrics().setMaxTaggedLabels(2);
+		init();
+
+		metrics.recordPayloadSize("APP1", 100);
+		metrics.recordPayloadSize("APP2", 200);
+		metrics.recordPayloadSize("APP3", 300);
+		metrics.recordPayloadSize("APP4", 400);
+		metrics.recordPayloadSize("APP1", 100);
+
+		assertThat(registry.get("config.server.payload.size").tag("label", "APP1").summary().count()).isEqualTo(2);
+		assertThat(registry.get("config.server.payload.size").tag("label", "APP2").summary().count()).isEqualTo(1);
+		assertThat(registry.get("config.server.payload.size").tag("label", ConfigServerMetrics.OTHER_LABEL)
+				.summary().totalAmount()).isEqualTo(700);
+		assertThat(registry.get("config.server.payload.size").summaries()).hasSize(3);
+	}
+
+	@Test
+	public void onlyConfiguredLabelsAreTagged() {
+		properties.getMetrics().setTaggedLabels(new HashSet<>(Arrays.asList("APP2")));
+		init();
+
+		assertThat(metrics.labelTag("APP1")).isEqualTo(ConfigServerMetrics.OTHER_LABEL);
+		assertThat(metrics.labelTag("APP2")).isEqualTo("APP2");
+
+		metrics.registerLabelGauge("config.server.push.subscribers", "APP1", this, t -> 1);
+		metrics.registerLabelGauge("config.server.push.subscribers", "APP2", this, t -> 2);
+
+		assertThat(registry.get("config.server.push.subscribers").gauges()).hasSize(1);
+		assertThat(registry.get("config.server.push.subscribers").tag("label", "APP2").gauge().value())
+				.isEqualTo(2);
+	}
+
+	private void init() {
+		metrics = new ConfigServerMetrics();
+		ReflectionTestUtils.setField(metrics, "properties", properties);
+		ReflectionTestUtils.setField(metrics, "meterRegistry", registry);
+		metrics.init();
+	}
+
+}
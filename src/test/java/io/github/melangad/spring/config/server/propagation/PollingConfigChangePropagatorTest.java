@@ -0,0 +1,106 @@
+package io.github.melangad.spring.config.server.propagation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.model.ConfigChange;
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import io.github.melangad.spring.config.server.repository.ConfigStateView;
+
+public class PollingConfigChangePropagatorTest {
+
+	private ConfigRepository configRepository;
+
+	private PollingConfigChangePropagator propagator;
+
+	private List<ConfigChange> changes;
+
+	@Before
+	public void setUp() {
+		configRepository = Mockito.mock(ConfigRepository.class);
+		changes = new ArrayList<>();
+
+		// Polls are run by the tests, the scheduler is not started
+		propagator = new PollingConfigChangePropagator();
+		ReflectionTestUtils.setField(propagator, "configRepository", configRepository);
+		ReflectionTestUtils.setField(propagator, "properties", new ConfigServerProperties());
+		propagator.subscribe(changes::add);
+	}
+
+	@Test
+	public void firstPollOnlyRecordsVersions() {
+		List<ConfigStateView> versions = Arrays.asList(state("APP1", 1, new Date()));
+		Mockito.when(configRepository.findAllVersions()).thenReturn(versions);
+
+		propagator.poll();
+		propagator.poll();
+
+		assertThat(changes).isEmpty();
+		assertThat(propagator.getPollCount()).isEqualTo(2);
+		assertThat(propagator.getChangeCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void versionBumpIsReportedWithItsLag() {
+		List<ConfigStateView> before = Arrays.asList(state("APP1", 1, new Date()), state("APP2", 4, new Date()));
+		Date updateTime = new Date(System.currentTimeMillis() - 1500);
+		List<ConfigStateView> after = Arrays.asList(state("APP1", 2, updateTime), state("APP2", 4, new Date()));
+		Mockito.when(configRepository.findAllVersions()).thenReturn(before, after);
+
+		propagator.poll();
+		propagator.poll();
+
+		assertThat(changes).extracting(ConfigChange::getLabel, ConfigChange::getConfigVersion,
+				ConfigChange::getParentLabel).containsExactly(tuple("APP1", 2, "PARENT"));
+		assertThat(propagator.getChangeCount()).isEqualTo(1);
+		assertThat(propagator.getLastLagMillis()).isBetween(1500L, 60_000L);
+		assertThat(propagator.getAverageLagMillis()).isEqualTo(propagator.getLastLagMillis());
+	}
+
+	@Test
+	public void publishedVersionIsNotReportedAgain() {
+		List<ConfigStateView> before = Arrays.asList(state("APP1", 1, new Date()));
+		List<ConfigStateView> after = Arrays.asList(state("APP1", 2, new Date()));
+		Mockito.when(configRepository.findAllVersions()).thenReturn(before, after);
+		propagator.poll();
+
+		propagator.publish(new ConfigChange("APP1", 2, new Date(), "PARENT"));
+		propagator.poll();
+
+		assertThat(changes).isEmpty();
+	}
+
+	@Test
+	public void failedPollIsRetriedOnTheNextInterval() {
+		List<ConfigStateView> versions = Arrays.asList(state("APP1", 1, new Date()));
+		Mockito.when(configRepository.findAllVersions()).thenThrow(new IllegalStateException("Database down"))
+				.thenReturn(versions);
+
+		propagator.poll();
+		propagator.poll();
+
+		assertThat(propagator.getPollCount()).isEqualTo(1);
+		assertThat(changes).isEmpty();
+	}
+
+	private static ConfigStateView state(final String label, final int version, final Date updateTime) {
+		ConfigStateView view = Mockito.mock(ConfigStateView.class);
+		Mockito.when(view.getLabel()).thenReturn(label);
+		Mockito.when(view.getConfigVersion()).thenReturn(version);
+		Mockito.when(view.getUpdateTime()).thenReturn(updateTime);
+		Mockito.when(view.getParentLabel()).thenReturn("PARENT");
+		return view;
+	}
+
+}
@@ -0,0 +1,134 @@
+package io.github.melangad.spring.config.server.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.melangad.spring.config.server.ConfigRequestHandler;
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.github.melangad.spring.config.server.model.ConfigPushEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+
+public class ReactiveConfigControllerTest {
+
+	private ConfigServerProperties properties;
+
+	private ConfigRequestHandler configRequestHandler;
+
+	private ReactiveConfigPushService pushService;
+
+	private ReactiveConfigController controller;
+
+	@Before
+	public void setUp() {
+		properties = new ConfigServerProperties();
+		configRequestHandler = Mockito.mock(ConfigRequestHandler.class);
+
+		ConfigServerMetrics metrics = new ConfigServerMetrics();
+		ReflectionTestUtils.setField(metrics, "properties", properties);
+		ReflectionTestUtils.setField(metrics, "meterRegistry", new SimpleMeterRegistry());
+		metrics.init();
+
+		pushService = new ReactiveConfigPushService();
+		ReflectionTestUtils.setField(pushService, "properties", properties);
+		ReflectionTestUtils.setField(pushService, "metrics", metrics);
+		pushService.init();
+	}
+
+	@After
+	public void tearDown() {
+		if (null != controller) {
+			controller.destroy();
+		}
+		pushService.destroy();
+	}
+
+	@Test
+	public void watchIsAnsweredByChangeOfTheLabel() throws Exception {
+		init();
+		Mockito.when(configRequestHandler.checkWatch("CHILD", 3)).thenReturn(Optional.empty());
+
+		// The label stream is joined on subscription
+		CompletableFuture<ResponseEntity<?>> result = controller.watchConfig("CHILD", 3).toFuture();
+
+		pushService.doNotify("CHILD", "CHILD", 4, new Date());
+
+		ResponseEntity<?> response = result.get(5, TimeUnit.SECONDS);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+		assertThat(((ConfigPushEvent) response.getBody()).getConfigVersion()).isEqualTo(4);
+	}
+
+	@Test
+	public void watchSkipsChangesOfAncestors() throws Exception {
+		init();
+		Mockito.when(configRequestHandler.checkWatch("CHILD", 3)).thenReturn(Optional.empty());
+
+		// The label stream is joined on subscription
+		CompletableFuture<ResponseEntity<?>> result = controller.watchConfig("CHILD", 3).toFuture();
+
+		// The parent is far ahead of the child, its version says nothing about the child
+		pushService.doNotify("CHILD", "PARENT", 7, new Date());
+		Thread.sleep(100);
+		assertThat(result.isDone()).isFalse();
+
+		pushService.doNotify("CHILD", "CHILD", 4, new Date());
+
+		ConfigPushEvent event = (ConfigPushEvent) result.get(5, TimeUnit.SECONDS).getBody();
+		assertThat(event.getLabel()).isEqualTo("CHILD");
+		assertThat(event.getConfigVersion()).isEqualTo(4);
+	}
+
+	@Test
+	public void importReadsTheWholeBodyWithOneBlockingThread() throws Exception {
+		properties.getReactive().setBlockingThreads(1);
+		init();
+
+		byte[] chunk = new byte[16 * 1024];
+		Arrays.fill(chunk, (byte) 'x');
+		Flux<DataBuffer> body = Flux.range(0, 32).map(i -> new DefaultDataBufferFactory().wrap(chunk));
+
+		Mockito.when(configRequestHandler.importConfig(Mockito.eq("APP1"), Mockito.eq("create"), Mockito.any()))
+				.thenAnswer(invocation -> {
+					InputStream input = invocation.getArgument(2);
+					long read = 0;
+					while (input.read() != -1) {
+						read++;
+					}
+					return ResponseEntity.ok(read);
+				});
+
+		ResponseEntity<?> response = controller.importConfig("APP1", "create", body).toFuture().get(10,
+				TimeUnit.SECONDS);
+
+		assertThat(response.getBody()).isEqualTo(32L * chunk.length);
+		assertThat(new File(System.getProperty("java.io.tmpdir")).list((dir, name) -> name.startsWith("config-import-")))
+				.isEmpty();
+	}
+
+	private void init() {
+		controller = new ReactiveConfigController();
+		ReflectionTestUtils.setField(controller, "configRequestHandler", configRequestHandler);
+		ReflectionTestUtils.setField(controller, "reactiveConfigPushService", pushService);
+		ReflectionTestUtils.setField(controller, "properties", properties);
+		controller.init();
+	}
+
+}
@@ -0,0 +1,70 @@
+package io.github.melangad.spring.config.server.reactive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.metrics.ConfigServerMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ReactiveConfigPushServiceTest {
+
+	private ReactiveConfigPushService pushService;
+
+	@Before
+	public void setUp() {
+		ConfigServerProperties properties = new ConfigServerProperties();
+
+		ConfigServerMetrics metrics = new ConfigServerMetrics();
+		ReflectionTestUtils.setField(metrics, "properties", properties);
+		ReflectionTestUtils.setField(metrics, "meterRegistry", new SimpleMeterRegistry());
+		metrics.init();
+
+		pushService = new ReactiveConfigPushService();
+		ReflectionTestUtils.setField(pushService, "properties", properties);
+		ReflectionTestUtils.setField(pushService, "metrics", metrics);
+		pushService.init();
+	}
+
+	@After
+	public void tearDown() {
+		pushService.destroy();
+	}
+
+	@Test
+	public void reactivePushStreamsUpdates() throws Exception {
+		CompletableFuture<List<ServerSentEvent<String>>> received = pushService.subscribe("PUSH-APP").take(2)
+				.collectList().toFuture();
+
+		assertThat(pushService.getSubscriberCount("PUSH-APP")).isEqualTo(1);
+
+		pushService.doNotify("PUSH-APP", "PUSH-APP", 3, new Date());
+
+		List<ServerSentEvent<String>> events = received.get(5, TimeUnit.SECONDS);
+
+		assertThat(events.get(0).comment()).isEqualTo("heartbeat");
+		assertThat(events.get(1).id()).isEqualTo("PUSH-APP-3");
+		assertThat(events.get(1).data()).contains("\"configVersion\":3");
+		assertThat(pushService.getSubscriberCount("PUSH-APP")).isEqualTo(0);
+		assertThat(pushService.getSubscriberCounts()).isEmpty();
+	}
+
+	@Test
+	public void labelWithoutSubscribersIsNotBroadcast() {
+		pushService.doNotify("PUSH-APP", "PUSH-APP", 3, new Date());
+
+		assertThat(pushService.getBroadcastCount()).isEqualTo(0);
+		assertThat(pushService.getSubscriberCounts()).isEmpty();
+	}
+
+}
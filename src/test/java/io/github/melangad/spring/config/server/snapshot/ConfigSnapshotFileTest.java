@@ -0,0 +1,53 @@
+package io.github.melangad.spring.config.server.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigSnapshotFileTest {
+
+	private Path path;
+
+	@Before
+	public void setUp() throws Exception {
+		path = Files.createTempFile("config-snapshot", ".bin");
+		Files.delete(path);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void snapshotFileKeepsLatestVersionAcrossReopen() throws Exception {
+		try (ConfigSnapshotFile file = new ConfigSnapshotFile(path)) {
+			file.append("APP", 1, new Date(), "[1]".getBytes(StandardCharsets.UTF_8));
+			file.append("APP", 2, new Date(), "[2]".getBytes(StandardCharsets.UTF_8));
+			file.append("APP", 1, new Date(), "[old]".getBytes(StandardCharsets.UTF_8));
+		}
+
+		// A record cut short by a crash
+		Files.write(path, new byte[] { 0, 0, 0, 40, 1, 2 }, StandardOpenOption.APPEND);
+
+		try (ConfigSnapshotFile file = new ConfigSnapshotFile(path)) {
+			SnapshotRecord record = file.read("APP");
+
+			assertThat(record.getConfigVersion()).isEqualTo(2);
+			assertThat(new String(record.getBody(), StandardCharsets.UTF_8)).isEqualTo("[2]");
+
+			file.compact();
+			assertThat(file.getVersions()).containsOnly(entry("APP", 2));
+		}
+	}
+
+}
@@ -0,0 +1,172 @@
+package io.github.melangad.spring.config.server.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.github.melangad.spring.config.server.ConfigServerProperties;
+import io.github.melangad.spring.config.server.ConfigService;
+import io.github.melangad.spring.config.server.cache.CachedConfig;
+import io.github.melangad.spring.config.server.cache.ConfigCache;
+import io.github.melangad.spring.config.server.model.ConfigDetailDAO;
+import io.github.melangad.spring.config.server.model.ConfigMetaDAO;
+import io.github.melangad.spring.config.server.repository.ConfigRepository;
+import io.github.melangad.spring.config.server.repository.ConfigStateView;
+import io.github.melangad.spring.config.server.repository.ConfigVersionView;
+
+public class ConfigSnapshotServiceTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private Path path;
+
+	private ConfigServerProperties properties;
+
+	private ConfigService configService;
+
+	private ConfigRepository configRepository;
+
+	private ConfigCache configCache;
+
+	private ConfigSnapshotService snapshotService;
+
+	@Before
+	public void setUp() throws Exception {
+		path = Files.createTempFile("config-snapshot", ".bin");
+		Files.delete(path);
+
+		properties = new ConfigServerProperties();
+		properties.getSnapshot().setPath(path.toString());
+		configService = Mockito.mock(ConfigService.class);
+		configRepository = Mockito.mock(ConfigRepository.class);
+
+		configCache = new ConfigCache();
+		ReflectionTestUtils.setField(configCache, "properties", properties);
+		configCache.init();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (null != snapshotService) {
+			snapshotService.destroy();
+		}
+		Files.deleteIfExists(path);
+	}
+
+	@Test
+	public void readsFallBackToTheSnapshotWhileTheDatabaseIsDown() throws Exception {
+		write("APP1", 3, "value");
+		init();
+
+		// Only the loads and version lookups of the config service go to the database
+		ConfigService service = new ConfigService();
+		ReflectionTestUtils.setField(service, "configCache", configCache);
+		ReflectionTestUtils.setField(service, "configRepository", configRepository);
+		ReflectionTestUtils.setField(service, "configSnapshotService", snapshotService);
+		Mockito.when(configRepository.findByLabel(Mockito.anyString()))
+				.thenThrow(new DataAccessResourceFailureException("Database down"));
+		Mockito.when(configRepository.findVersionByLabel(Mockito.anyString()))
+				.thenThrow(new DataAccessResourceFailureException("Database down"));
+
+		Optional<CachedConfig> config = service.getCachedConfig("APP1");
+
+		assertThat(config.get().getVersion()).isEqualTo(3);
+		assertThat(config.get().getConfigDetail().getConfigData()).extracting(ConfigMetaDAO::getValue)
+				.containsExactly("value");
+		assertThat(service.getConfigVersion("APP1").map(ConfigVersionView::getConfigVersion)).contains(3);
+		assertThat(service.getCachedConfig("APP2")).isEmpty();
+		assertThat(snapshotService.getFallbackReadCount()).isEqualTo(2);
+
+		// Fallback reads are not cached, the database is tried again next time
+		assertThat(configCache.size()).isEqualTo(0);
+	}
+
+	@Test
+	public void reconcileWritesStaleLabelsAndSeedsTheCache() throws Exception {
+		write("APP1", 1, "current");
+		write("APP2", 1, "stale");
+		init();
+
+		List<ConfigStateView> versions = Arrays.asList(state("APP1", 1), state("APP2", 2), state("APP3", 1));
+		Mockito.when(configRepository.findAllVersions()).thenReturn(versions);
+		CachedConfig app2 = cachedConfig("APP2", 2, "fresh");
+		CachedConfig app3 = cachedConfig("APP3", 1, "new");
+		Mockito.when(configService.getCachedConfig("APP2")).thenReturn(Optional.of(app2));
+		Mockito.when(configService.getCachedConfig("APP3")).thenReturn(Optional.of(app3));
+
+		snapshotService.reconcile();
+
+		assertThat(snapshotService.getLabelCount()).isEqualTo(3);
+		assertThat(snapshotService.getCachedConfig("APP2").get().getConfigDetail().getConfigData())
+				.extracting(ConfigMetaDAO::getValue).containsExactly("fresh");
+		Mockito.verify(configService, Mockito.never()).getCachedConfig("APP1");
+
+		// Only the label already up to date is put into the cache
+		assertThat(configCache.size()).isEqualTo(1);
+		assertThat(configCache.get("APP1", label -> null).getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	public void reconcileWithoutDatabaseKeepsTheSnapshot() throws Exception {
+		write("APP1", 1, "current");
+		init();
+		Mockito.when(configRepository.findAllVersions())
+				.thenThrow(new DataAccessResourceFailureException("Database down"));
+
+		snapshotService.reconcile();
+
+		assertThat(snapshotService.getLabelCount()).isEqualTo(1);
+		assertThat(configCache.size()).isEqualTo(0);
+		Mockito.verifyZeroInteractions(configService);
+	}
+
+	private void init() throws Exception {
+		snapshotService = new ConfigSnapshotService();
+		ReflectionTestUtils.setField(snapshotService, "configService", configService);
+		ReflectionTestUtils.setField(snapshotService, "configRepository", configRepository);
+		ReflectionTestUtils.setField(snapshotService, "configCache", configCache);
+		ReflectionTestUtils.setField(snapshotService, "properties", properties);
+		snapshotService.init();
+	}
+
+	private void write(final String label, final int version, final String value) throws Exception {
+		try (ConfigSnapshotFile file = new ConfigSnapshotFile(path)) {
+			file.append(label, version, new Date(), cachedConfig(label, version, value).getJsonBody());
+		}
+	}
+
+	private CachedConfig cachedConfig(final String label, final int version, final String value) throws Exception {
+		ConfigMetaDAO meta = new ConfigMetaDAO();
+		meta.setKey("key");
+		meta.setValue(value);
+		ConfigDetailDAO detail = new ConfigDetailDAO();
+		detail.setVersion(version);
+		detail.getConfigData().add(meta);
+
+		return new CachedConfig(label, version, new Date(), detail,
+				mapper.writeValueAsString(detail).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static ConfigStateView state(final String label, final int version) {
+		ConfigStateView view = Mockito.mock(ConfigStateView.class);
+		Mockito.when(view.getLabel()).thenReturn(label);
+		Mockito.when(view.getConfigVersion()).thenReturn(version);
+		return view;
+	}
+
+}